@@ -15,13 +15,16 @@
  */
 package com.google.gwt.benchmark.framework.client;
 
+import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
 import com.google.gwt.benchmark.framework.shared.AbstractBenchmark;
 import com.google.gwt.benchmark.framework.shared.BenchmarkExecutor;
 import com.google.gwt.benchmark.framework.shared.BenchmarkResult;
 import com.google.gwt.benchmark.framework.shared.Performance;
 import com.google.gwt.benchmark.framework.shared.PerformanceFactory;
+import com.google.gwt.benchmark.framework.shared.Statistics;
 import com.google.gwt.core.client.EntryPoint;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
 
 /**
  * Base class for all Benchmark entry points.
@@ -33,15 +36,23 @@ public abstract class AbstractBenchmarkEntryPoint implements EntryPoint {
     try {
       maybePatchPerformanceNow();
       BenchmarkExecutor executor = new BenchmarkExecutor();
-      BenchmarkResult benchmarkResult =
-          executor.executeWithFixedTime(getBenchmark());
+      JavaScriptObject config = getConfig();
+      boolean untilStable = isStableModeRequested(config);
+      BenchmarkResult benchmarkResult = untilStable
+          ? executor.executeUntilStable(getBenchmark(),
+              getMaxRelativeError(config, BenchmarkExecutor.DEFAULT_MAX_RELATIVE_ERROR),
+              BenchmarkExecutor.DEFAULT_MAX_TIME_MS)
+          : executor.executeWithFixedTime(getBenchmark());
       double runsPerSecond =
           (benchmarkResult.getNumberOfRuns() * 1000) / benchmarkResult.getTotalTimePassedMs();
-      update(runsPerSecond);
+      update(runsPerSecond, Statistics.from(benchmarkResult.getTimesForIndividualRunsMs()),
+          benchmarkResult.getNumberOfWarmupRuns(), benchmarkResult.getRelativeMarginOfError());
       if (hasDom()) {
+        String details = untilStable ? ", warmup runs: " + benchmarkResult.getNumberOfWarmupRuns()
+            + ", relative margin of error: " + benchmarkResult.getRelativeMarginOfError() : "";
         display("Result: " + runsPerSecond + " runs/second (Total runs: "
             + benchmarkResult.getNumberOfRuns() + ", time: "
-            + benchmarkResult.getTotalTimePassedMs() + "ms)");
+            + benchmarkResult.getTotalTimePassedMs() + "ms" + details + ")");
       }
     } catch (Exception e) {
       setFailed();
@@ -54,6 +65,30 @@ public abstract class AbstractBenchmarkEntryPoint implements EntryPoint {
 
   protected abstract AbstractBenchmark getBenchmark();
 
+  /**
+   * Returns whether the compile server asked to run the benchmark until its timing is
+   * statistically stable instead of for a fixed time.
+   */
+  private static native boolean isStableModeRequested(JavaScriptObject config) /*-{
+    return !!config && config.mode == 'stable';
+  }-*/;
+
+  private static native double getMaxRelativeError(JavaScriptObject config,
+      double defaultValue) /*-{
+    return !!config && config.maxRelativeError > 0 ? config.maxRelativeError : defaultValue;
+  }-*/;
+
+  /**
+   * Returns the settings the compile server defined in the host page or null. Shells like d8 have
+   * no host page, there the settings are a global of the shell.
+   */
+  private static native JavaScriptObject getConfig() /*-{
+    if ($wnd.__gwt__benchmarking__config) {
+      return $wnd.__gwt__benchmarking__config;
+    }
+    return typeof __gwt__benchmarking__config == 'undefined' ? null : __gwt__benchmarking__config;
+  }-*/;
+
   private native boolean hasWindowPerformanceNow() /*-{
     return !!$wnd.performance && !!$wnd.performance.now;
   }-*/;
@@ -76,15 +111,46 @@ public abstract class AbstractBenchmarkEntryPoint implements EntryPoint {
     window.performance.now = now;
   }-*/;
 
-  private native void update(double result) /*-{
+  private native void update(double result, Statistics statistics, int warmupRuns,
+      double relativeMarginOfError) /*-{
+    var timesMs = statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getSamples()();
+    var samples = [];
+    var length = timesMs.@com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber::length()();
+    for (var i = 0; i < length; i++) {
+      samples.push(timesMs.@com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber::get(I)(i));
+    }
+    $wnd.__gwt__benchmarking__samples = samples;
+    $wnd.__gwt__benchmarking__statistics = {
+      mean: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getMean()(),
+      median: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getMedian()(),
+      p90: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getP90()(),
+      p99: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getP99()(),
+      stdDev: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getStdDev()(),
+      min: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getMin()(),
+      max: statistics.@com.google.gwt.benchmark.framework.shared.Statistics::getMax()(),
+      warmupRuns: warmupRuns,
+      relativeMarginOfError: relativeMarginOfError
+    };
     $wnd.__gwt__benchmarking__failed = false;
     $wnd.__gwt__benchmarking__result = result;
     $wnd.__gwt__benchmarking__ran = true;
+    this.@com.google.gwt.benchmark.framework.client.AbstractBenchmarkEntryPoint::notifyDone()();
   }-*/;
 
   private native void setFailed() /*-{
     $wnd.__gwt__benchmarking__failed = true;
     $wnd.__gwt__benchmarking__ran = true;
+    this.@com.google.gwt.benchmark.framework.client.AbstractBenchmarkEntryPoint::notifyDone()();
+  }-*/;
+
+  /**
+   * Invokes the callback a runner might have registered to get notified once the benchmark is done
+   * instead of polling for the result.
+   */
+  private native void notifyDone() /*-{
+    if (typeof $wnd.__gwt__benchmarking__onDone == 'function') {
+      $wnd.__gwt__benchmarking__onDone();
+    }
   }-*/;
 
   /**
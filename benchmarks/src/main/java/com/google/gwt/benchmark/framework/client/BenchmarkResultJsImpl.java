@@ -27,7 +27,8 @@ import com.google.gwt.core.client.JavaScriptObject;
 public final class BenchmarkResultJsImpl extends JavaScriptObject implements BenchmarkResult {
 
   public native static BenchmarkResultJsImpl create() /*-{
-    return {name: "", numberOfRuns: 0, totalTimePassedMs: 0, timesForIndividualRunsMs: []};
+    return {name: "", numberOfRuns: 0, totalTimePassedMs: 0, timesForIndividualRunsMs: [],
+        numberOfWarmupRuns: 0, relativeMarginOfError: 0};
   }-*/;
 
   @Override
@@ -50,6 +51,16 @@ public final class BenchmarkResultJsImpl extends JavaScriptObject implements Ben
     return this.totalTimePassedMs;
   }-*/;
 
+  @Override
+  public native int getNumberOfWarmupRuns() /*-{
+    return this.numberOfWarmupRuns;
+  }-*/;
+
+  @Override
+  public native double getRelativeMarginOfError() /*-{
+    return this.relativeMarginOfError;
+  }-*/;
+
   @Override
   public native void setName(String name) /*-{
     this.name = name;
@@ -71,6 +82,16 @@ public final class BenchmarkResultJsImpl extends JavaScriptObject implements Ben
     this.totalTimePassedMs = time;
   }-*/;
 
+  @Override
+  public native void setNumberOfWarmupRuns(int runs) /*-{
+    this.numberOfWarmupRuns = runs;
+  }-*/;
+
+  @Override
+  public native void setRelativeMarginOfError(double relativeMarginOfError) /*-{
+    this.relativeMarginOfError = relativeMarginOfError;
+  }-*/;
+
   protected BenchmarkResultJsImpl() {
   }
 }
@@ -15,21 +15,56 @@
  */
 package com.google.gwt.benchmark.framework.server;
 
+import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
 import com.google.gwt.benchmark.framework.shared.AbstractBenchmark;
 import com.google.gwt.benchmark.framework.shared.BenchmarkExecutor;
 import com.google.gwt.benchmark.framework.shared.BenchmarkResult;
+import com.google.gwt.benchmark.framework.shared.Statistics;
 
 import java.lang.reflect.Constructor;
 
 /**
  * Runs a benchmark directly on the JVM.
+ * <p>
+ * With {@value #REPORT} the result is also printed in a form the compile server can read, which
+ * lets it run the benchmarks on the JVM as a baseline for the compiled JavaScript. With
+ * {@value #STABLE} the benchmark runs until its timing is stable, {@code stable=0.01} sets the
+ * relative margin of error to reach.
  */
 public class JavaBenchmarkLauncher {
 
+  private static final String STABLE = "stable";
+
+  private static final String REPORT = "report";
+
+  /**
+   * Prefix of the lines that {@value #REPORT} prints. Runners of the compile server read the
+   * result from these lines, the same way they read it from a browser.
+   */
+  private static final String REPORT_PREFIX = "__gwt__benchmarking__";
+
   public static void main(String[] args) {
     // Validate arguments
-    if(args.length != 1) {
-      System.out.println("Usage: JavaEntryPoint <BenchmarkClass>");
+    boolean untilStable = false;
+    double maxRelativeError = BenchmarkExecutor.DEFAULT_MAX_RELATIVE_ERROR;
+    boolean report = false;
+    boolean validArguments = args.length >= 1 && args.length <= 3;
+    for (int i = 1; validArguments && i < args.length; i++) {
+      if (STABLE.equals(args[i]) && !untilStable) {
+        untilStable = true;
+      } else if (args[i].startsWith(STABLE + "=") && !untilStable) {
+        untilStable = true;
+        maxRelativeError = parseMaxRelativeError(args[i].substring(STABLE.length() + 1));
+        validArguments = maxRelativeError > 0;
+      } else if (REPORT.equals(args[i]) && !report) {
+        report = true;
+      } else {
+        validArguments = false;
+      }
+    }
+    if (!validArguments) {
+      System.out.println(
+          "Usage: JavaEntryPoint <BenchmarkClass> [stable[=<maxRelativeError>]] [report]");
       System.exit(1);
     }
     String benchmarkClassName = args[0];
@@ -46,10 +81,57 @@ public class JavaBenchmarkLauncher {
 
     // Execute Benchmark
     BenchmarkExecutor executor = new BenchmarkExecutor();
-    BenchmarkResult benchmarkResult = executor.executeWithFixedTime(benchmark);
+    BenchmarkResult benchmarkResult = untilStable
+        ? executor.executeUntilStable(benchmark, maxRelativeError,
+            BenchmarkExecutor.DEFAULT_MAX_TIME_MS)
+        : executor.executeWithFixedTime(benchmark);
     double runsPerSecond =
         (benchmarkResult.getNumberOfRuns() * 1000) / benchmarkResult.getTotalTimePassedMs();
     System.out.println(benchmark.getName() + ": " + runsPerSecond);
+    if (untilStable) {
+      System.out.println(String.format("warmup runs: %d, relative margin of error: %f",
+          benchmarkResult.getNumberOfWarmupRuns(), benchmarkResult.getRelativeMarginOfError()));
+    }
+    if (report) {
+      printReport(runsPerSecond, benchmarkResult);
+    }
+  }
+
+  /**
+   * Returns the margin of error or -1 if it is no number.
+   */
+  private static double parseMaxRelativeError(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Prints the result in the form the benchmark framework publishes it in a browser.
+   */
+  private static void printReport(double runsPerSecond, BenchmarkResult benchmarkResult) {
+    Statistics statistics = Statistics.from(benchmarkResult.getTimesForIndividualRunsMs());
+    JavaScriptArrayNumber timesMs = statistics.getSamples();
+    StringBuilder samples = new StringBuilder();
+    for (int i = 0; i < timesMs.length(); i++) {
+      if (i > 0) {
+        samples.append(",");
+      }
+      samples.append(timesMs.get(i));
+    }
+    // The samples go first, the reader might only keep the end of very long output
+    System.out.println(REPORT_PREFIX + "samples=" + samples);
+    System.out.println(REPORT_PREFIX + "statistics=" + statistics.getMean() + ","
+        + statistics.getMedian() + "," + statistics.getP90() + "," + statistics.getP99() + ","
+        + statistics.getStdDev() + "," + statistics.getMin() + "," + statistics.getMax());
+    System.out.println(REPORT_PREFIX + "warmupRuns=" + benchmarkResult.getNumberOfWarmupRuns());
+    System.out.println(REPORT_PREFIX + "relativeMarginOfError="
+        + benchmarkResult.getRelativeMarginOfError());
+    System.out.println(REPORT_PREFIX + "result=" + runsPerSecond);
+    System.out.println(REPORT_PREFIX + "failed=false");
+    System.out.println(REPORT_PREFIX + "ran=true");
   }
 
   private static AbstractBenchmark getBenchmark(String className) throws Exception {
@@ -24,6 +24,27 @@ import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
  */
 public class BenchmarkExecutor {
 
+  /**
+   * Two sided 95% quantiles of the Student's t-distribution for 1 to 30 degrees of freedom.
+   */
+  private static final double[] T_DISTRIBUTION_95 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447,
+      2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093,
+      2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+  /**
+   * Default relative margin of error (95% confidence) for {@link #executeUntilStable}.
+   */
+  public static final double DEFAULT_MAX_RELATIVE_ERROR = 0.02;
+
+  /**
+   * Default upper bound for the time {@link #executeUntilStable} spends on a benchmark.
+   */
+  public static final double DEFAULT_MAX_TIME_MS = 10000;
+
+  private static final double BATCH_TIME_MS = 100;
+  private static final int MIN_MEASUREMENT_BATCHES = 5;
+  private static final double STEADY_STATE_TOLERANCE = 0.05;
+
   private Performance performance;
 
   public BenchmarkExecutor() {
@@ -43,25 +64,120 @@ public class BenchmarkExecutor {
     return benchmarkResult;
   }
 
-  private BenchmarkResult runBenchmarkForAtLeast(AbstractBenchmark benchmark,
-      double minimalTime, int minimalRuns) {
+  public BenchmarkResult executeUntilStable(AbstractBenchmark benchmark) {
+    return executeUntilStable(benchmark, DEFAULT_MAX_RELATIVE_ERROR, DEFAULT_MAX_TIME_MS);
+  }
+
+  /**
+   * Executes a benchmark until its timing is statistically stable.
+   * <p>
+   * The benchmark is run in batches of about {@value #BATCH_TIME_MS} ms. Batches are considered
+   * warmup until the mean time of a run in two successive batches differs by less than
+   * {@value #STEADY_STATE_TOLERANCE}, warmup runs are discarded. Measurement batches are added
+   * until the 95% confidence interval of the mean batch time is within {@code maxRelativeError} of
+   * the mean. If the benchmark does not settle, execution stops after {@code maxTimeMs}, warmup
+   * included; half of that time at most is spent on warmup.
+   */
+  public BenchmarkResult executeUntilStable(AbstractBenchmark benchmark, double maxRelativeError,
+      double maxTimeMs) {
 
+    benchmark.setupOneTime();
     double startMs = performance.now();
-    double minimalEnd = startMs + minimalTime;
+    double end = startMs + maxTimeMs;
 
-    int runs = 0;
     JavaScriptArray<Object> array = CollectionFactory.create();
     JavaScriptArrayNumber times = CollectionFactory.createNumber();
 
+    // Warm up until successive batches agree
+    int warmupRuns = 0;
+    double previousBatchMean = -1;
+    while (performance.now() < startMs + maxTimeMs / 2) {
+      int runs = runBatch(benchmark, BATCH_TIME_MS, 2, array, times);
+      warmupRuns += runs;
+      double batchMean = meanOfLast(times, runs);
+      if (previousBatchMean > 0
+          && Math.abs(batchMean - previousBatchMean) / previousBatchMean < STEADY_STATE_TOLERANCE) {
+        break;
+      }
+      previousBatchMean = batchMean;
+    }
+
+    double measurementStartMs = performance.now();
+    times = CollectionFactory.createNumber();
+    JavaScriptArrayNumber batchMeans = CollectionFactory.createNumber();
+    double relativeError = Double.POSITIVE_INFINITY;
+    while (batchMeans.length() < MIN_MEASUREMENT_BATCHES
+        || (relativeError > maxRelativeError && performance.now() < end)) {
+      int runs = runBatch(benchmark, BATCH_TIME_MS, 2, array, times);
+      batchMeans.push(meanOfLast(times, runs));
+      relativeError = relativeMarginOfError(batchMeans);
+    }
+
+    double tookMs = performance.now() - measurementStartMs;
+    benchmark.tearDownOneTime();
+
+    // Keep GWT compiler / JavaScript engine from removing code
+    Util.disableOpt(array);
+
+    BenchmarkResult benchmarkResult = BenchmarkResultFactory.create();
+    benchmarkResult.setName(benchmark.getName());
+    benchmarkResult.setNumberOfRuns(times.length());
+    benchmarkResult.setTimesForIndividualRunsMs(times);
+    benchmarkResult.setTotalTimePassed(tookMs);
+    benchmarkResult.setNumberOfWarmupRuns(warmupRuns);
+    benchmarkResult.setRelativeMarginOfError(relativeError);
+    return benchmarkResult;
+  }
+
+  /**
+   * Returns the half width of the 95% confidence interval of the mean relative to the mean.
+   */
+  // Visible for testing
+  static double relativeMarginOfError(JavaScriptArrayNumber values) {
+    int n = values.length();
+    if (n < 2) {
+      return Double.POSITIVE_INFINITY;
+    }
+    Statistics statistics = Statistics.from(values);
+    if (statistics.getMean() == 0) {
+      return 0;
+    }
+    double t = n - 1 <= T_DISTRIBUTION_95.length ? T_DISTRIBUTION_95[n - 2] : 1.96;
+    return t * statistics.getStdDev() / Math.sqrt(n) / statistics.getMean();
+  }
+
+  private static double meanOfLast(JavaScriptArrayNumber times, int count) {
+    double sum = 0;
+    for (int i = times.length() - count; i < times.length(); i++) {
+      sum += times.get(i);
+    }
+    return sum / count;
+  }
+
+  private int runBatch(AbstractBenchmark benchmark, double minimalTime, int minimalRuns,
+      JavaScriptArray<Object> results, JavaScriptArrayNumber times) {
+    double minimalEnd = performance.now() + minimalTime;
+    int runs = 0;
     while (runs <= minimalRuns || performance.now() < minimalEnd) {
       benchmark.setup();
       double currentMs = performance.now();
       Object result = benchmark.run();
-      array.push(result);
+      results.push(result);
       times.push(performance.now() - currentMs);
       runs++;
       benchmark.tearDown();
     }
+    return runs;
+  }
+
+  private BenchmarkResult runBenchmarkForAtLeast(AbstractBenchmark benchmark,
+      double minimalTime, int minimalRuns) {
+
+    double startMs = performance.now();
+
+    JavaScriptArray<Object> array = CollectionFactory.create();
+    JavaScriptArrayNumber times = CollectionFactory.createNumber();
+    int runs = runBatch(benchmark, minimalTime, minimalRuns, array, times);
 
     double tookMs = performance.now() - startMs;
 
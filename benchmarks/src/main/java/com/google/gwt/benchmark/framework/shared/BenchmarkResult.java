@@ -41,6 +41,17 @@ public interface BenchmarkResult {
    */
   double getTotalTimePassedMs();
 
+  /**
+   * Returns the number of runs that were discarded as warmup.
+   */
+  int getNumberOfWarmupRuns();
+
+  /**
+   * Returns the half width of the 95% confidence interval of the mean relative to the mean or 0
+   * if it was not determined.
+   */
+  double getRelativeMarginOfError();
+
   /**
    * Sets the name of the benchmark.
    */
@@ -60,4 +71,14 @@ public interface BenchmarkResult {
    * Sets how much time it took to execute the benchmark in milliseconds.
    */
   void setTotalTimePassed(double time);
+
+  /**
+   * Sets how many runs were discarded as warmup.
+   */
+  void setNumberOfWarmupRuns(int runs);
+
+  /**
+   * Sets the relative margin of error of the mean.
+   */
+  void setRelativeMarginOfError(double relativeMarginOfError);
 }
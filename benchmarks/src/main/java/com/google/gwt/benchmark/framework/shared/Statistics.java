@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.framework.shared;
+
+import com.google.gwt.benchmark.collection.shared.CollectionFactory;
+import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
+
+import java.util.Arrays;
+
+/**
+ * Descriptive statistics over the times of individual benchmark runs.
+ * <p>
+ * Micro benchmarks run hundreds of thousands of times, so only up to {@link #MAX_SAMPLES} of the
+ * times are kept for reporting. The statistics are always derived from all times.
+ */
+public class Statistics {
+
+  /**
+   * The maximum number of times returned by {@link #getSamples()}.
+   */
+  public static final int MAX_SAMPLES = 1000;
+
+  /**
+   * Calculates statistics over the given times in milliseconds.
+   */
+  public static Statistics from(JavaScriptArrayNumber timesMs) {
+    double[] sorted = new double[timesMs.length()];
+    double sum = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = timesMs.get(i);
+      sum += sorted[i];
+    }
+    Arrays.sort(sorted);
+
+    Statistics statistics = new Statistics();
+    statistics.samples = limit(timesMs);
+    if (sorted.length == 0) {
+      return statistics;
+    }
+
+    statistics.mean = sum / sorted.length;
+    double squaredDiffs = 0;
+    for (double time : sorted) {
+      squaredDiffs += (time - statistics.mean) * (time - statistics.mean);
+    }
+    statistics.stdDev =
+        sorted.length > 1 ? Math.sqrt(squaredDiffs / (sorted.length - 1)) : 0;
+    statistics.min = sorted[0];
+    statistics.max = sorted[sorted.length - 1];
+    statistics.median = percentile(sorted, 50);
+    statistics.p90 = percentile(sorted, 90);
+    statistics.p99 = percentile(sorted, 99);
+    return statistics;
+  }
+
+  /**
+   * Returns at most {@link #MAX_SAMPLES} times, evenly spread over all runs and in the order they
+   * ran in.
+   */
+  private static JavaScriptArrayNumber limit(JavaScriptArrayNumber timesMs) {
+    int length = timesMs.length();
+    if (length <= MAX_SAMPLES) {
+      return timesMs;
+    }
+    JavaScriptArrayNumber samples = CollectionFactory.createNumber();
+    for (int i = 0; i < MAX_SAMPLES; i++) {
+      samples.push(timesMs.get((int) ((long) i * length / MAX_SAMPLES)));
+    }
+    return samples;
+  }
+
+  /**
+   * Nearest rank percentile of sorted values.
+   */
+  private static double percentile(double[] sorted, int percent) {
+    int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+
+  private double mean;
+  private double median;
+  private double p90;
+  private double p99;
+  private double stdDev;
+  private double min;
+  private double max;
+  private JavaScriptArrayNumber samples;
+
+  private Statistics() {
+  }
+
+  /**
+   * Returns the times of at most {@link #MAX_SAMPLES} runs to report next to the statistics.
+   */
+  public JavaScriptArrayNumber getSamples() {
+    return samples;
+  }
+
+  public double getMean() {
+    return mean;
+  }
+
+  public double getMedian() {
+    return median;
+  }
+
+  public double getP90() {
+    return p90;
+  }
+
+  public double getP99() {
+    return p99;
+  }
+
+  /**
+   * Returns the sample standard deviation.
+   */
+  public double getStdDev() {
+    return stdDev;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+}
@@ -27,6 +27,8 @@ public class BenchmarkResultJavaImpl implements BenchmarkResult {
   private double totalTimePassedMs;
   private JavaScriptArrayNumber timesForIndividualRunsMs;
   private String name;
+  private int numberOfWarmupRuns;
+  private double relativeMarginOfError;
 
   @Override
   public String getName() {
@@ -48,6 +50,16 @@ public class BenchmarkResultJavaImpl implements BenchmarkResult {
     return totalTimePassedMs;
   }
 
+  @Override
+  public int getNumberOfWarmupRuns() {
+    return numberOfWarmupRuns;
+  }
+
+  @Override
+  public double getRelativeMarginOfError() {
+    return relativeMarginOfError;
+  }
+
   @Override
   public void setName(String name) {
     this.name = name;
@@ -67,4 +79,14 @@ public class BenchmarkResultJavaImpl implements BenchmarkResult {
   public void setTotalTimePassed(double time) {
     this.totalTimePassedMs = time;
   }
+
+  @Override
+  public void setNumberOfWarmupRuns(int numberOfWarmupRuns) {
+    this.numberOfWarmupRuns = numberOfWarmupRuns;
+  }
+
+  @Override
+  public void setRelativeMarginOfError(double relativeMarginOfError) {
+    this.relativeMarginOfError = relativeMarginOfError;
+  }
 }
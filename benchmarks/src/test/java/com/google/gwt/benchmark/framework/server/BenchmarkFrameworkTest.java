@@ -36,4 +36,18 @@ public class BenchmarkFrameworkTest {
     Assert.assertEquals(40, benchmarkResult.getNumberOfRuns(), 2);
     Assert.assertTrue(benchmark.isTearDownOneTimeCalled());
   }
+
+  @Test
+  public void testExecuteUntilStable() {
+    MockBenchmark benchmark = new MockBenchmark();
+    BenchmarkExecutor executor = new BenchmarkExecutor();
+    BenchmarkResult benchmarkResult = executor.executeUntilStable(benchmark, 0.02, 5000);
+    // The mock benchmark takes 50 ms per run from the start, warmup is over after two batches
+    Assert.assertEquals(6, benchmarkResult.getNumberOfWarmupRuns());
+    Assert.assertEquals(15, benchmarkResult.getNumberOfRuns());
+    Assert.assertEquals(15, benchmarkResult.getTimesForIndividualRunsMs().length());
+    Assert.assertEquals(750, benchmarkResult.getTotalTimePassedMs(), 100);
+    Assert.assertTrue(benchmarkResult.getRelativeMarginOfError() < 0.02);
+    Assert.assertTrue(benchmark.isTearDownOneTimeCalled());
+  }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.framework.shared;
+
+import com.google.gwt.benchmark.collection.shared.CollectionFactory;
+import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link BenchmarkExecutor}.
+ */
+public class BenchmarkExecutorTest {
+
+  @Test
+  public void testRelativeMarginOfError() {
+    JavaScriptArrayNumber batchMeans = CollectionFactory.createNumber();
+    batchMeans.push(9);
+    batchMeans.push(10);
+    batchMeans.push(11);
+
+    // t(0.975, 2) * stdDev / sqrt(n) / mean = 4.303 * 1 / sqrt(3) / 10
+    Assert.assertEquals(0.24843, BenchmarkExecutor.relativeMarginOfError(batchMeans), 0.0001);
+  }
+
+  @Test
+  public void testRelativeMarginOfErrorNeedsTwoValues() {
+    JavaScriptArrayNumber batchMeans = CollectionFactory.createNumber();
+    batchMeans.push(10);
+
+    Assert.assertEquals(Double.POSITIVE_INFINITY,
+        BenchmarkExecutor.relativeMarginOfError(batchMeans), 0);
+  }
+}
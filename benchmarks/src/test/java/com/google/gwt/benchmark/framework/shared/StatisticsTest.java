@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.framework.shared;
+
+import com.google.gwt.benchmark.collection.shared.CollectionFactory;
+import com.google.gwt.benchmark.collection.shared.JavaScriptArrayNumber;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link Statistics}.
+ */
+public class StatisticsTest {
+
+  @Test
+  public void testStatistics() {
+    JavaScriptArrayNumber timesMs = CollectionFactory.createNumber();
+    // unsorted on purpose
+    for (int i = 10; i >= 1; i--) {
+      timesMs.push(i);
+    }
+
+    Statistics statistics = Statistics.from(timesMs);
+
+    Assert.assertEquals(5.5, statistics.getMean(), 0.0001);
+    Assert.assertEquals(5, statistics.getMedian(), 0.0001);
+    Assert.assertEquals(9, statistics.getP90(), 0.0001);
+    Assert.assertEquals(10, statistics.getP99(), 0.0001);
+    Assert.assertEquals(3.0277, statistics.getStdDev(), 0.0001);
+    Assert.assertEquals(1, statistics.getMin(), 0.0001);
+    Assert.assertEquals(10, statistics.getMax(), 0.0001);
+  }
+
+  @Test
+  public void testSingleSample() {
+    JavaScriptArrayNumber timesMs = CollectionFactory.createNumber();
+    timesMs.push(42);
+
+    Statistics statistics = Statistics.from(timesMs);
+
+    Assert.assertEquals(42, statistics.getMedian(), 0.0001);
+    Assert.assertEquals(42, statistics.getP99(), 0.0001);
+    Assert.assertEquals(0, statistics.getStdDev(), 0.0001);
+  }
+
+  @Test
+  public void testSamplesAreLimited() {
+    JavaScriptArrayNumber timesMs = CollectionFactory.createNumber();
+    for (int i = 0; i < 300000; i++) {
+      timesMs.push(i % 2 == 0 ? 1 : 3);
+    }
+    timesMs.set(299999, 100);
+
+    Statistics statistics = Statistics.from(timesMs);
+
+    JavaScriptArrayNumber samples = statistics.getSamples();
+    Assert.assertEquals(Statistics.MAX_SAMPLES, samples.length());
+    Assert.assertEquals(1, samples.get(0), 0.0001);
+    Assert.assertEquals(1, samples.get(Statistics.MAX_SAMPLES - 1), 0.0001);
+    // the statistics still cover all runs
+    Assert.assertEquals(2.0003, statistics.getMean(), 0.0001);
+    Assert.assertEquals(100, statistics.getMax(), 0.0001);
+  }
+
+  @Test
+  public void testFewSamplesAreKept() {
+    JavaScriptArrayNumber timesMs = CollectionFactory.createNumber();
+    timesMs.push(1);
+    timesMs.push(2);
+
+    Assert.assertSame(timesMs, Statistics.from(timesMs).getSamples());
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.google.gwt.benchmark.common.shared.json;
 
+import java.util.List;
 
 /**
  * A JSON representation of a benchmark result.
@@ -32,4 +33,27 @@ public interface BenchmarkResultJson {
   public double getRunsPerSecond();
 
   public void setRunsPerSecond(double runsPerSecond);
+
+  /**
+   * Returns the results of the individual page loads (forks) that the runs per second have been
+   * aggregated from.
+   */
+  public List<Double> getForkRunsPerSecond();
+
+  public void setForkRunsPerSecond(List<Double> forkRunsPerSecond);
+
+  /**
+   * True if the result was not measured for this commit but carried forward from an earlier commit
+   * with identical compiled output.
+   */
+  public boolean isReused();
+
+  public void setReused(boolean reused);
+
+  /**
+   * Returns the times of individual runs or null if the runner did not report them.
+   */
+  public TimingStatisticsJson getTimingStatistics();
+
+  public void setTimingStatistics(TimingStatisticsJson timingStatistics);
 }
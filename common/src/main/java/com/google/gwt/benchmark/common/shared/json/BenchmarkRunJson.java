@@ -37,6 +37,14 @@ public interface BenchmarkRunJson {
 
   void setResultByBenchmarkName(Map<String, List<BenchmarkResultJson>> results);
 
+  /**
+   * Returns the size of the compiled JavaScript of each module or null if it has not been
+   * measured.
+   */
+  Map<String, CodeSizeJson> getCodeSizeByBenchmarkName();
+
+  void setCodeSizeByBenchmarkName(Map<String, CodeSizeJson> codeSizes);
+
   void setCommitId(String commitId);
 
   /**
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.common.shared.json;
+
+import java.util.List;
+
+/**
+ * A JSON representation of the size of the JavaScript that has been compiled for a module.
+ * <p>
+ * Sizes are in bytes. The totals are the sums over all permutations.
+ */
+public interface CodeSizeJson {
+
+  double getTotalBytes();
+
+  void setTotalBytes(double totalBytes);
+
+  double getTotalGzipBytes();
+
+  void setTotalGzipBytes(double totalGzipBytes);
+
+  List<PermutationSizeJson> getPermutations();
+
+  void setPermutations(List<PermutationSizeJson> permutations);
+}
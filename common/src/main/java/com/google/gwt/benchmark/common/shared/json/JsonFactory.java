@@ -29,6 +29,12 @@ public final class JsonFactory {
     AutoBean<BenchmarkResultJson> result();
 
     AutoBean<BenchmarkRunJson> run();
+
+    AutoBean<TimingStatisticsJson> timingStatistics();
+
+    AutoBean<CodeSizeJson> codeSize();
+
+    AutoBean<PermutationSizeJson> permutationSize();
   }
 
   private static final Factory INSTANCE = (GWT.isClient() ? (Factory) GWT.create(Factory.class)
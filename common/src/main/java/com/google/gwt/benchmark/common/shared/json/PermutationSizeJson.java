@@ -0,0 +1,38 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.common.shared.json;
+
+/**
+ * A JSON representation of the size of a single compiled permutation.
+ */
+public interface PermutationSizeJson {
+
+  /**
+   * Returns the name of the file the permutation has been written to, e.g.
+   * {@code 0123456789ABCDEF.cache.js}.
+   */
+  String getFileName();
+
+  void setFileName(String fileName);
+
+  double getBytes();
+
+  void setBytes(double bytes);
+
+  double getGzipBytes();
+
+  void setGzipBytes(double gzipBytes);
+}
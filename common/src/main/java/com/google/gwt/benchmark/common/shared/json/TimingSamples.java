@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.common.shared.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limits the times of individual runs that are sent along with {@link TimingStatisticsJson}.
+ * <p>
+ * Micro benchmarks run hundreds of thousands of times. The benchmark framework already reports at
+ * most {@link #MAX_SAMPLES} of them, this also protects the compile server and the dashboard from
+ * older frameworks.
+ */
+public class TimingSamples {
+
+  public static final int MAX_SAMPLES = 1000;
+
+  /**
+   * Returns at most {@link #MAX_SAMPLES} of the given times, evenly spread over all of them and in
+   * their original order.
+   */
+  public static List<Double> limit(List<Double> samplesMs) {
+    int size = samplesMs.size();
+    if (size <= MAX_SAMPLES) {
+      return samplesMs;
+    }
+    List<Double> limited = new ArrayList<>(MAX_SAMPLES);
+    for (int i = 0; i < MAX_SAMPLES; i++) {
+      limited.add(samplesMs.get((int) ((long) i * size / MAX_SAMPLES)));
+    }
+    return limited;
+  }
+
+  private TimingSamples() {
+  }
+}
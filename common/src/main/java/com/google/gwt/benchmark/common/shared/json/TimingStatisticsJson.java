@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.common.shared.json;
+
+import java.util.List;
+
+/**
+ * A JSON representation of the times of all individual runs of a benchmark and statistics
+ * derived from them.
+ */
+public interface TimingStatisticsJson {
+
+  List<Double> getSamplesMs();
+
+  void setSamplesMs(List<Double> samplesMs);
+
+  double getMeanMs();
+
+  void setMeanMs(double meanMs);
+
+  double getMedianMs();
+
+  void setMedianMs(double medianMs);
+
+  double getP90Ms();
+
+  void setP90Ms(double p90Ms);
+
+  double getP99Ms();
+
+  void setP99Ms(double p99Ms);
+
+  double getStdDevMs();
+
+  void setStdDevMs(double stdDevMs);
+
+  double getMinMs();
+
+  void setMinMs(double minMs);
+
+  double getMaxMs();
+
+  void setMaxMs(double maxMs);
+
+  int getWarmupRuns();
+
+  void setWarmupRuns(int warmupRuns);
+
+  double getRelativeMarginOfError();
+
+  void setRelativeMarginOfError(double relativeMarginOfError);
+}
@@ -17,6 +17,7 @@ import com.google.gwt.benchmark.compileserver.shared.ServiceAsync;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewEntryDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewResponseDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkRunDTO;
+import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkStatusUpdateDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkRunDTO.State;
 import com.google.gwt.core.shared.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
@@ -28,6 +29,7 @@ import com.google.gwt.resources.client.CssResource;
 import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
 import com.google.gwt.uibinder.client.UiHandler;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 import com.google.gwt.user.client.ui.Button;
@@ -44,6 +46,9 @@ import javax.inject.Inject;
 
 /**
  * A view that displays the status of the compile server.
+ * <p>
+ * After the overview has been loaded the view keeps asking the server for the benchmarks that
+ * changed since, so that it stays up to date without reloading everything.
  */
 public class BenchmarkStatusComposite extends Composite {
 
@@ -70,6 +75,10 @@ public class BenchmarkStatusComposite extends Composite {
 
   private static final Binder uiBinder = GWT.create(Binder.class);
 
+  private static final int UPDATE_RETRY_DELAY_MS = 10 * 1000;
+
+  private static final String NOT_APPLICABLE_TEXT = "-";
+
   // Visible for testing
   static final Bundle bundle = GWT.create(Bundle.class);
 
@@ -78,6 +87,7 @@ public class BenchmarkStatusComposite extends Composite {
   private final Provider<Label> labelProvider;
   private BenchmarkOverviewResponseDTO result;
   private boolean running;
+  private boolean waitingForUpdates;
   private final ServiceAsync service;
 
   @UiField
@@ -170,6 +180,68 @@ public class BenchmarkStatusComposite extends Composite {
     });
   }
 
+  private void loadUpdates() {
+    if (waitingForUpdates) {
+      return;
+    }
+    waitingForUpdates = true;
+
+    service.loadBenchmarkUpdates(result.getVersion(),
+        new AsyncCallback<BenchmarkStatusUpdateDTO>() {
+
+          @Override
+          public void onFailure(Throwable caught) {
+            waitingForUpdates = false;
+            new Timer() {
+              @Override
+              public void run() {
+                loadUpdates();
+              }
+            }.schedule(UPDATE_RETRY_DELAY_MS);
+          }
+
+          @Override
+          public void onSuccess(BenchmarkStatusUpdateDTO update) {
+            waitingForUpdates = false;
+            applyUpdate(update);
+          }
+        });
+  }
+
+  private void applyUpdate(BenchmarkStatusUpdateDTO update) {
+    if (update.isReload()) {
+      loadBenchmarks();
+      return;
+    }
+
+    ArrayList<BenchmarkOverviewEntryDTO> benchmarks = result.getBenchmarks();
+    for (BenchmarkOverviewEntryDTO changed : update.getChangedBenchmarks()) {
+      int index = indexOf(benchmarks, changed.getBenchmarkName());
+      if (index == -1) {
+        // A new module, the grid needs to be laid out again
+        loadBenchmarks();
+        return;
+      }
+      benchmarks.set(index, changed);
+    }
+
+    result.setVersion(update.getVersion());
+    result.setExecutingBenchmarks(update.isExecutingBenchmarks());
+    renderResult(result);
+  }
+
+  private static int indexOf(List<BenchmarkOverviewEntryDTO> benchmarks, String benchmarkName) {
+    if (benchmarks == null) {
+      return -1;
+    }
+    for (int i = 0; i < benchmarks.size(); i++) {
+      if (benchmarks.get(i).getBenchmarkName().equals(benchmarkName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   private void renderResult(BenchmarkOverviewResponseDTO result) {
     this.result = result;
     this.running = result.isExecutingBenchmarks();
@@ -190,6 +262,8 @@ public class BenchmarkStatusComposite extends Composite {
       renderHeader(result.getRunnerNames());
       renderEntries();
     }
+
+    loadUpdates();
   }
 
   private void removeHandlers() {
@@ -231,6 +305,8 @@ public class BenchmarkStatusComposite extends Composite {
             Label gridNumberEntry = labelProvider.get();
             if (benchmarkRun.getState() == State.DONE) {
               gridNumberEntry.setText(format.format(benchmarkRun.getRunsPerMinute()));
+            } else if (benchmarkRun.getState() == State.NOT_APPLICABLE) {
+              gridNumberEntry.setText(NOT_APPLICABLE_TEXT);
             } else {
               gridNumberEntry.setText("Error");
               addClickHandler(gridNumberEntry, row + 1, column + 1);
@@ -243,7 +319,8 @@ public class BenchmarkStatusComposite extends Composite {
           for (int column = 0; column < entry.getBenchmarkRuns().size(); column++) {
             BenchmarkRunDTO benchmarkRun = entry.getBenchmarkRuns().get(column);
             Label gridNumberEntry = labelProvider.get();
-            gridNumberEntry.setText(format.format(benchmarkRun.getRunsPerMinute()));
+            gridNumberEntry.setText(benchmarkRun.getState() == State.NOT_APPLICABLE
+                ? NOT_APPLICABLE_TEXT : format.format(benchmarkRun.getRunsPerMinute()));
             grid.setWidget(row + 1, column + 1, gridNumberEntry);
           }
           break;
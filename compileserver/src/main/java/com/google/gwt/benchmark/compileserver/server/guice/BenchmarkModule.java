@@ -16,16 +16,31 @@ package com.google.gwt.benchmark.compileserver.server.guice;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkCompiler;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkReporter;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkWorker;
+import com.google.gwt.benchmark.compileserver.server.manager.CachingBenchmarkCompiler;
 import com.google.gwt.benchmark.compileserver.server.manager.CliInteractor;
+import com.google.gwt.benchmark.compileserver.server.manager.D8Runner;
+import com.google.gwt.benchmark.compileserver.server.manager.DispatchingRunnerFactory;
+import com.google.gwt.benchmark.compileserver.server.manager.InProcessCompiler;
+import com.google.gwt.benchmark.compileserver.server.manager.JvmRunner;
 import com.google.gwt.benchmark.compileserver.server.manager.MailReporter.MailHelper;
 import com.google.gwt.benchmark.compileserver.server.manager.MailReporter.MailHelperProdImpl;
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner;
 import com.google.gwt.benchmark.compileserver.server.manager.Runner;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.Browser;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.OS;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfigs;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerRegistry;
 import com.google.gwt.benchmark.compileserver.server.manager.WebDriverRunner;
+import com.google.gwt.benchmark.compileserver.server.manager.WebDriverSessionPool;
 import com.google.gwt.benchmark.compileserver.server.runners.settings.MailSettings;
+import com.google.gwt.benchmark.compileserver.server.runners.settings.RunnerSettings;
 import com.google.gwt.benchmark.compileserver.server.runners.settings.Settings;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
+import com.google.inject.Key;
 import com.google.inject.Provider;
+import com.google.inject.Singleton;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
@@ -34,6 +49,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -51,12 +68,27 @@ public class BenchmarkModule extends AbstractModule {
 
   @Override
   protected void configure() {
-    bind(BenchmarkCompiler.class).to(CliInteractor.class);
+    Class<? extends BenchmarkCompiler> compiler =
+        settings.useInProcessCompiler() ? InProcessCompiler.class : CliInteractor.class;
+    if (settings.getCompileCacheMaxMb() > 0) {
+      bind(BenchmarkCompiler.class).to(CachingBenchmarkCompiler.class);
+      bind(BenchmarkCompiler.class).annotatedWith(Names.named("uncachedCompiler")).to(compiler);
+    } else {
+      bind(BenchmarkCompiler.class).to(compiler);
+    }
     install(new FactoryModuleBuilder().implement(Runner.class, WebDriverRunner.class).build(
-        Runner.Factory.class));
+        Key.get(Runner.Factory.class, Names.named("webDriverRunnerFactory"))));
+    install(new FactoryModuleBuilder().implement(Runner.class, D8Runner.class).build(
+        Key.get(Runner.Factory.class, Names.named("d8RunnerFactory"))));
+    install(new FactoryModuleBuilder().implement(Runner.class, JvmRunner.class).build(
+        Key.get(Runner.Factory.class, Names.named("jvmRunnerFactory"))));
+    bind(Runner.Factory.class).to(DispatchingRunnerFactory.class);
+    bind(ProcessRunner.class).in(Singleton.class);
     install(new FactoryModuleBuilder().build(BenchmarkWorker.Factory.class));
     install(new FactoryModuleBuilder().build(BenchmarkReporter.Factory.class));
     bind(BenchmarkReporter.HttpURLConnectionFactory.class).to(HttpUrlConnectionProvider.class);
+    bind(WebDriverSessionPool.WebDriverFactory.class)
+        .to(WebDriverSessionPool.RemoteWebDriverFactory.class);
     bind(MailHelper.class).to(MailHelperProdImpl.class);
     bind(String.class).annotatedWith(Names.named("randomStringProvider"))
         .toProvider(RandomStringProvider.class);
@@ -71,10 +103,48 @@ public class BenchmarkModule extends AbstractModule {
         .toInstance(new File(settings.getBenchmarkRootDirectory(), "src/main/java/"));
     bind(ExecutorService.class).annotatedWith(Names.named("managerPoolSize"))
         .toProvider(PoolProvider.class);
+    bind(ExecutorService.class).annotatedWith(Names.named("runnerPool"))
+        .toInstance(Executors.newFixedThreadPool(settings.getRunnerThreadPoolSize()));
+    bind(Integer.class).annotatedWith(Names.named("compiledModuleQueueSize"))
+        .toInstance(settings.getCompiledModuleQueueSize());
     bind(String.class).annotatedWith(Names.named("ip")).toInstance(settings.getIpAddress());
     bind(String.class).annotatedWith(Names.named("moduleTemplate"))
         .toInstance(settings.getModuleTemplate());
-    bind(URL.class).annotatedWith(Names.named("hubUrl")).toInstance(settings.getHubUrl());
+    bind(RunnerRegistry.class).toInstance(createRunnerRegistry());
+    bind(Integer.class).annotatedWith(Names.named("webDriverSessionMaxUses"))
+        .toInstance(settings.getWebDriverSessionMaxUses());
+    bind(Integer.class).annotatedWith(Names.named("webDriverSessionMaxIdleSeconds"))
+        .toInstance(settings.getWebDriverSessionMaxIdleSeconds());
+    bind(Integer.class).annotatedWith(Names.named("forksPerRunner"))
+        .toInstance(settings.getForksPerRunner());
+    bind(Boolean.class).annotatedWith(Names.named("untilStable"))
+        .toInstance(settings.runUntilStable());
+    bind(Double.class).annotatedWith(Names.named("maxRelativeErrorPercent"))
+        .toInstance(settings.getMaxRelativeErrorPercent());
+    bind(Integer.class).annotatedWith(Names.named("catchUpCommitStride"))
+        .toInstance(settings.getCatchUpCommitStride());
+    bind(Integer.class).annotatedWith(Names.named("catchUpChangePercent"))
+        .toInstance(settings.getCatchUpChangePercent());
+    bind(Integer.class).annotatedWith(Names.named("sdkWorktrees"))
+        .toInstance(settings.getSdkWorktrees());
+    bind(Integer.class).annotatedWith(Names.named("compileCacheMaxMb"))
+        .toInstance(settings.getCompileCacheMaxMb());
+    bind(Boolean.class).annotatedWith(Names.named("incrementalSdkBuild"))
+        .toInstance(settings.useIncrementalSdkBuild());
+    bind(String.class).annotatedWith(Names.named("modulePriorities"))
+        .toInstance(settings.getModulePriorities());
+    bind(String.class).annotatedWith(Names.named("d8Command"))
+        .toInstance(settings.getD8Command());
+    bind(String.class).annotatedWith(Names.named("jvmRunnerClassPath"))
+        .toInstance(settings.getJvmRunnerClassPath());
+    bind(String.class).annotatedWith(Names.named("jvmRunnerFlags"))
+        .toInstance(settings.getJvmRunnerFlags());
+    bind(Integer.class).annotatedWith(Names.named("maxRetries"))
+        .toInstance(settings.getMaxRetries());
+    bind(Integer.class).annotatedWith(Names.named("retryBackoffSeconds"))
+        .toInstance(settings.getRetryBackoffSeconds());
+    bind(Integer.class).annotatedWith(Names.named("quarantineAfterCommits"))
+        .toInstance(settings.getQuarantineAfterCommits());
     bind(File.class).annotatedWith(Names.named("scriptDirectory"))
         .toInstance(settings.getScriptsDirectory());
     bind(Boolean.class).annotatedWith(Names.named("useReporter"))
@@ -91,6 +161,27 @@ public class BenchmarkModule extends AbstractModule {
 
   }
 
+  private RunnerRegistry createRunnerRegistry() {
+    List<RunnerRegistry.Entry> entries = new ArrayList<>();
+    for (RunnerSettings runner : settings.getRunners()) {
+      RunnerConfig config = RunnerConfigs.create(Browser.fromValue(runner.getBrowser()),
+          OS.fromValue(runner.getOs()), runner.getVersion());
+      entries.add(new RunnerRegistry.Entry(config, runner.getHubUrl(), runner.getMaxSessions(),
+          runner.getTimeoutSeconds()));
+    }
+
+    // Local runners share the cores of this machine and enforce their own timeouts
+    if (!settings.getD8Command().isEmpty()) {
+      entries.add(new RunnerRegistry.Entry(RunnerConfigs.D8_LINUX, null,
+          settings.getD8MaxSessions(), 0));
+    }
+    if (!settings.getJvmRunnerClassPath().isEmpty()) {
+      entries.add(new RunnerRegistry.Entry(RunnerConfigs.JVM_LINUX, null,
+          settings.getJvmMaxSessions(), 0));
+    }
+    return new RunnerRegistry(entries);
+  }
+
   private static class PoolProvider implements Provider<ExecutorService> {
 
     private int poolSize;
@@ -30,6 +30,11 @@ public class BenchmarkCompilerException extends Exception {
     output = "";
   }
 
+  public BenchmarkCompilerException(String message, String output) {
+    super(message);
+    this.output = output;
+  }
+
   public String getOutput() {
     return output;
   }
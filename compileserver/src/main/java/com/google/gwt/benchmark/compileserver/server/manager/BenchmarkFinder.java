@@ -30,6 +30,15 @@ import javax.inject.Inject;
  */
 public class BenchmarkFinder {
 
+  /**
+   * Returns the class that runs a module on the JVM: the module {@code a.b.SomeBenchmark} runs the
+   * class {@code a.b.shared.SomeBenchmark}.
+   */
+  public static String getJvmBenchmarkClassName(String moduleName) {
+    int lastDot = moduleName.lastIndexOf('.');
+    return moduleName.substring(0, lastDot) + ".shared" + moduleName.substring(lastDot);
+  }
+
   private File benchmarkSourceLocation;
 
   @Inject
@@ -44,6 +53,16 @@ public class BenchmarkFinder {
     return traverse(benchmarkSourceLocation);
   }
 
+  /**
+   * Returns true if the module has a benchmark class that can run on the JVM. Modules that keep
+   * their benchmark in a client package, like the octane modules, or that wrap native JavaScript
+   * do not.
+   */
+  public boolean hasJvmBenchmark(String moduleName) {
+    String className = getJvmBenchmarkClassName(moduleName);
+    return new File(benchmarkSourceLocation, className.replace('.', '/') + ".java").isFile();
+  }
+
   private List<String> traverse(File file) {
     List<String> moduleNames = new ArrayList<>();
     traverse(file, file, moduleNames);
@@ -21,20 +21,27 @@ import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,6 +53,31 @@ import javax.inject.Inject;
  * <p>
  * BenchmarkManager interacts with several other objects to execute benchmarks, pull new changes
  * into the local repository, build the SDK and report results or errors.
+ *
+ * <p>
+ * Normally commits are benchmarked one after the other. If more than catchUpCommitStride commits
+ * are waiting (e.g. after an outage) the manager switches to catch-up mode and lets a
+ * {@link CommitBisector} pick the commits, so that only ranges with a change are looked at in
+ * detail. The last commit id is only stored once the whole backlog has been processed.
+ *
+ * <p>
+ * Each module's run is only modified by its own progress handler. After every change a snapshot
+ * of it is published by swapping an immutable map, so reading the latest runs never waits for
+ * workers and workers of different modules never wait for each other.
+ *
+ * <p>
+ * Results are written to a {@link RunJournal} as they come in. If the compile server is restarted
+ * while a commit is benchmarked, only the modules and runners without a result are run again.
+ *
+ * <p>
+ * The {@link ModuleScheduler} decides the order in which modules are handed to the pool, so that
+ * the modules that take the longest are not started last.
+ *
+ * <p>
+ * Failures are handled per module as decided by the {@link FailurePolicy}: failed runners are
+ * retried with a growing delay, results of the modules that did not fail are reported, and
+ * modules that keep failing are quarantined. Only if no module produces a result at all the system
+ * is stopped.
  */
 @Singleton
 public class BenchmarkManager {
@@ -61,55 +93,181 @@ public class BenchmarkManager {
 
     private BenchmarkRun benchmarkRun;
 
-    public ThreadSafeProgressHandler(BenchmarkRun benchmarkRun) {
+    private BenchmarkRun previousRun;
+
+    /**
+     * Only runs of all runners tell how long the module takes.
+     */
+    private boolean recordDuration;
+
+    private long startMs;
+
+    private final Map<RunnerConfig, Integer> failedAttempts = new HashMap<>();
+
+    private boolean compileRetried;
+
+    public ThreadSafeProgressHandler(BenchmarkRun benchmarkRun, BenchmarkRun previousRun,
+        boolean recordDuration) {
       this.benchmarkRun = benchmarkRun;
+      this.previousRun = previousRun;
+      this.recordDuration = recordDuration;
+    }
+
+    @Override
+    public void onStarted() {
+      synchronized (benchmarkRun) {
+        startMs = System.currentTimeMillis();
+      }
     }
 
     @Override
     public void onCompilationFailed(String message) {
-      synchronized (benchmarkRunsByNameLock) {
+      synchronized (benchmarkRun) {
         benchmarkRun.setFailedCompile(message);
+        publish(benchmarkRun);
+      }
+    }
+
+    @Override
+    public void onCompiled(String outputHash) {
+      synchronized (benchmarkRun) {
+        benchmarkRun.setOutputHash(outputHash);
+        publish(benchmarkRun);
       }
+      runJournal.recordOutputHash(benchmarkRun.getModuleName(), outputHash);
     }
 
     @Override
-    public void onResult(RunnerConfig config, double result) {
-      synchronized (benchmarkRunsByNameLock) {
-        benchmarkRun.addResult(config, result);
+    public void onCodeSizeMeasured(CodeSize codeSize) {
+      synchronized (benchmarkRun) {
+        benchmarkRun.setCodeSize(codeSize);
       }
+      runJournal.recordCodeSize(benchmarkRun.getModuleName(), codeSize);
+    }
+
+    @Override
+    public void onResultsReused() {
+      synchronized (benchmarkRun) {
+        recordDuration = false;
+        for (Entry<RunnerConfig, Result> entry : previousRun.getResults().entrySet()) {
+          benchmarkRun.addReusedResult(entry.getKey(), entry.getValue());
+          runJournal.recordResult(benchmarkRun.getModuleName(), entry.getKey(),
+              entry.getValue().getRunsPerSecond(), entry.getValue().getForkRunsPerSecond(), true);
+        }
+        publish(benchmarkRun);
+      }
+    }
+
+    @Override
+    public void onResult(RunnerConfig config, double result, List<Double> forkResults,
+        TimingStatistics timingStatistics) {
+      synchronized (benchmarkRun) {
+        benchmarkRun.addResult(config, result, forkResults, timingStatistics);
+        publish(benchmarkRun);
+      }
+      runJournal.recordResult(benchmarkRun.getModuleName(), config, result, forkResults, false);
     }
 
     @Override
     public void failedToRunBenchmark(RunnerConfig config, String errorMessage) {
-      synchronized (benchmarkRunsByNameLock) {
+      synchronized (benchmarkRun) {
         benchmarkRun.getResults().get(config).setErrorMessage(errorMessage);
         benchmarkRun.setFailedToRunOnServer();
+        publish(benchmarkRun);
       }
     }
 
     @Override
     public void onHostPageGenerationFailed(String errorMessage) {
-      synchronized (benchmarkRunsByNameLock) {
+      synchronized (benchmarkRun) {
         benchmarkRun.setFailedHostPageGenerationFailed(errorMessage);
+        publish(benchmarkRun);
       }
     }
 
     @Override
     public void onRunEnded() {
-      synchronized (benchmarkRunsByNameLock) {
-        if (!benchmarkRun.isFailed()) {
+      final List<RunnerConfig> retryRunners;
+      long retryDelayMs = 0;
+      synchronized (benchmarkRun) {
+        if (benchmarkRun.getState() == BenchmarkRun.State.FAILED_COMPILE) {
+          retryRunners = getRunnersToRecompile();
+          retryDelayMs = failurePolicy.getRetryDelayMs(1);
+        } else {
+          retryRunners = getRunnersToRetry();
+          for (RunnerConfig config : retryRunners) {
+            retryDelayMs = Math.max(retryDelayMs,
+                failurePolicy.getRetryDelayMs(failedAttempts.get(config)));
+          }
+        }
+        if (!retryRunners.isEmpty()) {
+          recordDuration = false;
+          benchmarkRun.resetFailedResults();
+        } else if (!benchmarkRun.isFailed()) {
           benchmarkRun.setRunEnded();
+          if (recordDuration && startMs != 0) {
+            moduleScheduler.recordDuration(benchmarkRun.getModuleName(),
+                System.currentTimeMillis() - startMs);
+          }
         }
+        publish(benchmarkRun);
       }
+
+      if (!retryRunners.isEmpty()) {
+        logger.info(String.format("Retrying %s on %s in %d ms", benchmarkRun.getModuleName(),
+            retryRunners, retryDelayMs));
+        scheduleRetry(new BenchmarkWorkerConfig(benchmarkRun.getModuleName(), retryRunners), this,
+            retryDelayMs);
+        return;
+      }
+
       if (workCount.decrementAndGet() == 0) {
         maybeReportResults(benchmarkRun.getCommitId(), benchmarkRun.getCommitMsEpoch());
       }
     }
 
+    /**
+     * Returns the runners without a result that may be retried and counts the attempt.
+     */
+    private List<RunnerConfig> getRunnersToRetry() {
+      List<RunnerConfig> retryRunners = new ArrayList<>();
+      for (Entry<RunnerConfig, Result> entry : benchmarkRun.getResults().entrySet()) {
+        if (entry.getValue().getState() == Result.State.DONE) {
+          continue;
+        }
+        Integer attempts = failedAttempts.get(entry.getKey());
+        attempts = attempts == null ? 1 : attempts + 1;
+        if (failurePolicy.shouldRetry(attempts)) {
+          failedAttempts.put(entry.getKey(), attempts);
+          retryRunners.add(entry.getKey());
+        }
+      }
+      return retryRunners;
+    }
+
+    /**
+     * Returns the runners without a result if the failed compile has not been retried yet. A
+     * compile is retried once, no matter how many runners were waiting for it.
+     */
+    private List<RunnerConfig> getRunnersToRecompile() {
+      List<RunnerConfig> retryRunners = new ArrayList<>();
+      if (compileRetried || !failurePolicy.shouldRetry(1)) {
+        return retryRunners;
+      }
+      compileRetried = true;
+      for (Entry<RunnerConfig, Result> entry : benchmarkRun.getResults().entrySet()) {
+        if (entry.getValue().getState() != Result.State.DONE) {
+          retryRunners.add(entry.getKey());
+        }
+      }
+      return retryRunners;
+    }
+
     @Override
     public void onCompileDirCreationFailed() {
-      synchronized (benchmarkRunsByNameLock) {
+      synchronized (benchmarkRun) {
         benchmarkRun.setFailedToCreateDirectory();
+        publish(benchmarkRun);
       }
     }
   }
@@ -118,18 +276,13 @@ public class BenchmarkManager {
 
   private static final long TICK_INTERVAL = 10 * 1000L;
 
-  private static Map<String, BenchmarkRun> deepClone(Map<String, BenchmarkRun> runMap) {
-    Map<String, BenchmarkRun> map = new HashMap<>();
-    for (Map.Entry<String, BenchmarkRun> entry : runMap.entrySet()) {
-      map.put(entry.getKey(), BenchmarkRun.from(entry.getValue()));
-    }
-    return map;
-  }
-
   private static Collection<String> getNonSuccessfulRuns(Map<String, BenchmarkRun> results) {
 
     List<String> list = new ArrayList<>();
     for (BenchmarkRun benchmarkRun : results.values()) {
+      if (benchmarkRun.getState() == BenchmarkRun.State.QUARANTINED) {
+        continue;
+      }
 
       if (benchmarkRun.isFailed()) {
         for (Entry<RunnerConfig, Result> result : benchmarkRun.getResults().entrySet()) {
@@ -146,6 +299,38 @@ public class BenchmarkManager {
     return list;
   }
 
+  private static boolean isSuccessful(BenchmarkRun benchmarkRun) {
+    if (benchmarkRun.isFailed()) {
+      return false;
+    }
+    for (Result result : benchmarkRun.getResults().values()) {
+      if (result.getState() != Result.State.DONE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the runs that have at least one result, reduced to the runners with a result. Runs
+   * that failed before reaching the runners have no valid results.
+   */
+  private static Map<String, BenchmarkRun> getSuccessfulResults(
+      Map<String, BenchmarkRun> results) {
+    Map<String, BenchmarkRun> successfulResults = new HashMap<>();
+    for (BenchmarkRun benchmarkRun : results.values()) {
+      if (benchmarkRun.isFailed()
+          && benchmarkRun.getState() != BenchmarkRun.State.FAILED_TO_RUN_ON_RUNNER) {
+        continue;
+      }
+      BenchmarkRun successfulRun = BenchmarkRun.withSuccessfulResults(benchmarkRun);
+      if (!successfulRun.getRunConfigs().isEmpty()) {
+        successfulResults.put(benchmarkRun.getModuleName(), successfulRun);
+      }
+    }
+    return successfulResults;
+  }
+
   private enum Command {
     EXIT, CHECK_FOR_UPDATES, RUN_BENCHMARKS, SUCCESSFUL_RUN, FAILED_RUN
   }
@@ -156,9 +341,12 @@ public class BenchmarkManager {
 
   private BenchmarkFinder benchmarkFinder;
 
-  private Object benchmarkRunsByNameLock = new Object();
-
-  private Map<String, BenchmarkRun> benchmarkRunsByName = new HashMap<>();
+  /**
+   * Snapshots of the latest runs. The map and the runs in it are never modified, changes are
+   * published by replacing the map.
+   */
+  private final AtomicReference<Map<String, BenchmarkRun>> benchmarkRunsByName =
+      new AtomicReference<>(Collections.<String, BenchmarkRun> emptyMap());
 
   private BenchmarkWorker.Factory benchmarkWorkerFactory;
 
@@ -174,7 +362,7 @@ public class BenchmarkManager {
 
   private Thread eventLoop;
 
-  private String lastSuccessfulCommitId;
+  private volatile String lastSuccessfulCommitId;
 
   private ExecutorService pool;
 
@@ -190,10 +378,42 @@ public class BenchmarkManager {
 
   private Provider<Timer> timerProvider;
 
+  /**
+   * Retries waiting for their backoff. They are cancelled when the manager stops.
+   */
+  private final Set<TimerTask> pendingRetries = new HashSet<>();
+
+  /**
+   * Guarded by pendingRetries.
+   */
+  private boolean acceptingRetries;
+
   private boolean useReporter;
 
   private AtomicInteger workCount = new AtomicInteger();
 
+  private final int catchUpCommitStride;
+
+  private final double catchUpChangeThreshold;
+
+  private CommitBisector commitBisector;
+
+  private final StatusEventLog statusEvents = new StatusEventLog();
+
+  private FutureTask<File> sdkPrebuild;
+
+  private String sdkPrebuildCommitId;
+
+  private final RunJournal runJournal;
+
+  private final ModuleScheduler moduleScheduler;
+
+  private final FailurePolicy failurePolicy;
+
+  private final RunnerRegistry runnerRegistry;
+
+  private final WebDriverSessionPool sessionPool;
+
   @Inject
   public BenchmarkManager(BenchmarkFinder collector,
       BenchmarkWorker.Factory benchmarkWorkerFactory,
@@ -202,7 +422,14 @@ public class BenchmarkManager {
       @Named("useReporter") boolean useReporter,
       CliInteractor commitReader,
       Provider<Timer> timerProvider,
-      MailReporter errorReporter) {
+      MailReporter errorReporter,
+      @Named("catchUpCommitStride") int catchUpCommitStride,
+      @Named("catchUpChangePercent") int catchUpChangePercent,
+      RunJournal runJournal,
+      ModuleScheduler moduleScheduler,
+      FailurePolicy failurePolicy,
+      RunnerRegistry runnerRegistry,
+      WebDriverSessionPool sessionPool) {
     this.benchmarkFinder = collector;
     this.benchmarkWorkerFactory = benchmarkWorkerFactory;
     this.poolProvider = poolProvider;
@@ -211,26 +438,67 @@ public class BenchmarkManager {
     this.cliInteractor = commitReader;
     this.errorReporter = errorReporter;
     this.timerProvider = timerProvider;
+    this.catchUpCommitStride = catchUpCommitStride;
+    this.catchUpChangeThreshold = catchUpChangePercent / 100.0;
+    this.runJournal = runJournal;
+    this.moduleScheduler = moduleScheduler;
+    this.failurePolicy = failurePolicy;
+    this.runnerRegistry = runnerRegistry;
+    this.sessionPool = sessionPool;
   }
 
   public String getLastCommitId() {
-    synchronized (benchmarkRunsByNameLock) {
-      return lastSuccessfulCommitId;
-    }
+    return lastSuccessfulCommitId;
   }
 
+  /**
+   * Returns a snapshot of the latest runs by module name. The snapshot must not be modified.
+   */
   public Map<String, BenchmarkRun> getLatestRun() {
-    synchronized (benchmarkRunsByNameLock) {
-      return getLatestRunSynchronized(benchmarkRunsByName);
+    return benchmarkRunsByName.get();
+  }
+
+  /**
+   * Returns a snapshot of the latest runs of the given modules. The snapshot must not be modified.
+   */
+  public Map<String, BenchmarkRun> getLatestRuns(Collection<String> moduleNames) {
+    Map<String, BenchmarkRun> snapshot = benchmarkRunsByName.get();
+    Map<String, BenchmarkRun> runsByName = new HashMap<>();
+    for (String moduleName : moduleNames) {
+      BenchmarkRun benchmarkRun = snapshot.get(moduleName);
+      if (benchmarkRun != null) {
+        runsByName.put(moduleName, benchmarkRun);
+      }
     }
+    return runsByName;
+  }
+
+  /**
+   * Returns the log of changes to the latest runs and to the state of the system.
+   */
+  public StatusEventLog getStatusEvents() {
+    return statusEvents;
   }
 
   public List<RunnerConfig> getAllRunners() {
-    return Arrays.asList(
-        RunnerConfigs.FIREFOX_LINUX,
-        RunnerConfigs.CHROME_LINUX,
-        RunnerConfigs.IE10_WIN,
-        RunnerConfigs.IE11_WIN);
+    return runnerRegistry.getRunners();
+  }
+
+  /**
+   * Returns the runners a module is run on. Modules ending in D8 are linked for command line
+   * shells, all others for browsers. Modules that have a benchmark class for the JVM are run on
+   * the JVM as well.
+   */
+  private List<RunnerConfig> getRunnersForModule(String moduleName) {
+    if (moduleName.endsWith("D8")) {
+      return Collections.singletonList(RunnerConfigs.D8_LINUX);
+    }
+    List<RunnerConfig> runners = runnerRegistry.getRunners();
+    runners.remove(RunnerConfigs.D8_LINUX);
+    if (runners.contains(RunnerConfigs.JVM_LINUX) && !benchmarkFinder.hasJvmBenchmark(moduleName)) {
+      runners.remove(RunnerConfigs.JVM_LINUX);
+    }
+    return runners;
   }
 
   public synchronized boolean isRunning() {
@@ -243,6 +511,7 @@ public class BenchmarkManager {
       throw new IllegalStateException();
     }
     commands.clear();
+    runJournal.load();
     eventLoop = new Thread(new EventLoop());
     eventLoop.start();
 
@@ -254,8 +523,12 @@ public class BenchmarkManager {
         commands.add(Command.CHECK_FOR_UPDATES);
       }
     }, TICK_INTERVAL, TICK_INTERVAL);
+    synchronized (pendingRetries) {
+      acceptingRetries = true;
+    }
 
     currentlyRunning = true;
+    statusEvents.onReset();
   }
 
   public synchronized void stop() {
@@ -263,6 +536,8 @@ public class BenchmarkManager {
       throw new IllegalStateException();
     }
 
+    // no retry may start on a pool that is being shut down
+    cancelRetries();
     commands.add(Command.EXIT);
     try {
       eventLoop.join();
@@ -273,44 +548,114 @@ public class BenchmarkManager {
 
     timer.cancel();
     commands.clear();
+    sessionPool.quitIdleSessions();
 
     currentlyRunning = false;
+    statusEvents.onReset();
   }
 
-  protected void addBenchmarkRun(BenchmarkRun br) {
-    synchronized (benchmarkRunsByNameLock) {
-      addBenchmarkRunSynchronized(benchmarkRunsByName, br);
+  private void scheduleRetry(final BenchmarkWorkerConfig config,
+      final ProgressHandler progressHandler, long delayMs) {
+    synchronized (pendingRetries) {
+      if (!acceptingRetries) {
+        logger.info(String.format("Not retrying %s, stopping", config.getModuleName()));
+        return;
+      }
+      TimerTask retry = new TimerTask() {
+        @Override
+        public void run() {
+          synchronized (pendingRetries) {
+            // cancelled while it was about to run
+            if (!pendingRetries.remove(this)) {
+              return;
+            }
+            pool.execute(benchmarkWorkerFactory.create(config, progressHandler));
+          }
+        }
+      };
+      pendingRetries.add(retry);
+      timer.schedule(retry, delayMs);
+    }
+  }
+
+  private void cancelRetries() {
+    synchronized (pendingRetries) {
+      acceptingRetries = false;
+      for (TimerTask retry : pendingRetries) {
+        retry.cancel();
+      }
+      pendingRetries.clear();
     }
   }
 
+  /**
+   * Publishes a snapshot of the given run. Callers need to make sure that runs of the same module
+   * are not published concurrently.
+   */
+  // Visible for testing
+  void publish(BenchmarkRun br) {
+    BenchmarkRun snapshot = BenchmarkRun.from(br);
+    while (true) {
+      Map<String, BenchmarkRun> current = benchmarkRunsByName.get();
+      Map<String, BenchmarkRun> next = new HashMap<>(current);
+      next.put(snapshot.getModuleName(), snapshot);
+      if (benchmarkRunsByName.compareAndSet(current, Collections.unmodifiableMap(next))) {
+        break;
+      }
+    }
+    statusEvents.onModuleChanged(snapshot.getModuleName());
+  }
+
   private BenchmarkRun createBenchmarkRunForModule(String moduleName, String commitId,
       long currentCommitDateMsEpoch) {
     BenchmarkRun br = new BenchmarkRun(moduleName, commitId, currentCommitDateMsEpoch);
-    for (RunnerConfig config : getAllRunners()) {
+    for (RunnerConfig config : getRunnersForModule(moduleName)) {
       br.addRunner(config);
     }
     return br;
   }
 
-  private void maybeReportResults(String commitId, long commitMsEpoch) {
-    Map<String, BenchmarkRun> results;
-    synchronized (benchmarkRunsByNameLock) {
-      results = deepClone(benchmarkRunsByName);
+  /**
+   * Returns a copy of the last run of the same module if its results can be carried forward to the
+   * given run in case the compiled output did not change, otherwise null.
+   */
+  private BenchmarkRun getReusableRun(BenchmarkRun br) {
+    BenchmarkRun previousRun = benchmarkRunsByName.get().get(br.getModuleName());
+    if (previousRun == null || previousRun.getState() != BenchmarkRun.State.DONE
+        || previousRun.getOutputHash() == null
+        || !previousRun.getRunConfigs().equals(br.getRunConfigs())) {
+      return null;
     }
+    return previousRun;
+  }
+
+  private void maybeReportResults(String commitId, long commitMsEpoch) {
+    Map<String, BenchmarkRun> results = benchmarkRunsByName.get();
 
     Collection<String> runs = getNonSuccessfulRuns(results);
+    Map<String, BenchmarkRun> successfulResults = getSuccessfulResults(results);
     if (!runs.isEmpty()) {
       StringBuilder builder = new StringBuilder();
       builder.append("Failed Benchmarks: \n");
       for (String errorModule : runs) {
         builder.append(String.format("%s \n", errorModule));
       }
-      logger.severe(
-          String.format("Benchmarks failed executing - stopping system\n%s", builder.toString()));
-      reportError("Benchmarks failed executing - stopping system");
-      stop();
-      return;
+
+      if (successfulResults.isEmpty()) {
+        // Nothing worked, this is not the fault of single modules
+        logger.severe(String.format("Benchmarks failed executing - stopping system\n%s",
+            builder.toString()));
+        reportError("Benchmarks failed executing - stopping system");
+        stop();
+        return;
+      }
+
+      logger.warning(String.format("Benchmarks failed executing - reporting partial results\n%s",
+          builder.toString()));
+      reportError("Benchmarks failed executing - reporting partial results\n"
+          + builder.toString());
     }
+    updateQuarantine(results);
 
     if (!useReporter) {
       commands.add(Command.SUCCESSFUL_RUN);
@@ -330,7 +675,22 @@ public class BenchmarkManager {
         commands.add(Command.SUCCESSFUL_RUN);
       }
     };
-    new Thread(reporterFactory.create(results, commitId, commitMsEpoch, p)).start();
+    new Thread(reporterFactory.create(successfulResults, commitId, commitMsEpoch, p)).start();
+  }
+
+  private void updateQuarantine(Map<String, BenchmarkRun> results) {
+    for (BenchmarkRun benchmarkRun : results.values()) {
+      if (benchmarkRun.getState() == BenchmarkRun.State.QUARANTINED) {
+        continue;
+      }
+      if (isSuccessful(benchmarkRun)) {
+        failurePolicy.onModuleSucceeded(benchmarkRun.getModuleName());
+      } else if (failurePolicy.onModuleFailed(benchmarkRun.getModuleName())) {
+        logger.warning(String.format("Quarantined %s", benchmarkRun.getModuleName()));
+        reportError(String.format("%s keeps failing and has been quarantined",
+            benchmarkRun.getModuleName()));
+      }
+    }
   }
 
   private Command getNextCommand() {
@@ -380,8 +740,7 @@ public class BenchmarkManager {
 
           boolean hasUpdates = false;
           try {
-            cliInteractor.maybeCheckoutNextCommit(getLastCommitId());
-            String commitId = cliInteractor.getCurrentCommitId();
+            String commitId = checkoutNextCommit();
             hasUpdates = !currentCommitId.equals(commitId);
             currentCommitId = commitId;
 
@@ -399,10 +758,11 @@ public class BenchmarkManager {
               currentCommitDateMsEpoch = cliInteractor.getDateForCommitInMsEpoch(currentCommitId);
 
               logger.info("Building SDK");
-              cliInteractor.buildSDK();
+              buildSDK(currentCommitId);
               logger.info("Starting benchmark runners");
               startBenchmarkingAllForCommit(currentCommitId, currentCommitDateMsEpoch);
               state = State.RUNNING_BENCHMARKS;
+              maybePrebuildNextSDK();
             }
 
           } catch (BenchmarkManagerException e) {
@@ -434,6 +794,12 @@ public class BenchmarkManager {
           break;
 
         case SUCCESSFUL_RUN:
+          if (commitBisector != null) {
+            // The backlog is stored as a whole once the bisector is done
+            commitBisector.onResults(currentCommitId, getDoneResults(getLatestRun()));
+            state = State.IDLE;
+            break;
+          }
           try {
             cliInteractor.storeCommitId(currentCommitId);
             setLastCommit(currentCommitId);
@@ -456,26 +822,149 @@ public class BenchmarkManager {
     }
   }
 
+  /**
+   * Checks out the next commit that should be benchmarked and returns its id. If there is no new
+   * commit the current commit stays checked out.
+   */
+  private String checkoutNextCommit() throws BenchmarkManagerException {
+    if (commitBisector == null && catchUpCommitStride > 0) {
+      List<String> backlog = cliInteractor.getCommitsSince(getLastCommitId());
+      if (backlog.size() > catchUpCommitStride) {
+        logger.info(String.format("%d commits behind, catching up", backlog.size()));
+        commitBisector = new CommitBisector(backlog, catchUpCommitStride, catchUpChangeThreshold);
+      }
+    }
+
+    if (commitBisector != null) {
+      String commitId = commitBisector.nextCommit();
+      if (commitId != null) {
+        cliInteractor.checkout(commitId);
+        return commitId;
+      }
+      logger.info("Caught up to " + commitBisector.getLastCommit());
+      cliInteractor.storeCommitId(commitBisector.getLastCommit());
+      setLastCommit(commitBisector.getLastCommit());
+      currentCommitId = commitBisector.getLastCommit();
+      commitBisector = null;
+    }
+
+    cliInteractor.maybeCheckoutNextCommit(getLastCommitId());
+    return cliInteractor.getCurrentCommitId();
+  }
+
+  /**
+   * Builds the SDK for the checked out commit. If SDKs are built in worktrees a build of the commit
+   * that was started while the last commit was benchmarked is used.
+   */
+  private void buildSDK(String commitId) throws BenchmarkManagerException {
+    if (!cliInteractor.usesWorktrees()) {
+      cliInteractor.buildSDK(commitId);
+      return;
+    }
+
+    File worktree = null;
+    if (sdkPrebuild != null) {
+      File prebuilt = awaitSDKPrebuild();
+      if (commitId.equals(sdkPrebuildCommitId)) {
+        worktree = prebuilt;
+      } else if (prebuilt != null) {
+        logger.info(String.format("Discarding SDK prebuilt for %s", sdkPrebuildCommitId));
+        cliInteractor.discardSDK(prebuilt);
+      }
+      sdkPrebuild = null;
+      sdkPrebuildCommitId = null;
+    }
+
+    if (worktree == null) {
+      worktree = cliInteractor.buildSDKInWorktree(commitId);
+    }
+    cliInteractor.activateSDK(worktree);
+  }
+
+  private File awaitSDKPrebuild() {
+    try {
+      return sdkPrebuild.get();
+    } catch (ExecutionException e) {
+      logger.log(Level.WARNING, "Can not prebuild SDK", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   * Starts building the SDK of the commit that will most likely be benchmarked next, so that it is
+   * ready once the current benchmarks are done.
+   */
+  private void maybePrebuildNextSDK() {
+    if (!cliInteractor.usesWorktrees()) {
+      return;
+    }
+
+    final String commitId;
+    try {
+      if (commitBisector != null) {
+        commitId = commitBisector.peekNextCommit();
+      } else {
+        List<String> commits = cliInteractor.getCommitsSince(currentCommitId);
+        commitId = commits.isEmpty() ? null : commits.get(0);
+      }
+    } catch (BenchmarkManagerException e) {
+      logger.log(Level.WARNING, "Can not determine next commit to prebuild", e);
+      return;
+    }
+    if (commitId == null) {
+      return;
+    }
+
+    logger.info(String.format("Prebuilding SDK for %s", commitId));
+    sdkPrebuildCommitId = commitId;
+    sdkPrebuild = new FutureTask<>(new Callable<File>() {
+      @Override
+      public File call() throws BenchmarkManagerException {
+        return cliInteractor.buildSDKInWorktree(commitId);
+      }
+    });
+    new Thread(sdkPrebuild).start();
+  }
+
+  private static Map<String, Result> getDoneResults(Map<String, BenchmarkRun> runsByName) {
+    Map<String, Result> doneResults = new HashMap<>();
+    for (BenchmarkRun benchmarkRun : runsByName.values()) {
+      for (Entry<RunnerConfig, Result> result : benchmarkRun.getResults().entrySet()) {
+        if (result.getValue().getState() == Result.State.DONE) {
+          doneResults.put(benchmarkRun.getModuleName() + " " + result.getKey(),
+              result.getValue());
+        }
+      }
+    }
+    return doneResults;
+  }
+
   private void reportError(String message) {
     errorReporter.sendEmail(message);
   }
 
   private void setLastCommit(String commitId) {
-    synchronized (benchmarkRunsByNameLock) {
-      lastSuccessfulCommitId = commitId;
-    }
+    lastSuccessfulCommitId = commitId;
   }
 
   private void startBenchmarkingAllForCommit(String commitId, long currentCommitDateMsEpoch) {
 
     pool = poolProvider.get();
 
-    List<String> benchmarkModuleNames = benchmarkFinder.get();
+    boolean resumed = runJournal.startCommit(commitId);
+    if (resumed) {
+      logger.info(String.format("Resuming interrupted run of %s", commitId));
+    }
+
+    List<String> benchmarkModuleNames = moduleScheduler.order(benchmarkFinder.get());
+    int scheduledWorkers = 0;
 
     for (String benchmarkModuleName : benchmarkModuleNames) {
 
-      // we are currently ignoring D8 benchmarks until we have a V8 runner.
-      if (benchmarkModuleName.endsWith("D8")) {
+      if (benchmarkModuleName.endsWith("D8")
+          && !runnerRegistry.contains(RunnerConfigs.D8_LINUX)) {
         continue;
       }
 
@@ -487,26 +976,70 @@ public class BenchmarkManager {
 
       BenchmarkRun br = createBenchmarkRunForModule(benchmarkModuleName, commitId,
           currentCommitDateMsEpoch);
-      addBenchmarkRun(br);
+      if (failurePolicy.isQuarantined(benchmarkModuleName)) {
+        br.setQuarantined("Quarantined after failing for several commits in a row");
+        publish(br);
+        continue;
+      }
+      List<RunnerConfig> unfinishedRunners = addRecordedResults(br);
+      if (unfinishedRunners.isEmpty()) {
+        br.setRunEnded();
+        publish(br);
+        continue;
+      }
+
+      // Results can only be reused as a whole
+      BenchmarkRun previousRun = unfinishedRunners.size() == br.getRunConfigs().size()
+          ? getReusableRun(br) : null;
+      publish(br);
 
-      ProgressHandler progressHandler = new ThreadSafeProgressHandler(br);
+      ProgressHandler progressHandler = new ThreadSafeProgressHandler(br, previousRun,
+          unfinishedRunners.size() == br.getRunConfigs().size());
 
-      BenchmarkWorker worker =
-          benchmarkWorkerFactory.create(BenchmarkWorkerConfig.from(br), progressHandler);
+      BenchmarkWorker worker = benchmarkWorkerFactory.create(
+          new BenchmarkWorkerConfig(benchmarkModuleName, unfinishedRunners,
+              previousRun != null ? previousRun.getOutputHash() : null),
+          progressHandler);
       workCount.incrementAndGet();
+      scheduledWorkers++;
 
       pool.execute(worker);
     }
-  }
 
-  // Visible for testings
-  void addBenchmarkRunSynchronized(Map<String, BenchmarkRun> runsByName, BenchmarkRun br) {
-    runsByName.put(br.getModuleName(), br);
+    if (scheduledWorkers == 0) {
+      // Everything had been journaled before a restart or no module needs to run, no worker will
+      // finish the commit
+      maybeReportResults(commitId, currentCommitDateMsEpoch);
+    }
   }
 
-  // Visible for testings
-  Map<String, BenchmarkRun> getLatestRunSynchronized(Map<String, BenchmarkRun> runsByName) {
-    return deepClone(runsByName);
+  /**
+   * Adds the results the journal holds for the module to the run and returns the runners that
+   * still need to be run.
+   */
+  private List<RunnerConfig> addRecordedResults(BenchmarkRun br) {
+    Map<String, RunJournal.RecordedResult> recordedResults =
+        runJournal.getRecordedResults(br.getModuleName());
+    List<RunnerConfig> unfinishedRunners = new ArrayList<>();
+    for (RunnerConfig config : br.getRunConfigs()) {
+      RunJournal.RecordedResult recordedResult = recordedResults.get(config.toString());
+      if (recordedResult == null) {
+        unfinishedRunners.add(config);
+      } else if (recordedResult.isReused()) {
+        Result reusedResult = new Result();
+        reusedResult.setRunsPerSecond(recordedResult.getRunsPerSecond());
+        reusedResult.setForkRunsPerSecond(recordedResult.getForkRunsPerSecond());
+        br.addReusedResult(config, reusedResult);
+      } else {
+        br.addResult(config, recordedResult.getRunsPerSecond(),
+            recordedResult.getForkRunsPerSecond(), null);
+      }
+    }
+    if (!recordedResults.isEmpty()) {
+      br.setOutputHash(runJournal.getOutputHash(br.getModuleName()));
+      br.setCodeSize(runJournal.getCodeSize(br.getModuleName()));
+    }
+    return unfinishedRunners;
   }
 
   // Visible for testings
@@ -15,7 +15,11 @@ package com.google.gwt.benchmark.compileserver.server.manager;
 
 import com.google.gwt.benchmark.common.shared.json.BenchmarkResultJson;
 import com.google.gwt.benchmark.common.shared.json.BenchmarkRunJson;
+import com.google.gwt.benchmark.common.shared.json.CodeSizeJson;
 import com.google.gwt.benchmark.common.shared.json.JsonFactory;
+import com.google.gwt.benchmark.common.shared.json.PermutationSizeJson;
+import com.google.gwt.benchmark.common.shared.json.TimingSamples;
+import com.google.gwt.benchmark.common.shared.json.TimingStatisticsJson;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun.Result;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
@@ -122,6 +126,7 @@ public class BenchmarkReporter implements Runnable {
     runJSON.setCommitId(commitId);
     runJSON.setCommitTimeMsEpoch(commitMsEpoch);
     Map<String, List<BenchmarkResultJson>> results = new LinkedHashMap<>();
+    Map<String, CodeSizeJson> codeSizes = new LinkedHashMap<>();
 
     for (Entry<String, BenchmarkRun> br : this.results.entrySet()) {
 
@@ -129,6 +134,10 @@ public class BenchmarkReporter implements Runnable {
       List<BenchmarkResultJson> list = new ArrayList<>();
       results.put(moduleName, list);
 
+      if (br.getValue().getCodeSize() != null) {
+        codeSizes.put(moduleName, createCodeSizeJson(factory, br.getValue().getCodeSize()));
+      }
+
       for (Entry<RunnerConfig, Result> entry : br.getValue().getResults().entrySet()) {
         Result result = entry.getValue();
         RunnerConfig runnerConfig = entry.getKey();
@@ -136,14 +145,54 @@ public class BenchmarkReporter implements Runnable {
         resultJSON.setBenchmarkName(moduleName);
         resultJSON.setRunnerId(runnerConfig.toString());
         resultJSON.setRunsPerSecond(result.getRunsPerSecond());
+        resultJSON.setReused(result.isReused());
+        resultJSON.setForkRunsPerSecond(result.getForkRunsPerSecond());
+        if (result.getTimingStatistics() != null) {
+          resultJSON.setTimingStatistics(
+              createTimingStatisticsJson(factory, result.getTimingStatistics()));
+        }
         list.add(resultJSON);
       }
 
     }
     runJSON.setResultByBenchmarkName(results);
+    runJSON.setCodeSizeByBenchmarkName(codeSizes);
     return runJSON;
   }
 
+  private CodeSizeJson createCodeSizeJson(JsonFactory.Factory factory, CodeSize codeSize) {
+    List<PermutationSizeJson> permutations = new ArrayList<>();
+    for (CodeSize.PermutationSize permutation : codeSize.getPermutations()) {
+      PermutationSizeJson permutationJson = factory.permutationSize().as();
+      permutationJson.setFileName(permutation.getFileName());
+      permutationJson.setBytes(permutation.getBytes());
+      permutationJson.setGzipBytes(permutation.getGzipBytes());
+      permutations.add(permutationJson);
+    }
+
+    CodeSizeJson json = factory.codeSize().as();
+    json.setTotalBytes(codeSize.getTotalBytes());
+    json.setTotalGzipBytes(codeSize.getTotalGzipBytes());
+    json.setPermutations(permutations);
+    return json;
+  }
+
+  private TimingStatisticsJson createTimingStatisticsJson(JsonFactory.Factory factory,
+      TimingStatistics timingStatistics) {
+    TimingStatisticsJson json = factory.timingStatistics().as();
+    json.setSamplesMs(TimingSamples.limit(timingStatistics.getSamplesMs()));
+    json.setMeanMs(timingStatistics.getMeanMs());
+    json.setMedianMs(timingStatistics.getMedianMs());
+    json.setP90Ms(timingStatistics.getP90Ms());
+    json.setP99Ms(timingStatistics.getP99Ms());
+    json.setStdDevMs(timingStatistics.getStdDevMs());
+    json.setMinMs(timingStatistics.getMinMs());
+    json.setMaxMs(timingStatistics.getMaxMs());
+    json.setWarmupRuns(timingStatistics.getWarmupRuns());
+    json.setRelativeMarginOfError(timingStatistics.getRelativeMarginOfError());
+    return json;
+  }
+
   private boolean postResultToServer(String json) {
     OutputStream out = null;
     try {
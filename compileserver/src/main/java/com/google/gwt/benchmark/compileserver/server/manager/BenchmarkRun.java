@@ -26,12 +26,18 @@ public class BenchmarkRun {
       result.runsPerSecond = other.runsPerSecond;
       result.state = other.state;
       result.errorMessage = other.errorMessage;
+      result.reused = other.reused;
+      result.timingStatistics = other.timingStatistics;
+      result.forkRunsPerSecond = other.forkRunsPerSecond;
       return result;
     }
 
     private State state;
     private double runsPerSecond;
     private String errorMessage;
+    private boolean reused;
+    private TimingStatistics timingStatistics;
+    private List<Double> forkRunsPerSecond = Collections.emptyList();
 
     public enum State {
       NOT_RUN, FAILED_RUN, DONE
@@ -46,10 +52,41 @@ public class BenchmarkRun {
       this.runsPerSecond = runsPerSecond;
     }
 
+    public void setTimingStatistics(TimingStatistics timingStatistics) {
+      this.timingStatistics = timingStatistics;
+    }
+
+    /**
+     * Returns the times of individual runs or null if the runner did not report them.
+     */
+    public TimingStatistics getTimingStatistics() {
+      return timingStatistics;
+    }
+
     public double getRunsPerSecond() {
       return runsPerSecond;
     }
 
+    public void setForkRunsPerSecond(List<Double> forkRunsPerSecond) {
+      this.forkRunsPerSecond = Collections.unmodifiableList(new ArrayList<>(forkRunsPerSecond));
+    }
+
+    /**
+     * Returns the results of the individual forks that {@link #getRunsPerSecond()} was aggregated
+     * from.
+     */
+    public List<Double> getForkRunsPerSecond() {
+      return forkRunsPerSecond;
+    }
+
+    /**
+     * Returns true if this result has been carried forward from an earlier commit that produced the
+     * same compiled output, instead of being measured again.
+     */
+    public boolean isReused() {
+      return reused;
+    }
+
     public State getState() {
       return state;
     }
@@ -65,7 +102,7 @@ public class BenchmarkRun {
 
   public enum State {
     NOT_RUN, COMPILING, FAILED_COMPILE, FAILED_TO_GENERATE_HOST_PAGE, FAILED_TO_RUN_ON_RUNNER,
-    DONE, FAILED_TO_CREATE_DIR,
+    DONE, FAILED_TO_CREATE_DIR, QUARANTINED,
   }
 
   public static BenchmarkRun from(BenchmarkRun other) {
@@ -74,9 +111,28 @@ public class BenchmarkRun {
     clone.results = deepClone(other.results);
     clone.state = other.state;
     clone.errorMessage = other.errorMessage;
+    clone.outputHash = other.outputHash;
+    clone.codeSize = other.codeSize;
     return clone;
   }
 
+  /**
+   * Returns a copy of the given run that only contains the runners that have a result.
+   */
+  public static BenchmarkRun withSuccessfulResults(BenchmarkRun other) {
+    BenchmarkRun copy = from(other);
+    copy.runners = new ArrayList<>();
+    copy.results = new LinkedHashMap<>();
+    for (RunnerConfig config : other.runners) {
+      Result result = other.results.get(config);
+      if (result.getState() == Result.State.DONE) {
+        copy.runners.add(config);
+        copy.results.put(config, Result.copyOf(result));
+      }
+    }
+    return copy;
+  }
+
   private static Map<RunnerConfig, Result> deepClone(Map<RunnerConfig, Result> runMap) {
     Map<RunnerConfig, Result> map = new HashMap<>();
     for (Map.Entry<RunnerConfig, Result> entry : runMap.entrySet()) {
@@ -99,6 +155,10 @@ public class BenchmarkRun {
 
   private final long commitMsEpoch;
 
+  private String outputHash;
+
+  private CodeSize codeSize;
+
   public BenchmarkRun(String moduleName, String commitId, long commitMsEpoch) {
     this.moduleName = moduleName;
     this.commitId = commitId;
@@ -111,7 +171,8 @@ public class BenchmarkRun {
     results.put(config, new Result());
   }
 
-  public void addResult(RunnerConfig config, double runsPerSecond) {
+  public void addResult(RunnerConfig config, double runsPerSecond,
+      List<Double> forkRunsPerSecond, TimingStatistics timingStatistics) {
     if (!runners.contains(config)) {
       throw new IllegalStateException();
     }
@@ -121,6 +182,17 @@ public class BenchmarkRun {
 
     Result result = results.get(config);
     result.setRunsPerSecond(runsPerSecond);
+    result.setForkRunsPerSecond(forkRunsPerSecond);
+    result.setTimingStatistics(timingStatistics);
+  }
+
+  /**
+   * Carries a result of an earlier run of the same compiled output forward into this run.
+   */
+  public void addReusedResult(RunnerConfig config, Result previousResult) {
+    addResult(config, previousResult.getRunsPerSecond(), previousResult.getForkRunsPerSecond(),
+        previousResult.getTimingStatistics());
+    results.get(config).reused = true;
   }
 
   public long getCommitMsEpoch() {
@@ -139,6 +211,20 @@ public class BenchmarkRun {
     return moduleName;
   }
 
+  /**
+   * Returns the hash of the compiled permutations of this run or null if it is not known.
+   */
+  public String getOutputHash() {
+    return outputHash;
+  }
+
+  /**
+   * Returns the size of the compiled permutations of this run or null if it is not known.
+   */
+  public CodeSize getCodeSize() {
+    return codeSize;
+  }
+
   public Map<RunnerConfig, Result> getResults() {
     return results;
   }
@@ -173,7 +259,33 @@ public class BenchmarkRun {
     state = State.FAILED_TO_RUN_ON_RUNNER;
   }
 
+  public void setCodeSize(CodeSize codeSize) {
+    this.codeSize = codeSize;
+  }
+
+  public void setOutputHash(String outputHash) {
+    this.outputHash = outputHash;
+  }
+
+  public void setQuarantined(String message) {
+    this.errorMessage = message;
+    state = State.QUARANTINED;
+  }
+
   public void setRunEnded() {
     state = State.DONE;
   }
+
+  /**
+   * Prepares the run for running the runners without a result again.
+   */
+  public void resetFailedResults() {
+    errorMessage = null;
+    state = State.NOT_RUN;
+    for (Map.Entry<RunnerConfig, Result> entry : results.entrySet()) {
+      if (entry.getValue().getState() != Result.State.DONE) {
+        entry.setValue(new Result());
+      }
+    }
+  }
 }
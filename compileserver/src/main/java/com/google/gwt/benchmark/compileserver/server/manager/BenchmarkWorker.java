@@ -24,13 +24,26 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
 /**
  * BenchmarkWorker compiles a single module, writes the host page and asks a Runner to execute the
  * benchmark handing back results.
+ * <p>
+ * A worker only occupies its thread while compiling. The compiled module is handed to the
+ * {@link RunnerDispatcher} which executes the runners of the module on the runner pool. Results
+ * are reported once all runners finished. If the compiled permutations are identical to the ones
+ * of the previous commit no runners are launched and the previous results are reused.
+ * The size of the compiled permutations is reported for every compile, reused or not.
+ * <p>
+ * Every runner config is run in several forks (fresh page loads) and the fork results are combined
+ * by {@link ForkAggregator}, so that a single bad JIT decision or GC pause does not decide the
+ * result. The forks of a runner config run one after another, so they are independent repetitions.
  */
 public class BenchmarkWorker implements Runnable {
 
@@ -40,9 +53,32 @@ public class BenchmarkWorker implements Runnable {
   }
 
   public interface ProgressHandler {
+    /**
+     * Called when the worker starts working on the module, which might be long after it has been
+     * submitted to a pool.
+     */
+    void onStarted();
+
     void onCompilationFailed(String message);
 
-    void onResult(RunnerConfig config, double result);
+    void onCompiled(String outputHash);
+
+    /**
+     * Called after compiling with the size of the compiled permutations. Not called if the size
+     * could not be measured.
+     */
+    void onCodeSizeMeasured(CodeSize codeSize);
+
+    void onResultsReused();
+
+    /**
+     * Called with the aggregated result of all forks of a runner config.
+     *
+     * @param forkResults the results of the individual forks in the order they were run
+     * @param timingStatistics timing of the fork that is closest to the aggregated result or null
+     */
+    void onResult(RunnerConfig config, double result, List<Double> forkResults,
+        TimingStatistics timingStatistics);
 
     void failedToRunBenchmark(RunnerConfig config, String errorMessage);
 
@@ -53,6 +89,8 @@ public class BenchmarkWorker implements Runnable {
     void onCompileDirCreationFailed();
   }
 
+  private static final Logger logger = Logger.getLogger(BenchmarkWorker.class.getName());
+
   private final BenchmarkCompiler compiler;
   private final Runner.Factory runnerProvider;
   private final BenchmarkWorkerConfig benchmarkData;
@@ -62,6 +100,9 @@ public class BenchmarkWorker implements Runnable {
   private File compilerOutputDir;
   private int port;
   private Provider<String> randomStringProvider;
+  private final RunnerDispatcher runnerDispatcher;
+  private final int forksPerRunner;
+  private final ExecutionMode executionMode;
 
   @Inject
   public BenchmarkWorker(BenchmarkCompiler compiler,
@@ -72,7 +113,10 @@ public class BenchmarkWorker implements Runnable {
       @Named("ip") String ip,
       @Named("port") int port,
       @Named("compilerOutputDir") File compilerOutputDir,
-      @Named("randomStringProvider") Provider<String> randomStringProvider) {
+      @Named("randomStringProvider") Provider<String> randomStringProvider,
+      RunnerDispatcher runnerDispatcher,
+      @Named("forksPerRunner") int forksPerRunner,
+      ExecutionMode executionMode) {
     this.compiler = compiler;
     this.runnerProvider = runnerProvider;
     this.moduleTemplate = moduleTemplate;
@@ -82,10 +126,15 @@ public class BenchmarkWorker implements Runnable {
     this.port = port;
     this.compilerOutputDir = compilerOutputDir;
     this.randomStringProvider = randomStringProvider;
+    this.runnerDispatcher = runnerDispatcher;
+    this.forksPerRunner = Math.max(1, forksPerRunner);
+    this.executionMode = executionMode;
   }
 
   @Override
   public void run() {
+    progressHandler.onStarted();
+
     // create working dir
     String randomDirName = randomStringProvider.get();
     File outputDir = new File(compilerOutputDir, randomDirName);
@@ -104,6 +153,21 @@ public class BenchmarkWorker implements Runnable {
       return;
     }
 
+    List<File> permutations = listPermutations(outputDir, benchmarkData.getModuleName());
+    CodeSize codeSize = measureCodeSize(permutations, benchmarkData.getModuleName());
+    if (codeSize != null) {
+      progressHandler.onCodeSizeMeasured(codeSize);
+    }
+    String outputHash = hashCompiledOutput(permutations, benchmarkData.getModuleName());
+    progressHandler.onCompiled(outputHash);
+    if (outputHash != null && outputHash.equals(benchmarkData.getPreviousOutputHash())) {
+      // Same JavaScript as the last commit, running it again would only measure noise
+      cleanupDirectory(outputDir);
+      progressHandler.onResultsReused();
+      progressHandler.onRunEnded();
+      return;
+    }
+
     try {
       writeHostPage(outputDir, benchmarkData.getModuleName());
     } catch (IOException e) {
@@ -113,29 +177,111 @@ public class BenchmarkWorker implements Runnable {
       return;
     }
 
-    List<Runner> runners = new ArrayList<>();
-
+    String url = getUrl(this.port, randomDirName, benchmarkData.getModuleName());
+    final List<Runner> runners = new ArrayList<>();
     for (RunnerConfig config : benchmarkData.getRunners()) {
-      String url = getUrl(this.port, randomDirName, benchmarkData.getModuleName());
-      Runner r = runnerProvider.create(config, url);
-      runners.add(r);
-      // TODO currently executing runners in sequence, switch to parallel execution.
-      r.run();
-    }
-    for (Runner runner : runners) {
-      if (runner.isFailed()) {
-        progressHandler.failedToRunBenchmark(runner.getConfig(), runner.getErrorMessage());
-      } else {
-        progressHandler.onResult(runner.getConfig(), runner.getResult());
+      for (int fork = 0; fork < forksPerRunner; fork++) {
+        runners.add(runnerProvider.create(config, url));
+      }
+    }
+
+    final File compiledModuleDir = outputDir;
+    try {
+      runnerDispatcher.dispatch(runners, new RunnerDispatcher.Callback() {
+        @Override
+        public void onRunnersDone(List<String> unexpectedErrors) {
+          reportResults(runners, unexpectedErrors);
+          cleanupDirectory(compiledModuleDir);
+          progressHandler.onRunEnded();
+        }
+      });
+    } catch (InterruptedException e) {
+      // Our framework does not make use of thread.interrupt() so this must mean the JVM is trying
+      // to gracefully shut down in response to an external signal. Let it happen.
+      for (RunnerConfig config : benchmarkData.getRunners()) {
+        progressHandler.failedToRunBenchmark(config, "Interrupted while waiting for runners");
+      }
+      cleanupDirectory(outputDir);
+      progressHandler.onRunEnded();
+    }
+  }
+
+  private void reportResults(List<Runner> runners, List<String> unexpectedErrors) {
+    // runners are grouped by config, forksPerRunner consecutive runners for each config
+    for (int start = 0; start < runners.size(); start += forksPerRunner) {
+      reportForks(runners.subList(start, start + forksPerRunner),
+          unexpectedErrors.subList(start, start + forksPerRunner));
+    }
+  }
+
+  private void reportForks(List<Runner> forks, List<String> unexpectedErrors) {
+    RunnerConfig config = forks.get(0).getConfig();
+    List<Double> forkResults = new ArrayList<>();
+    for (int i = 0; i < forks.size(); i++) {
+      Runner fork = forks.get(i);
+      String errorMessage = unexpectedErrors.get(i);
+      if (errorMessage != null) {
+        progressHandler.failedToRunBenchmark(config, errorMessage);
+        return;
+      }
+      if (fork.isFailed()) {
+        progressHandler.failedToRunBenchmark(config, fork.getErrorMessage());
+        return;
+      }
+      forkResults.add(fork.getResult());
+    }
+
+    Runner representative = forks.get(ForkAggregator.indexOfRepresentative(forkResults));
+    progressHandler.onResult(config, ForkAggregator.aggregate(forkResults), forkResults,
+        representative.getTimingStatistics());
+  }
+
+  private List<File> listPermutations(File outputDir, String moduleName) {
+    File[] files = new File(outputDir, moduleName).listFiles();
+    if (files == null) {
+      return Collections.emptyList();
+    }
+
+    List<File> permutations = new ArrayList<>();
+    for (File file : files) {
+      if (file.getName().endsWith(".cache.js") || file.getName().endsWith(".cache.html")) {
+        permutations.add(file);
       }
     }
-    cleanupDirectory(outputDir);
-    progressHandler.onRunEnded();
+    Collections.sort(permutations);
+    return permutations;
+  }
+
+  private CodeSize measureCodeSize(List<File> permutations, String moduleName) {
+    if (permutations.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return CodeSize.measure(permutations);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not measure compiled output of " + moduleName, e);
+      return null;
+    }
+  }
+
+  private String hashCompiledOutput(List<File> permutations, String moduleName) {
+    if (permutations.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return FileHashes.sha1(permutations);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not hash compiled output of " + moduleName, e);
+      return null;
+    }
   }
 
   private void writeHostPage(File outputDir, String moduleName) throws IOException {
     String tpl =
-        moduleTemplate.replace("{module_nocache}", moduleName + "/" + moduleName + ".nocache.js");
+        moduleTemplate.replace("{module_nocache}", moduleName + "/" + moduleName + ".nocache.js")
+            .replace("{benchmark_config}", executionMode.getConfigScript());
     FileOutputStream stream = null;
     try {
       stream = new FileOutputStream(new File(outputDir, moduleName + ".html"));
@@ -20,24 +20,45 @@ import java.util.List;
 /**
  * BenchmarkWorkerConfig contains the moduleName for a worker to compile and the configurations for
  * runners that the worker should launch.
+ * <p>
+ * If the compiled output of the module is identical to the output of the previous commit (same
+ * hash) the worker does not launch any runners and the previous results are reused.
  */
 public class BenchmarkWorkerConfig {
   public static BenchmarkWorkerConfig from(BenchmarkRun run) {
-    return new BenchmarkWorkerConfig(run.getModuleName(), run.getRunConfigs());
+    return from(run, null);
+  }
+
+  public static BenchmarkWorkerConfig from(BenchmarkRun run, String previousOutputHash) {
+    return new BenchmarkWorkerConfig(run.getModuleName(), run.getRunConfigs(), previousOutputHash);
   }
 
   private final String moduleName;
   private final List<RunnerConfig> runnerConfigs;
+  private final String previousOutputHash;
 
   public BenchmarkWorkerConfig(String moduleName, List<RunnerConfig> runners) {
+    this(moduleName, runners, null);
+  }
+
+  public BenchmarkWorkerConfig(String moduleName, List<RunnerConfig> runners,
+      String previousOutputHash) {
     this.moduleName = moduleName;
     this.runnerConfigs = new ArrayList<>(runners);
+    this.previousOutputHash = previousOutputHash;
   }
 
   public String getModuleName() {
     return moduleName;
   }
 
+  /**
+   * Returns the output hash of the previous successful run of this module or null.
+   */
+  public String getPreviousOutputHash() {
+    return previousOutputHash;
+  }
+
   public List<RunnerConfig> getRunners() {
     return Collections.unmodifiableList(runnerConfigs);
   }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * CachingBenchmarkCompiler keeps the output of compiles so that compiling the same module with the
+ * same SDK and benchmark sources again only copies the earlier output.
+ * <p>
+ * Entries are keyed by the hashes of gwt-dev.jar, gwt-user.jar, the benchmark source tree, the
+ * compiler flags and the module name. The benchmark source tree is only hashed again once the SDK
+ * has changed, so all modules of a commit share one hash. If the entries use more than the
+ * configured disk space, the least recently used ones are deleted.
+ * <p>
+ * Only the index of entries is guarded by a lock, copying entries in and out of the cache runs
+ * concurrently. Entries that are being copied from are never evicted.
+ */
+@Singleton
+public class CachingBenchmarkCompiler implements BenchmarkCompiler {
+
+  private static final Logger logger = Logger.getLogger(CachingBenchmarkCompiler.class.getName());
+
+  /**
+   * The flags both compilers pass to the GWT compiler. Needs to be updated together with them so
+   * that old entries are not reused.
+   */
+  private static final String COMPILER_FLAGS = "-style PRETTY";
+
+  private final BenchmarkCompiler compiler;
+
+  private final CliInteractor cliInteractor;
+
+  private final File benchmarkSourceLocation;
+
+  private final File cacheRoot;
+
+  private final long maxBytes;
+
+  private final Map<String, String> jarHashesByStamp = new HashMap<>();
+
+  private final Object sourceTreeLock = new Object();
+
+  private String sourceTreeSdkStamp;
+
+  private String sourceTreeHash;
+
+  /**
+   * Number of compiles copying from an entry by name. Guarded by this.
+   */
+  private final Map<String, Integer> entriesInUse = new HashMap<>();
+
+  /**
+   * Sizes of the entries by name, least recently used first. Loaded from disk on first use.
+   */
+  private LinkedHashMap<String, Long> entrySizes;
+
+  @Inject
+  public CachingBenchmarkCompiler(@Named("uncachedCompiler") BenchmarkCompiler compiler,
+      CliInteractor cliInteractor,
+      @Named("benchmarkSourceLocation") File benchmarkSourceLocation,
+      @Named("persistenceDir") File persistenceDir,
+      @Named("compileCacheMaxMb") int compileCacheMaxMb) {
+    this.compiler = compiler;
+    this.cliInteractor = cliInteractor;
+    this.benchmarkSourceLocation = benchmarkSourceLocation;
+    this.cacheRoot = new File(persistenceDir, "compileCache");
+    this.maxBytes = compileCacheMaxMb * 1024L * 1024L;
+  }
+
+  @Override
+  public void compile(String moduleName, File outputDir) throws BenchmarkCompilerException {
+    String key = getKey(moduleName);
+    File entry = new File(cacheRoot, key);
+
+    if (acquire(key)) {
+      boolean copied = false;
+      try {
+        FileUtils.copyDirectory(entry, outputDir);
+        copied = true;
+        logger.info("Using cached compile of " + moduleName);
+        return;
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Can not copy cached compile of " + moduleName, e);
+      } finally {
+        release(key, copied);
+      }
+    }
+
+    compiler.compile(moduleName, outputDir);
+    store(entry, outputDir);
+  }
+
+  // Visible for testing
+  String getKey(String moduleName) throws BenchmarkCompilerException {
+    File devJar = cliInteractor.getGwtDevJar();
+    File userJar = cliInteractor.getGwtUserJar();
+    return FileHashes.sha1(hashJar(devJar) + "\n" + hashJar(userJar) + "\n"
+        + hashSourceTree(getStamp(devJar) + "\n" + getStamp(userJar)) + "\n" + COMPILER_FLAGS
+        + "\n" + moduleName);
+  }
+
+  /**
+   * Marks an entry as being copied from and recently used. Returns false if there is no such entry.
+   */
+  private synchronized boolean acquire(String key) {
+    loadEntries();
+    // Marks the entry as recently used
+    if (entrySizes.get(key) == null) {
+      return false;
+    }
+    Integer users = entriesInUse.get(key);
+    entriesInUse.put(key, users == null ? 1 : users + 1);
+    return true;
+  }
+
+  private synchronized void release(String key, boolean copied) {
+    int users = entriesInUse.get(key) - 1;
+    if (users == 0) {
+      entriesInUse.remove(key);
+    } else {
+      entriesInUse.put(key, users);
+    }
+
+    File entry = new File(cacheRoot, key);
+    if (copied) {
+      entry.setLastModified(System.currentTimeMillis());
+    } else if (users == 0 && entrySizes.remove(key) != null) {
+      FileUtils.deleteQuietly(entry);
+    }
+  }
+
+  private void store(File entry, File outputDir) {
+    File tempEntry = new File(cacheRoot, entry.getName() + ".tmp" + Thread.currentThread().getId());
+    try {
+      FileUtils.copyDirectory(outputDir, tempEntry);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not add compile to cache", e);
+      FileUtils.deleteQuietly(tempEntry);
+      return;
+    }
+
+    synchronized (this) {
+      // A concurrent compile of the same module might have stored it already
+      if (entrySizes.containsKey(entry.getName()) || !tempEntry.renameTo(entry)) {
+        FileUtils.deleteQuietly(tempEntry);
+        return;
+      }
+      entry.setLastModified(System.currentTimeMillis());
+      entrySizes.put(entry.getName(), FileUtils.sizeOfDirectory(entry));
+      evict();
+    }
+  }
+
+  private void loadEntries() {
+    if (entrySizes != null) {
+      return;
+    }
+    entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+
+    File[] entries = cacheRoot.listFiles();
+    if (entries == null) {
+      return;
+    }
+    // Entries of an earlier run are ordered by the time they were last used
+    List<File> oldestFirst = new ArrayList<>(Arrays.asList(entries));
+    Collections.sort(oldestFirst, new Comparator<File>() {
+      @Override
+      public int compare(File o1, File o2) {
+        return Long.compare(o1.lastModified(), o2.lastModified());
+      }
+    });
+    for (File entry : oldestFirst) {
+      if (entry.getName().contains(".tmp")) {
+        // left over from a compile that did not finish
+        FileUtils.deleteQuietly(entry);
+      } else {
+        entrySizes.put(entry.getName(), FileUtils.sizeOfDirectory(entry));
+      }
+    }
+  }
+
+  private void evict() {
+    long totalBytes = 0;
+    for (long size : entrySizes.values()) {
+      totalBytes += size;
+    }
+
+    Iterator<Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Entry<String, Long> entry = iterator.next();
+      if (entriesInUse.containsKey(entry.getKey())) {
+        continue;
+      }
+      logger.info("Evicting cached compile " + entry.getKey());
+      FileUtils.deleteQuietly(new File(cacheRoot, entry.getKey()));
+      totalBytes -= entry.getValue();
+      iterator.remove();
+    }
+  }
+
+  private static String getStamp(File file) {
+    return file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+  }
+
+  private String hashJar(File jar) throws BenchmarkCompilerException {
+    // Hashing the jar is expensive, only do it if the jar has changed
+    String jarStamp = getStamp(jar);
+    synchronized (jarHashesByStamp) {
+      String hash = jarHashesByStamp.get(jarStamp);
+      if (hash == null) {
+        hash = hash(Collections.singletonList(jar));
+        jarHashesByStamp.put(jarStamp, hash);
+      }
+      return hash;
+    }
+  }
+
+  private String hashSourceTree(String sdkStamp) throws BenchmarkCompilerException {
+    // The sources only need to be hashed once for all modules compiled with the same SDK
+    synchronized (sourceTreeLock) {
+      if (!sdkStamp.equals(sourceTreeSdkStamp)) {
+        sourceTreeHash = hashSourceTree();
+        sourceTreeSdkStamp = sdkStamp;
+      }
+      return sourceTreeHash;
+    }
+  }
+
+  private String hashSourceTree() throws BenchmarkCompilerException {
+    List<File> files = new ArrayList<>(FileUtils.listFiles(benchmarkSourceLocation, null, true));
+    Collections.sort(files);
+
+    // Renaming a file changes the module as well
+    StringBuilder paths = new StringBuilder();
+    String root = benchmarkSourceLocation.getAbsolutePath();
+    for (File file : files) {
+      paths.append(file.getAbsolutePath().substring(root.length())).append("\n");
+    }
+    return FileHashes.sha1(paths.toString()) + hash(files);
+  }
+
+  private static String hash(List<File> files) throws BenchmarkCompilerException {
+    try {
+      return FileHashes.sha1(files);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not hash compiler input", e);
+      throw new BenchmarkCompilerException("Can not hash compiler input", e);
+    }
+  }
+}
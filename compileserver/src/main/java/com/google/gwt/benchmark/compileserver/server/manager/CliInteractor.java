@@ -13,6 +13,7 @@
  */
 package com.google.gwt.benchmark.compileserver.server.manager;
 
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner.ProcessResult;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -23,19 +24,47 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * All low level interactions with scripts are done by this class.
+ * <p>
+ * If sdkWorktrees is greater than zero the SDK is not built in gwtSourceLocation but in a pool of
+ * git worktrees below persistenceDir. Each worktree has its own build output, so the SDK of the
+ * next commit can be built with {@link #buildSDKInWorktree(String)} while modules are still being
+ * compiled against the active SDK. {@link #activateSDK(File)} switches compiles to a new SDK.
+ * <p>
+ * If incrementalSdkBuild is set, a location that already holds the build of an earlier commit is
+ * not cleaned before building. The buildSDK script only skips the clean if that commit is an
+ * ancestor of the checked out one, and a failing incremental build is retried as a clean build.
+ * <p>
+ * Scripts are run by a {@link ProcessRunner} and fail if they exceed a timeout, so that a hanging
+ * compile or git command does not block its thread forever.
  */
 @Singleton
 public class CliInteractor implements BenchmarkCompiler {
 
   private static final Logger logger = Logger.getLogger(CliInteractor.class.getName());
 
+  private static final long COMMAND_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final long COMPILE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+
+  private static final long BUILD_SDK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(60);
+
+  private final ProcessRunner processRunner;
+
   private File scriptDirectory;
 
   private File persistenceDir;
@@ -44,20 +73,94 @@ public class CliInteractor implements BenchmarkCompiler {
 
   private File benchmarkSourceLocation;
 
+  private UnitCache unitCache;
+
+  private final int sdkWorktrees;
+
+  private final Object worktreesLock = new Object();
+
+  private Deque<File> freeWorktrees;
+
+  private volatile File sdkLocation;
+
+  private final boolean incrementalSdkBuild;
+
+  /**
+   * The commit last built successfully in each build location.
+   */
+  private final Map<File, String> builtCommitIds = new HashMap<>();
+
   @Inject
   public CliInteractor(@Named("scriptDirectory") File scriptDirectory,
       @Named("persistenceDir") File persistenceDir,
       @Named("gwtSourceLocation") File gwtSourceLocation,
-      @Named("benchmarkSourceLocation") File benchmarkSourceLocation) {
+      @Named("benchmarkSourceLocation") File benchmarkSourceLocation, UnitCache unitCache,
+      ProcessRunner processRunner, @Named("sdkWorktrees") int sdkWorktrees,
+      @Named("incrementalSdkBuild") boolean incrementalSdkBuild) {
     this.scriptDirectory = scriptDirectory;
     this.persistenceDir = persistenceDir;
     this.gwtSourceLocation = gwtSourceLocation;
     this.benchmarkSourceLocation = benchmarkSourceLocation;
+    this.unitCache = unitCache;
+    this.processRunner = processRunner;
+    this.sdkWorktrees = sdkWorktrees;
+    this.sdkLocation = gwtSourceLocation;
+    this.incrementalSdkBuild = incrementalSdkBuild;
+  }
+
+  /**
+   * Builds the SDK for the given commit, which needs to be checked out in gwtSourceLocation.
+   */
+  public void buildSDK(String commitId) throws BenchmarkManagerException {
+    buildSDK(gwtSourceLocation, commitId);
+  }
+
+  /**
+   * Returns true if SDKs are built in worktrees, see {@link #buildSDKInWorktree(String)}.
+   */
+  public boolean usesWorktrees() {
+    return sdkWorktrees > 0;
+  }
+
+  /**
+   * Checks out the given commit in a free worktree and builds the SDK there.
+   * <p>
+   * This can run while modules are compiled against the active SDK. The worktree stays in use until
+   * it is passed to {@link #discardSDK(File)} or until another SDK is activated after it.
+   *
+   * @return the worktree containing the SDK
+   */
+  public File buildSDKInWorktree(String commitId) throws BenchmarkManagerException {
+    File worktree = acquireWorktree();
+    try {
+      File worktreeScript = new File(scriptDirectory, "checkoutWorktree");
+      runCommand(worktreeScript.getAbsolutePath() + " " + gwtSourceLocation.getAbsolutePath() + " "
+          + worktree.getAbsolutePath() + " " + commitId);
+      buildSDK(worktree, commitId);
+      return worktree;
+    } catch (BenchmarkManagerException e) {
+      releaseWorktree(worktree);
+      throw e;
+    }
   }
 
-  public void buildSDK() throws BenchmarkManagerException {
-    File pullChangesScript = new File(scriptDirectory, "buildSDK");
-    runCommand(pullChangesScript.getAbsolutePath() + " " + gwtSourceLocation.getAbsolutePath());
+  /**
+   * Makes all following compiles use the SDK built in the given worktree. The worktree of the
+   * previously active SDK is returned to the pool.
+   */
+  public void activateSDK(File worktree) {
+    File previous = sdkLocation;
+    sdkLocation = worktree;
+    if (!previous.equals(gwtSourceLocation) && !previous.equals(worktree)) {
+      releaseWorktree(previous);
+    }
+  }
+
+  /**
+   * Returns the worktree of an SDK that is not going to be activated to the pool.
+   */
+  public void discardSDK(File worktree) {
+    releaseWorktree(worktree);
   }
 
   public void checkout(String commitId) throws BenchmarkManagerException {
@@ -71,30 +174,61 @@ public class CliInteractor implements BenchmarkCompiler {
     logger.info("compiling: " + moduleName);
     File compileScript = new File(scriptDirectory, "compileModule");
 
-    String devjar =
-        new File(gwtSourceLocation, "build/staging/gwt-0.0.0/gwt-dev.jar").getAbsolutePath();
-    String userjar =
-        new File(gwtSourceLocation, "build/staging/gwt-0.0.0/gwt-user.jar").getAbsolutePath();
+    String devjar = getGwtDevJar().getAbsolutePath();
+    String userjar = getGwtUserJar().getAbsolutePath();
     String bsl = benchmarkSourceLocation.getAbsolutePath();
     if (!bsl.endsWith("/")) {
       bsl += "/";
     }
 
     String outputDir = compilerOutputDir.getAbsolutePath();
+    String unitCacheDir = unitCache.getDirectory(getGwtDevJar()).getAbsolutePath();
     try {
       runCommand(compileScript.getAbsolutePath() + " " + moduleName + " " + devjar + " " + userjar
-          + " " + bsl + " " + outputDir, false);
+          + " " + bsl + " " + outputDir + " " + unitCacheDir, false, COMPILE_TIMEOUT_MS);
     } catch (BenchmarkManagerException e) {
       throw new BenchmarkCompilerException("failed compile", e);
     }
   }
 
+  /**
+   * Returns the gwt-dev.jar of the SDK that has been built by {@link #buildSDK(String)} or
+   * activated by {@link #activateSDK(File)}.
+   */
+  public File getGwtDevJar() {
+    return new File(sdkLocation, "build/staging/gwt-0.0.0/gwt-dev.jar");
+  }
+
+  /**
+   * Returns the gwt-user.jar of the SDK that has been built by {@link #buildSDK(String)} or
+   * activated by {@link #activateSDK(File)}.
+   */
+  public File getGwtUserJar() {
+    return new File(sdkLocation, "build/staging/gwt-0.0.0/gwt-user.jar");
+  }
+
   public String getCurrentCommitId() throws BenchmarkManagerException {
     File gitCommitScript = new File(scriptDirectory, "commitId");
     return runCommand(
         gitCommitScript.getAbsolutePath() + " " + gwtSourceLocation.getAbsolutePath());
   }
 
+  /**
+   * Fetches the tracked branch and returns all commits after the given commit, oldest first.
+   */
+  public List<String> getCommitsSince(String baseCommitId) throws BenchmarkManagerException {
+    File commitsSinceScript = new File(scriptDirectory, "commitsSince");
+    String output = runCommand(commitsSinceScript.getAbsolutePath() + " " + baseCommitId + " "
+        + gwtSourceLocation.getAbsolutePath());
+    List<String> commits = new ArrayList<>();
+    for (String line : output.split("\n")) {
+      if (!line.trim().isEmpty()) {
+        commits.add(line.trim());
+      }
+    }
+    return commits;
+  }
+
   public long getDateForCommitInMsEpoch(String currentCommitId) throws BenchmarkManagerException {
     File commitDateScript = new File(scriptDirectory, "commitDate");
     String dateForCommitString = runCommand(commitDateScript.getAbsolutePath() + " "
@@ -148,33 +282,93 @@ public class CliInteractor implements BenchmarkCompiler {
     }
   }
 
-  private String runCommand(String command) throws BenchmarkManagerException {
-    return runCommand(command, true);
+  private void buildSDK(File location, String commitId) throws BenchmarkManagerException {
+    String previousCommitId;
+    synchronized (builtCommitIds) {
+      // the output in location is unknown until this build succeeds
+      previousCommitId = builtCommitIds.remove(location);
+    }
+
+    String command =
+        new File(scriptDirectory, "buildSDK").getAbsolutePath() + " " + location.getAbsolutePath();
+    boolean built = false;
+    if (incrementalSdkBuild && previousCommitId != null) {
+      try {
+        runCommand(command + " " + previousCommitId, true, BUILD_SDK_TIMEOUT_MS);
+        built = true;
+      } catch (BenchmarkManagerException e) {
+        logger.warning("Incremental SDK build failed, doing a clean build");
+      }
+    }
+    if (!built) {
+      runCommand(command, true, BUILD_SDK_TIMEOUT_MS);
+    }
+
+    synchronized (builtCommitIds) {
+      builtCommitIds.put(location, commitId);
+    }
   }
 
-  private String runCommand(String command, boolean useErrorSteam)
-      throws BenchmarkManagerException {
-    InputStream stream = null;
-    try {
-      Process process = Runtime.getRuntime().exec(command);
-      int exitValue = process.waitFor();
-
-      if (exitValue != 0) {
-        stream = useErrorSteam ? process.getErrorStream() : process.getInputStream();
-        String error =
-            "Command returned with " + exitValue + " " + IOUtils.toString(stream, "UTF-8");
-        logger.warning(error);
-        throw new BenchmarkManagerException(error);
+  private File acquireWorktree() throws BenchmarkManagerException {
+    synchronized (worktreesLock) {
+      if (freeWorktrees == null) {
+        freeWorktrees = new ArrayDeque<>();
+        for (int i = 0; i < sdkWorktrees; i++) {
+          freeWorktrees.add(new File(persistenceDir, "worktrees/sdk" + i));
+        }
       }
+      if (freeWorktrees.isEmpty()) {
+        throw new BenchmarkManagerException("No free worktree to build the SDK in");
+      }
+      return freeWorktrees.poll();
+    }
+  }
 
-      stream = process.getInputStream();
-      return IOUtils.toString(stream, "UTF-8");
+  private void releaseWorktree(File worktree) {
+    synchronized (worktreesLock) {
+      if (!freeWorktrees.contains(worktree)) {
+        freeWorktrees.add(worktree);
+      }
+    }
+  }
 
-    } catch (IOException | InterruptedException e) {
+  private String runCommand(String command) throws BenchmarkManagerException {
+    return runCommand(command, true, COMMAND_TIMEOUT_MS);
+  }
+
+  private String runCommand(String command, boolean useErrorSteam, long timeoutMs)
+      throws BenchmarkManagerException {
+    Future<ProcessResult> future;
+    try {
+      future = processRunner.start(command, timeoutMs);
+    } catch (IOException e) {
       logger.log(Level.WARNING, "Can not run command", e);
       throw new BenchmarkManagerException("Can not run command");
-    } finally {
-      IOUtils.closeQuietly(stream);
     }
+
+    ProcessResult result;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new BenchmarkManagerException("Interrupted while running command");
+    } catch (ExecutionException e) {
+      logger.log(Level.WARNING, "Can not run command", e.getCause());
+      throw new BenchmarkManagerException("Can not run command");
+    }
+
+    if (result.isTimedOut()) {
+      String error = "Command timed out after " + timeoutMs + " ms: " + command;
+      logger.warning(error);
+      throw new BenchmarkManagerException(error);
+    }
+    if (result.getExitValue() != 0) {
+      String error = "Command returned with " + result.getExitValue() + " "
+          + (useErrorSteam ? result.getError() : result.getOutput());
+      logger.warning(error);
+      throw new BenchmarkManagerException(error);
+    }
+    return result.getOutput();
   }
 }
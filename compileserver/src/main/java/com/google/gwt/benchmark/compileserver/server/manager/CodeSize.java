@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CodeSize contains the size of the JavaScript the compiler generated for a module, both raw and
+ * gzipped, since the gzipped size is what browsers download.
+ * <p>
+ * Instances are immutable.
+ */
+public class CodeSize {
+
+  /**
+   * The size of a single compiled permutation.
+   */
+  public static class PermutationSize {
+    private final String fileName;
+    private final long bytes;
+    private final long gzipBytes;
+
+    public PermutationSize(String fileName, long bytes, long gzipBytes) {
+      this.fileName = fileName;
+      this.bytes = bytes;
+      this.gzipBytes = gzipBytes;
+    }
+
+    public String getFileName() {
+      return fileName;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getGzipBytes() {
+      return gzipBytes;
+    }
+  }
+
+  /**
+   * Measures the given permutation files.
+   */
+  public static CodeSize measure(List<File> permutationFiles) throws IOException {
+    List<PermutationSize> permutations = new ArrayList<>();
+    for (File file : permutationFiles) {
+      permutations.add(new PermutationSize(file.getName(), file.length(), gzipSize(file)));
+    }
+    return new CodeSize(permutations);
+  }
+
+  private static long gzipSize(File file) throws IOException {
+    final long[] count = new long[1];
+    OutputStream counter = new OutputStream() {
+      @Override
+      public void write(int b) {
+        count[0]++;
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        count[0] += len;
+      }
+    };
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      GZIPOutputStream gzip = new GZIPOutputStream(counter);
+      IOUtils.copy(in, gzip);
+      gzip.close();
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    return count[0];
+  }
+
+  private final List<PermutationSize> permutations;
+  private final long totalBytes;
+  private final long totalGzipBytes;
+
+  public CodeSize(List<PermutationSize> permutations) {
+    this.permutations = Collections.unmodifiableList(new ArrayList<>(permutations));
+    long totalBytes = 0;
+    long totalGzipBytes = 0;
+    for (PermutationSize permutation : permutations) {
+      totalBytes += permutation.getBytes();
+      totalGzipBytes += permutation.getGzipBytes();
+    }
+    this.totalBytes = totalBytes;
+    this.totalGzipBytes = totalGzipBytes;
+  }
+
+  public List<PermutationSize> getPermutations() {
+    return permutations;
+  }
+
+  /**
+   * Returns the size of all permutations together.
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Returns the sum of the gzipped sizes of all permutations.
+   */
+  public long getTotalGzipBytes() {
+    return totalGzipBytes;
+  }
+}
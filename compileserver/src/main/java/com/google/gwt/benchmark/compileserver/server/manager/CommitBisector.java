@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun.Result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CommitBisector decides in which order a backlog of commits is benchmarked when the system has
+ * fallen behind.
+ * <p>
+ * First a sparse subset (every n-th commit and the newest one) is benchmarked. Whenever two
+ * neighboring benchmarked commits differ significantly for any module on any runner, the commit in
+ * the middle of the range is benchmarked next, until the commit that introduced the change is
+ * found.
+ * <p>
+ * A difference is significant if:
+ * <ul>
+ * <li>with at least two forks on both commits, Welch's t-test rejects equal means at the 95% level
+ * (the forks are taken after outlier rejection)</li>
+ * <li>with a single fork that reports a margin of error on both commits (run until stable), the
+ * 95% confidence intervals do not overlap</li>
+ * <li>otherwise, the results differ by more than the change threshold</li>
+ * </ul> Ranges without a change are never looked at again, so catching up costs roughly
+ * O(log commits) runs per change instead of one run per commit.
+ * <p>
+ * This class is not thread safe.
+ */
+public class CommitBisector {
+
+  private final List<String> commits;
+
+  private final double changeThreshold;
+
+  /**
+   * Two sided 95% quantiles of the Student's t-distribution for 1 to 30 degrees of freedom.
+   */
+  private static final double[] T_DISTRIBUTION_95 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447,
+      2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093,
+      2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+  private final Map<Integer, Map<String, Result>> resultsByIndex = new HashMap<>();
+
+  private final Deque<Integer> pending = new ArrayDeque<>();
+
+  /**
+   * @param commits the backlog, oldest commit first
+   * @param stride distance between the commits that are benchmarked first
+   * @param changeThreshold relative difference of a result between two commits that is considered
+   *        a change (0.05 for 5%) if there is no spread to test the difference against
+   */
+  public CommitBisector(List<String> commits, int stride, double changeThreshold) {
+    if (commits.isEmpty() || stride < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.commits = new ArrayList<>(commits);
+    this.changeThreshold = changeThreshold;
+
+    for (int i = 0; i < commits.size(); i += stride) {
+      pending.add(i);
+    }
+    if (pending.peekLast() != commits.size() - 1) {
+      pending.add(commits.size() - 1);
+    }
+  }
+
+  /**
+   * Returns the next commit to benchmark or null if there is nothing left to do.
+   */
+  public String nextCommit() {
+    Integer index = pending.poll();
+    return index == null ? null : commits.get(index);
+  }
+
+  /**
+   * Returns the commit {@link #nextCommit()} will return without removing it, or null if there is
+   * nothing left to do.
+   */
+  public String peekNextCommit() {
+    Integer index = pending.peek();
+    return index == null ? null : commits.get(index);
+  }
+
+  /**
+   * Records the results of a benchmarked commit and schedules bisection of the ranges next to it
+   * if the results changed.
+   *
+   * @param results successful results by module and runner
+   */
+  public void onResults(String commitId, Map<String, Result> results) {
+    int index = commits.indexOf(commitId);
+    if (index == -1) {
+      throw new IllegalArgumentException("Unknown commit " + commitId);
+    }
+    resultsByIndex.put(index, new HashMap<>(results));
+
+    maybeBisect(previousBenchmarked(index), index);
+    maybeBisect(index, nextBenchmarked(index));
+  }
+
+  /**
+   * Returns the newest commit of the backlog.
+   */
+  public String getLastCommit() {
+    return commits.get(commits.size() - 1);
+  }
+
+  public boolean isDone() {
+    return pending.isEmpty();
+  }
+
+  private void maybeBisect(int from, int to) {
+    if (from == -1 || to == -1 || to - from < 2) {
+      return;
+    }
+    if (!hasChanged(resultsByIndex.get(from), resultsByIndex.get(to))) {
+      return;
+    }
+    int middle = (from + to) / 2;
+    if (!pending.contains(middle)) {
+      pending.add(middle);
+    }
+  }
+
+  private boolean hasChanged(Map<String, Result> before, Map<String, Result> after) {
+    for (Map.Entry<String, Result> entry : before.entrySet()) {
+      Result afterResult = after.get(entry.getKey());
+      if (afterResult != null && hasChanged(entry.getValue(), afterResult)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasChanged(Result before, Result after) {
+    List<Double> beforeForks = ForkAggregator.rejectOutliers(getForks(before));
+    List<Double> afterForks = ForkAggregator.rejectOutliers(getForks(after));
+    if (beforeForks.size() >= 2 && afterForks.size() >= 2) {
+      Boolean significant = isSignificant(beforeForks, afterForks);
+      if (significant != null) {
+        return significant;
+      }
+    } else if (beforeForks.size() == 1 && afterForks.size() == 1) {
+      double beforeError = getRelativeMarginOfError(before);
+      double afterError = getRelativeMarginOfError(after);
+      if (beforeError > 0 && afterError > 0) {
+        // run until stable: the results are the means of their confidence intervals
+        return Math.abs(after.getRunsPerSecond() - before.getRunsPerSecond())
+            > beforeError * before.getRunsPerSecond() + afterError * after.getRunsPerSecond();
+      }
+    }
+
+    if (before.getRunsPerSecond() == 0) {
+      return false;
+    }
+    return Math.abs(after.getRunsPerSecond() - before.getRunsPerSecond())
+        / before.getRunsPerSecond() > changeThreshold;
+  }
+
+  /**
+   * Welch's t-test for equal means. Returns null if neither sample has any spread.
+   */
+  private static Boolean isSignificant(List<Double> before, List<Double> after) {
+    double beforeVariance = variance(before) / before.size();
+    double afterVariance = variance(after) / after.size();
+    double standardError = Math.sqrt(beforeVariance + afterVariance);
+    if (standardError == 0) {
+      return null;
+    }
+
+    // Welch-Satterthwaite approximation of the degrees of freedom
+    double degreesOfFreedom = (beforeVariance + afterVariance) * (beforeVariance + afterVariance)
+        / (beforeVariance * beforeVariance / (before.size() - 1)
+            + afterVariance * afterVariance / (after.size() - 1));
+    int df = Math.max(1, (int) Math.floor(degreesOfFreedom));
+    double t = df <= T_DISTRIBUTION_95.length ? T_DISTRIBUTION_95[df - 1] : 1.96;
+    return Math.abs(mean(after) - mean(before)) > t * standardError;
+  }
+
+  private static List<Double> getForks(Result result) {
+    List<Double> forks = result.getForkRunsPerSecond();
+    return forks.isEmpty() ? Collections.singletonList(result.getRunsPerSecond()) : forks;
+  }
+
+  private static double getRelativeMarginOfError(Result result) {
+    TimingStatistics timingStatistics = result.getTimingStatistics();
+    return timingStatistics == null ? 0 : timingStatistics.getRelativeMarginOfError();
+  }
+
+  private static double mean(List<Double> values) {
+    double sum = 0;
+    for (double value : values) {
+      sum += value;
+    }
+    return sum / values.size();
+  }
+
+  /**
+   * Sample variance.
+   */
+  private static double variance(List<Double> values) {
+    double mean = mean(values);
+    double squaredDiffs = 0;
+    for (double value : values) {
+      squaredDiffs += (value - mean) * (value - mean);
+    }
+    return squaredDiffs / (values.size() - 1);
+  }
+
+  private int previousBenchmarked(int index) {
+    for (int i = index - 1; i >= 0; i--) {
+      if (resultsByIndex.containsKey(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int nextBenchmarked(int index) {
+    for (int i = index + 1; i < commits.size(); i++) {
+      if (resultsByIndex.containsKey(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
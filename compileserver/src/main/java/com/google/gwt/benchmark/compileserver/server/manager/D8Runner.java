@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner.ProcessResult;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+/**
+ * D8Runner runs a benchmark that has been compiled with the D8 linker in a command line JavaScript
+ * shell like d8 on the compile server itself.
+ * <p>
+ * The shell is started with the compiled script followed by a small script that prints what the
+ * benchmark framework published, one key=value pair per line. A script that defines the
+ * {@link ExecutionMode} goes first if the benchmark should run until its timing is stable. No
+ * browser or Selenium hub is involved.
+ */
+public class D8Runner implements Runner {
+
+  private static final String PREFIX = PrintedBenchmarkResult.PREFIX;
+
+  /**
+   * Prints the results the benchmark framework published on the global object.
+   */
+  private static final String PRINT_RESULTS_JS =
+      "(function(global) {\n"
+      + "  var w = global.__gwt__benchmarking__ran ? global : (global.window || global);\n"
+      + "  var s = w.__gwt__benchmarking__statistics;\n"
+      + "  print('" + PREFIX + "ran=' + !!w.__gwt__benchmarking__ran);\n"
+      + "  print('" + PREFIX + "failed=' + !!w.__gwt__benchmarking__failed);\n"
+      + "  print('" + PREFIX + "result=' + (w.__gwt__benchmarking__result || 0));\n"
+      + "  if (w.__gwt__benchmarking__samples && s) {\n"
+      + "    print('" + PREFIX + "samples=' + w.__gwt__benchmarking__samples.join(','));\n"
+      + "    print('" + PREFIX + "statistics=' + [s.mean, s.median, s.p90, s.p99,"
+      + " s.stdDev, s.min, s.max].join(','));\n"
+      + "    print('" + PREFIX + "warmupRuns=' + (s.warmupRuns || 0));\n"
+      + "    print('" + PREFIX + "relativeMarginOfError=' + (s.relativeMarginOfError || 0));\n"
+      + "  }\n"
+      + "})(this);\n";
+
+  private static final String URL_PREFIX = "/__bench/";
+
+  private static final long TIMEOUT_MS = 5 * 60 * 1000L;
+
+  private static final Logger logger = Logger.getLogger(D8Runner.class.getName());
+
+  private final RunnerConfig config;
+  private final String url;
+  private final File compilerOutputDir;
+  private final String d8Command;
+  private final ProcessRunner processRunner;
+  private final ExecutionMode executionMode;
+
+  private boolean done;
+  private boolean failed;
+  private double result;
+  private TimingStatistics timingStatistics;
+  private String errorMessage;
+
+  @Inject
+  public D8Runner(@Assisted RunnerConfig config, @Assisted String url,
+      @Named("compilerOutputDir") File compilerOutputDir, @Named("d8Command") String d8Command,
+      ProcessRunner processRunner, ExecutionMode executionMode) {
+    this.config = config;
+    this.url = url;
+    this.compilerOutputDir = compilerOutputDir;
+    this.d8Command = d8Command;
+    this.processRunner = processRunner;
+    this.executionMode = executionMode;
+  }
+
+  @Override
+  public void run() {
+    logger.info("Starting d8 for " + url);
+
+    File configScript = null;
+    File printResultsScript = null;
+    try {
+      File script = getCompiledScript();
+      if (!script.isFile()) {
+        fail("Can not find D8 output " + script.getAbsolutePath());
+        return;
+      }
+
+      printResultsScript = File.createTempFile("printResults", ".js");
+      FileUtils.writeStringToFile(printResultsScript, PRINT_RESULTS_JS, "UTF-8");
+
+      List<String> command = new ArrayList<>();
+      command.add(d8Command);
+      if (executionMode.isUntilStable()) {
+        configScript = File.createTempFile("config", ".js");
+        FileUtils.writeStringToFile(configScript, executionMode.getConfigScript(), "UTF-8");
+        command.add(configScript.getAbsolutePath());
+      }
+      command.add(script.getAbsolutePath());
+      command.add(printResultsScript.getAbsolutePath());
+
+      ProcessResult processResult =
+          processRunner.start(command.toArray(new String[command.size()]), TIMEOUT_MS).get();
+      if (processResult.isTimedOut()) {
+        fail("Timeout");
+        return;
+      }
+      if (processResult.getExitValue() != 0) {
+        fail("d8 exited with " + processResult.getExitValue() + ": "
+            + processResult.getError());
+        return;
+      }
+      parseOutput(processResult.getOutput());
+    } catch (IOException | ExecutionException e) {
+      logger.log(Level.INFO, "Error while running d8 for " + url, e);
+      fail("Unexpected exception during d8 run: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fail("Interrupted while running d8");
+    } finally {
+      FileUtils.deleteQuietly(configScript);
+      FileUtils.deleteQuietly(printResultsScript);
+    }
+  }
+
+  /**
+   * Maps the url of the host page back to the script the D8 linker wrote next to it.
+   */
+  // Visible for testing
+  File getCompiledScript() throws IOException {
+    String path = new URL(url).getPath();
+    if (!path.startsWith(URL_PREFIX) || !path.endsWith(".html")) {
+      throw new IOException("Unexpected benchmark url " + url);
+    }
+    String[] parts = path.substring(URL_PREFIX.length(), path.length() - ".html".length())
+        .split("/");
+    if (parts.length != 2) {
+      throw new IOException("Unexpected benchmark url " + url);
+    }
+    String moduleName = parts[1];
+    return new File(compilerOutputDir, parts[0] + "/" + moduleName + "/" + moduleName
+        + ".nocache.js");
+  }
+
+  private void parseOutput(String output) {
+    try {
+      PrintedBenchmarkResult printed = PrintedBenchmarkResult.parse(output);
+      if (!printed.hasRun()) {
+        fail("Benchmark did not run in d8");
+        return;
+      }
+      if (printed.isFailed()) {
+        fail("Benchmark failed to run in d8 - Benchmarkframework reported a failure");
+        return;
+      }
+      result = printed.getResult();
+      timingStatistics = printed.getTimingStatistics();
+      done = true;
+    } catch (NumberFormatException e) {
+      fail("Can not parse d8 output: " + e.getMessage());
+    }
+  }
+
+  private void fail(String message) {
+    logger.info("d8 run failed for " + url + ": " + message);
+    failed = true;
+    errorMessage = message;
+  }
+
+  @Override
+  public double getResult() {
+    return result;
+  }
+
+  @Override
+  public TimingStatistics getTimingStatistics() {
+    return timingStatistics;
+  }
+
+  @Override
+  public boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  @Override
+  public RunnerConfig getConfig() {
+    return config;
+  }
+
+  @Override
+  public boolean isFailed() {
+    return failed;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.Browser;
+import com.google.inject.name.Named;
+
+import javax.inject.Inject;
+
+/**
+ * DispatchingRunnerFactory creates the kind of runner a {@link RunnerConfig} needs: command line
+ * JavaScript shells and JVMs run locally, browsers are controlled through WebDriver.
+ */
+public class DispatchingRunnerFactory implements Runner.Factory {
+
+  private final Runner.Factory webDriverRunnerFactory;
+
+  private final Runner.Factory d8RunnerFactory;
+
+  private final Runner.Factory jvmRunnerFactory;
+
+  @Inject
+  public DispatchingRunnerFactory(
+      @Named("webDriverRunnerFactory") Runner.Factory webDriverRunnerFactory,
+      @Named("d8RunnerFactory") Runner.Factory d8RunnerFactory,
+      @Named("jvmRunnerFactory") Runner.Factory jvmRunnerFactory) {
+    this.webDriverRunnerFactory = webDriverRunnerFactory;
+    this.d8RunnerFactory = d8RunnerFactory;
+    this.jvmRunnerFactory = jvmRunnerFactory;
+  }
+
+  @Override
+  public Runner create(RunnerConfig runnerConfig, String url) {
+    if (runnerConfig.getBrowser() == Browser.D8) {
+      return d8RunnerFactory.create(runnerConfig, url);
+    }
+    if (runnerConfig.getBrowser() == Browser.JVM) {
+      return jvmRunnerFactory.create(runnerConfig, url);
+    }
+    return webDriverRunnerFactory.create(runnerConfig, url);
+  }
+}
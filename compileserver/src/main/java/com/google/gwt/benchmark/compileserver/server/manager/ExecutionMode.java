@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ExecutionMode tells the benchmark framework whether to run a benchmark for a fixed time or until
+ * its timing is statistically stable, and how small the relative margin of error needs to get.
+ * <p>
+ * Browsers read the mode from the host page, d8 from a script that runs before the compiled one
+ * and the JVM from the arguments of its launcher.
+ */
+public class ExecutionMode {
+
+  private final boolean untilStable;
+
+  private final double maxRelativeError;
+
+  @Inject
+  public ExecutionMode(@Named("untilStable") boolean untilStable,
+      @Named("maxRelativeErrorPercent") double maxRelativeErrorPercent) {
+    this.untilStable = untilStable;
+    this.maxRelativeError = maxRelativeErrorPercent / 100;
+  }
+
+  public boolean isUntilStable() {
+    return untilStable;
+  }
+
+  /**
+   * Returns a script that defines the settings the benchmark framework reads or an empty string
+   * for the fixed time mode, which is its default.
+   */
+  public String getConfigScript() {
+    if (!untilStable) {
+      return "";
+    }
+    return "var __gwt__benchmarking__config = {mode: 'stable', maxRelativeError: "
+        + maxRelativeError + "};";
+  }
+
+  /**
+   * Returns the arguments that select this mode in JavaBenchmarkLauncher.
+   */
+  public List<String> getLauncherArguments() {
+    if (!untilStable) {
+      return Collections.emptyList();
+    }
+    return Collections.singletonList("stable=" + maxRelativeError);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FailurePolicy decides how failures of single modules are handled, so that one flaky module does
+ * not stop benchmarking of all the others.
+ * <p>
+ * A failed (module, runner) pair is retried up to maxRetries times, waiting retryBackoffSeconds
+ * before the first retry and twice as long before every further one. A module that still fails
+ * for quarantineAfterCommits commits in a row is quarantined and not benchmarked anymore until it
+ * is removed from the moduleFailures file in persistenceDir.
+ */
+@Singleton
+public class FailurePolicy {
+
+  private static final Logger logger = Logger.getLogger(FailurePolicy.class.getName());
+
+  private static final long MAX_RETRY_DELAY_MS = 60 * 60 * 1000L;
+
+  private final File failuresFile;
+
+  private final int maxRetries;
+
+  private final long retryBackoffMs;
+
+  private final int quarantineAfterCommits;
+
+  /**
+   * The number of commits in a row each module failed for. Loaded from disk on first use.
+   */
+  private Map<String, Integer> failedCommitsByModule;
+
+  @Inject
+  public FailurePolicy(@Named("persistenceDir") File persistenceDir,
+      @Named("maxRetries") int maxRetries,
+      @Named("retryBackoffSeconds") int retryBackoffSeconds,
+      @Named("quarantineAfterCommits") int quarantineAfterCommits) {
+    this.failuresFile = new File(persistenceDir, "moduleFailures");
+    this.maxRetries = maxRetries;
+    this.retryBackoffMs = retryBackoffSeconds * 1000L;
+    this.quarantineAfterCommits = quarantineAfterCommits;
+  }
+
+  /**
+   * Returns true if a runner that failed the given number of times should be run again.
+   */
+  public boolean shouldRetry(int failedAttempts) {
+    return failedAttempts <= maxRetries;
+  }
+
+  /**
+   * Returns how long to wait before running a runner that failed the given number of times again.
+   */
+  public long getRetryDelayMs(int failedAttempts) {
+    long delayMs = retryBackoffMs;
+    for (int i = 1; i < failedAttempts && delayMs < MAX_RETRY_DELAY_MS; i++) {
+      delayMs *= 2;
+    }
+    return Math.min(delayMs, MAX_RETRY_DELAY_MS);
+  }
+
+  public synchronized boolean isQuarantined(String moduleName) {
+    if (quarantineAfterCommits <= 0) {
+      return false;
+    }
+    loadFailures();
+    Integer failedCommits = failedCommitsByModule.get(moduleName);
+    return failedCommits != null && failedCommits >= quarantineAfterCommits;
+  }
+
+  /**
+   * Records that the module failed for a commit even after retrying.
+   *
+   * @return true if the module has been quarantined because of this failure
+   */
+  public synchronized boolean onModuleFailed(String moduleName) {
+    loadFailures();
+    Integer failedCommits = failedCommitsByModule.get(moduleName);
+    failedCommits = failedCommits == null ? 1 : failedCommits + 1;
+    failedCommitsByModule.put(moduleName, failedCommits);
+    storeFailures();
+    return quarantineAfterCommits > 0 && failedCommits == quarantineAfterCommits;
+  }
+
+  public synchronized void onModuleSucceeded(String moduleName) {
+    loadFailures();
+    if (failedCommitsByModule.remove(moduleName) != null) {
+      storeFailures();
+    }
+  }
+
+  private void loadFailures() {
+    if (failedCommitsByModule != null) {
+      return;
+    }
+    failedCommitsByModule = new HashMap<>();
+    if (!failuresFile.exists()) {
+      return;
+    }
+
+    Properties properties = new Properties();
+    InputStream stream = null;
+    try {
+      stream = new FileInputStream(failuresFile);
+      properties.load(stream);
+      for (String moduleName : properties.stringPropertyNames()) {
+        failedCommitsByModule.put(moduleName,
+            Integer.parseInt(properties.getProperty(moduleName)));
+      }
+    } catch (IOException | NumberFormatException e) {
+      logger.log(Level.WARNING, "Can not read module failures, ignoring them", e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+
+  private void storeFailures() {
+    Properties properties = new Properties();
+    for (Entry<String, Integer> entry : failedCommitsByModule.entrySet()) {
+      properties.setProperty(entry.getKey(), Integer.toString(entry.getValue()));
+    }
+
+    OutputStream stream = null;
+    try {
+      stream = new FileOutputStream(failuresFile);
+      properties.store(stream, "Number of commits in a row each module failed for");
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not store module failures", e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+}
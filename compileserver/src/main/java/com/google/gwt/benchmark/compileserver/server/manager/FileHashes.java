@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helper for hashing the content of files and strings.
+ */
+public class FileHashes {
+
+  /**
+   * Returns the hex encoded SHA-1 of the content of a file.
+   */
+  public static String sha1(File file) throws IOException {
+    return sha1(Collections.singletonList(file));
+  }
+
+  /**
+   * Returns the hex encoded SHA-1 of the content of all files in the given order.
+   */
+  public static String sha1(List<File> files) throws IOException {
+    MessageDigest digest = createDigest();
+    byte[] buffer = new byte[64 * 1024];
+    for (File file : files) {
+      InputStream stream = null;
+      try {
+        stream = new FileInputStream(file);
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+      } finally {
+        IOUtils.closeQuietly(stream);
+      }
+    }
+
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Returns the hex encoded SHA-1 of the UTF-8 encoding of a string.
+   */
+  public static String sha1(String value) {
+    return toHex(createDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM is required to support SHA-1
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder();
+    for (byte b : bytes) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+  private FileHashes() {
+  }
+}
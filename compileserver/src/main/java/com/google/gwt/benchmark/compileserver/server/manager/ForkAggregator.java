@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ForkAggregator combines the results of running the same compiled module several times on one
+ * runner (forks) into a single number.
+ * <p>
+ * Forks outside of the interquartile fences (more than 1.5 times the interquartile range below the
+ * first or above the third quartile) are rejected as outliers, the result is the median of the
+ * remaining forks. With less than four forks quartiles are meaningless and no forks are rejected.
+ */
+public class ForkAggregator {
+
+  private static final int MIN_FORKS_FOR_OUTLIER_REJECTION = 4;
+
+  private static final double IQR_FENCE_FACTOR = 1.5;
+
+  /**
+   * Returns the median of all forks that are not outliers.
+   */
+  public static double aggregate(List<Double> forkResults) {
+    return median(rejectOutliers(forkResults));
+  }
+
+  /**
+   * Returns the forks that are within the interquartile fences, in their original order.
+   */
+  public static List<Double> rejectOutliers(List<Double> forkResults) {
+    if (forkResults.isEmpty()) {
+      throw new IllegalArgumentException("No fork results");
+    }
+    if (forkResults.size() < MIN_FORKS_FOR_OUTLIER_REJECTION) {
+      return new ArrayList<>(forkResults);
+    }
+
+    List<Double> sorted = sorted(forkResults);
+    double q1 = quantile(sorted, 0.25);
+    double q3 = quantile(sorted, 0.75);
+    double lowerFence = q1 - IQR_FENCE_FACTOR * (q3 - q1);
+    double upperFence = q3 + IQR_FENCE_FACTOR * (q3 - q1);
+
+    List<Double> accepted = new ArrayList<>();
+    for (double result : forkResults) {
+      if (result >= lowerFence && result <= upperFence) {
+        accepted.add(result);
+      }
+    }
+    return accepted;
+  }
+
+  /**
+   * Returns the index of the fork that is closest to the aggregated result.
+   */
+  public static int indexOfRepresentative(List<Double> forkResults) {
+    double aggregate = aggregate(forkResults);
+    int index = 0;
+    for (int i = 1; i < forkResults.size(); i++) {
+      if (Math.abs(forkResults.get(i) - aggregate) < Math.abs(forkResults.get(index) - aggregate)) {
+        index = i;
+      }
+    }
+    return index;
+  }
+
+  private static double median(List<Double> values) {
+    return quantile(sorted(values), 0.5);
+  }
+
+  /**
+   * Quantile of sorted values with linear interpolation between the closest ranks.
+   */
+  private static double quantile(List<Double> sorted, double p) {
+    double position = p * (sorted.size() - 1);
+    int lower = (int) Math.floor(position);
+    int upper = (int) Math.ceil(position);
+    return sorted.get(lower) + (position - lower) * (sorted.get(upper) - sorted.get(lower));
+  }
+
+  private static List<Double> sorted(List<Double> values) {
+    List<Double> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
+  private ForkAggregator() {
+  }
+}
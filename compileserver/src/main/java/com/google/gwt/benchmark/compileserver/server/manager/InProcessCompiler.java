@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * InProcessCompiler runs the GWT compiler inside the compile server instead of starting a new JVM
+ * for every module.
+ * <p>
+ * The GWT SDK under test is loaded into isolated class loaders that are kept around between
+ * compiles, so that class loading and JIT warmup of the compiler is only paid once per SDK build.
+ * Compiled units (JRE emulation, shared benchmark code) are cached in memory per class loader.
+ * A class loader is only used by one compile at a time. Once {@link CliInteractor#buildSDK(String)}
+ * replaces the SDK jars all cached class loaders are discarded.
+ * <p>
+ * Unlike compiles through {@link CliInteractor}, which share the persistent unit cache of
+ * {@link UnitCache}, in-process compiles never use the persistent unit cache. It registers a
+ * shutdown hook that would keep discarded class loaders alive.
+ */
+@Singleton
+public class InProcessCompiler implements BenchmarkCompiler {
+
+  private static final Logger logger = Logger.getLogger(InProcessCompiler.class.getName());
+
+  private final CliInteractor cliInteractor;
+
+  private final File benchmarkSourceLocation;
+
+  private final Object classLoadersLock = new Object();
+
+  private final Deque<URLClassLoader> idleClassLoaders = new ArrayDeque<>();
+
+  private String sdkVersion;
+
+  @Inject
+  public InProcessCompiler(CliInteractor cliInteractor,
+      @Named("benchmarkSourceLocation") File benchmarkSourceLocation) {
+    this.cliInteractor = cliInteractor;
+    this.benchmarkSourceLocation = benchmarkSourceLocation;
+    // Read by the compilers in all class loaders, the compile server does not use it otherwise
+    System.setProperty("gwt.persistentunitcache", "false");
+  }
+
+  @Override
+  public void compile(String moduleName, File compilerOutputDir) throws BenchmarkCompilerException {
+    logger.info("compiling in process: " + moduleName);
+    URLClassLoader classLoader = acquireClassLoader();
+    boolean reusable = false;
+    StringWriter output = new StringWriter();
+    Thread currentThread = Thread.currentThread();
+    ClassLoader contextClassLoader = currentThread.getContextClassLoader();
+    // The GWT compiler finds module files and sources through the context class loader
+    currentThread.setContextClassLoader(classLoader);
+    try {
+      boolean success = runCompiler(classLoader, new String[] {
+          "-style", "PRETTY", "-war", compilerOutputDir.getAbsolutePath(), moduleName},
+          new PrintWriter(output, true));
+      reusable = true;
+      if (!success) {
+        throw new BenchmarkCompilerException("failed compile", output.toString());
+      }
+    } catch (InvocationTargetException e) {
+      // The compiler threw, its state might be broken so we do not reuse the class loader
+      logger.log(Level.WARNING, "Compiler failed for " + moduleName, e.getCause());
+      throw new BenchmarkCompilerException("failed compile: " + e.getCause(), output.toString());
+    } catch (ReflectiveOperationException e) {
+      logger.log(Level.WARNING, "Can not run compiler in process", e);
+      throw new BenchmarkCompilerException("Can not run compiler in process", e);
+    } finally {
+      currentThread.setContextClassLoader(contextClassLoader);
+      releaseClassLoader(classLoader, reusable);
+    }
+  }
+
+  private boolean runCompiler(ClassLoader classLoader, String[] args, PrintWriter output)
+      throws ReflectiveOperationException {
+    Class<?> optionsInterface = classLoader.loadClass("com.google.gwt.dev.CompilerOptions");
+    Object options = classLoader.loadClass("com.google.gwt.dev.CompilerOptionsImpl").newInstance();
+
+    Constructor<?> argProcessorConstructor = classLoader.loadClass(
+        "com.google.gwt.dev.Compiler$ArgProcessor").getDeclaredConstructor(optionsInterface);
+    argProcessorConstructor.setAccessible(true);
+    Object argProcessor = argProcessorConstructor.newInstance(options);
+    Method processArgs = argProcessor.getClass().getMethod("processArgs", String[].class);
+    processArgs.setAccessible(true);
+    if (!(Boolean) processArgs.invoke(argProcessor, (Object) args)) {
+      output.println("Invalid compiler arguments");
+      return false;
+    }
+
+    Class<?> treeLoggerClass = classLoader.loadClass("com.google.gwt.core.ext.TreeLogger");
+    Class<?> printWriterTreeLoggerClass =
+        classLoader.loadClass("com.google.gwt.dev.util.log.PrintWriterTreeLogger");
+    Object treeLogger =
+        printWriterTreeLoggerClass.getConstructor(PrintWriter.class).newInstance(output);
+    printWriterTreeLoggerClass.getMethod("setMaxDetail", treeLoggerClass.getField("INFO").getType())
+        .invoke(treeLogger, treeLoggerClass.getField("INFO").get(null));
+
+    Class<?> compilerClass = classLoader.loadClass("com.google.gwt.dev.Compiler");
+    Object compiler = compilerClass.getConstructor(optionsInterface).newInstance(options);
+    return (Boolean) compilerClass.getMethod("run", treeLoggerClass).invoke(compiler, treeLogger);
+  }
+
+  URLClassLoader acquireClassLoader() throws BenchmarkCompilerException {
+    String currentSdkVersion = getSdkVersion();
+    synchronized (classLoadersLock) {
+      if (!currentSdkVersion.equals(sdkVersion)) {
+        // SDK has been rebuilt, drop everything that was loaded from the old jars
+        while (!idleClassLoaders.isEmpty()) {
+          closeQuietly(idleClassLoaders.poll());
+        }
+        sdkVersion = currentSdkVersion;
+      }
+
+      if (!idleClassLoaders.isEmpty()) {
+        return idleClassLoaders.poll();
+      }
+    }
+    return createClassLoader();
+  }
+
+  void releaseClassLoader(URLClassLoader classLoader, boolean reusable) {
+    synchronized (classLoadersLock) {
+      if (reusable && sdkVersion.equals(getSdkVersion())) {
+        idleClassLoaders.push(classLoader);
+        return;
+      }
+    }
+    closeQuietly(classLoader);
+  }
+
+  private URLClassLoader createClassLoader() throws BenchmarkCompilerException {
+    try {
+      URL[] urls = new URL[] {
+          cliInteractor.getGwtDevJar().toURI().toURL(),
+          cliInteractor.getGwtUserJar().toURI().toURL(),
+          benchmarkSourceLocation.toURI().toURL()};
+      // Only share the JDK with the compiler under test, the compile server has its own GWT
+      // on the class path
+      return new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+    } catch (MalformedURLException e) {
+      logger.log(Level.WARNING, "Can not create compiler class loader", e);
+      throw new BenchmarkCompilerException("Can not create compiler class loader", e);
+    }
+  }
+
+  private String getSdkVersion() {
+    File devJar = cliInteractor.getGwtDevJar();
+    File userJar = cliInteractor.getGwtUserJar();
+    // SDKs built in different worktrees live in different directories
+    return devJar.getAbsolutePath() + ":" + devJar.lastModified() + ":" + devJar.length() + ":"
+        + userJar.lastModified() + ":" + userJar.length();
+  }
+
+  private static void closeQuietly(URLClassLoader classLoader) {
+    try {
+      classLoader.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not close compiler class loader", e);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner.ProcessResult;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+/**
+ * JvmRunner runs the Java source of a benchmark on the JVM of the compile server, which gives a
+ * baseline for the compiled JavaScript.
+ * <p>
+ * A new JVM is forked for every benchmark, it runs JavaBenchmarkLauncher of the benchmark
+ * framework with the configured JVM flags. The benchmark class is derived from the module name, see
+ * {@link BenchmarkFinder#getJvmBenchmarkClassName(String)}. Only modules with such a class are
+ * scheduled on this runner.
+ */
+public class JvmRunner implements Runner {
+
+  private static final String LAUNCHER_CLASS =
+      "com.google.gwt.benchmark.framework.server.JavaBenchmarkLauncher";
+
+  private static final String URL_PREFIX = "/__bench/";
+
+  private static final long TIMEOUT_MS = 5 * 60 * 1000L;
+
+  private static final Logger logger = Logger.getLogger(JvmRunner.class.getName());
+
+  private final RunnerConfig config;
+  private final String url;
+  private final String javaCommand;
+  private final String classPath;
+  private final String jvmFlags;
+  private final ProcessRunner processRunner;
+  private final ExecutionMode executionMode;
+
+  private boolean done;
+  private boolean failed;
+  private double result;
+  private TimingStatistics timingStatistics;
+  private String errorMessage;
+
+  @Inject
+  public JvmRunner(@Assisted RunnerConfig config, @Assisted String url,
+      @Named("jvmRunnerClassPath") String classPath, @Named("jvmRunnerFlags") String jvmFlags,
+      ProcessRunner processRunner, ExecutionMode executionMode) {
+    this(config, url, new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+        classPath, jvmFlags, processRunner, executionMode);
+  }
+
+  // Visible for testing
+  JvmRunner(RunnerConfig config, String url, String javaCommand, String classPath,
+      String jvmFlags, ProcessRunner processRunner, ExecutionMode executionMode) {
+    this.config = config;
+    this.url = url;
+    this.javaCommand = javaCommand;
+    this.classPath = classPath;
+    this.jvmFlags = jvmFlags;
+    this.processRunner = processRunner;
+    this.executionMode = executionMode;
+  }
+
+  @Override
+  public void run() {
+    logger.info("Starting JVM for " + url);
+
+    try {
+      List<String> command = getCommand();
+      ProcessResult processResult =
+          processRunner.start(command.toArray(new String[command.size()]), TIMEOUT_MS).get();
+      if (processResult.isTimedOut()) {
+        fail("Timeout");
+        return;
+      }
+      if (processResult.getExitValue() != 0) {
+        fail("JVM exited with " + processResult.getExitValue() + ": "
+            + processResult.getError());
+        return;
+      }
+      parseOutput(processResult.getOutput());
+    } catch (IOException | ExecutionException e) {
+      logger.log(Level.INFO, "Error while running JVM for " + url, e);
+      fail("Unexpected exception during JVM run: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fail("Interrupted while running JVM");
+    }
+  }
+
+  // Visible for testing
+  List<String> getCommand() throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(javaCommand);
+    StringTokenizer flags = new StringTokenizer(jvmFlags);
+    while (flags.hasMoreTokens()) {
+      command.add(flags.nextToken());
+    }
+    command.add("-cp");
+    command.add(classPath);
+    command.add(LAUNCHER_CLASS);
+    command.add(getBenchmarkClassName());
+    command.addAll(executionMode.getLauncherArguments());
+    command.add("report");
+    return command;
+  }
+
+  /**
+   * Maps the url of the host page back to the benchmark class of its module.
+   */
+  // Visible for testing
+  String getBenchmarkClassName() throws IOException {
+    String path = new URL(url).getPath();
+    if (!path.startsWith(URL_PREFIX) || !path.endsWith(".html")) {
+      throw new IOException("Unexpected benchmark url " + url);
+    }
+    String[] parts = path.substring(URL_PREFIX.length(), path.length() - ".html".length())
+        .split("/");
+    if (parts.length != 2 || parts[1].lastIndexOf('.') == -1) {
+      throw new IOException("Unexpected benchmark url " + url);
+    }
+    return BenchmarkFinder.getJvmBenchmarkClassName(parts[1]);
+  }
+
+  private void parseOutput(String output) {
+    try {
+      PrintedBenchmarkResult printed = PrintedBenchmarkResult.parse(output);
+      if (!printed.hasRun() || printed.isFailed()) {
+        fail("Benchmark did not report a result on the JVM");
+        return;
+      }
+      result = printed.getResult();
+      timingStatistics = printed.getTimingStatistics();
+      done = true;
+    } catch (NumberFormatException e) {
+      fail("Can not parse JVM output: " + e.getMessage());
+    }
+  }
+
+  private void fail(String message) {
+    logger.info("JVM run failed for " + url + ": " + message);
+    failed = true;
+    errorMessage = message;
+  }
+
+  @Override
+  public double getResult() {
+    return result;
+  }
+
+  @Override
+  public TimingStatistics getTimingStatistics() {
+    return timingStatistics;
+  }
+
+  @Override
+  public boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  @Override
+  public RunnerConfig getConfig() {
+    return config;
+  }
+
+  @Override
+  public boolean isFailed() {
+    return failed;
+  }
+}
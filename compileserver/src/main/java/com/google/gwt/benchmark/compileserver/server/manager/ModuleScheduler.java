@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ModuleScheduler decides in which order the modules of a commit are handed to the worker pool.
+ * <p>
+ * Modules with a higher priority go first. Modules of the same priority are ordered by how long
+ * compiling and running them took for earlier commits, longest first, so that a slow module does
+ * not start last and hold up the whole commit. Modules without a recorded duration are treated as
+ * the slowest ones.
+ * <p>
+ * Priorities are configured as a comma separated list of moduleSuffix:priority pairs, e.g.
+ * "RayTraceBenchmarkGWT:10". Modules that match no suffix have priority 0. Durations are stored in
+ * persistenceDir so that they survive restarts.
+ */
+@Singleton
+public class ModuleScheduler {
+
+  private static final Logger logger = Logger.getLogger(ModuleScheduler.class.getName());
+
+  private final File durationsFile;
+
+  private final Map<String, Integer> priorityBySuffix = new HashMap<>();
+
+  private Map<String, Long> durationMsByModule;
+
+  @Inject
+  public ModuleScheduler(@Named("persistenceDir") File persistenceDir,
+      @Named("modulePriorities") String modulePriorities) {
+    this.durationsFile = new File(persistenceDir, "moduleDurations");
+    for (String entry : modulePriorities.split(",")) {
+      if (entry.trim().isEmpty()) {
+        continue;
+      }
+      String[] parts = entry.split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Invalid module priority: " + entry);
+      }
+      priorityBySuffix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+    }
+  }
+
+  /**
+   * Returns the given modules in the order in which they should be started.
+   */
+  public synchronized List<String> order(List<String> moduleNames) {
+    loadDurations();
+    final Map<String, Integer> priorities = new HashMap<>();
+    final Map<String, Long> durations = new HashMap<>();
+    for (String moduleName : moduleNames) {
+      priorities.put(moduleName, getPriority(moduleName));
+      Long durationMs = durationMsByModule.get(moduleName);
+      durations.put(moduleName, durationMs == null ? Long.MAX_VALUE : durationMs);
+    }
+
+    List<String> ordered = new ArrayList<>(moduleNames);
+    // Stable, so modules that compare equal keep the order of the finder
+    Collections.sort(ordered, new Comparator<String>() {
+      @Override
+      public int compare(String o1, String o2) {
+        int byPriority = Integer.compare(priorities.get(o2), priorities.get(o1));
+        if (byPriority != 0) {
+          return byPriority;
+        }
+        return Long.compare(durations.get(o2), durations.get(o1));
+      }
+    });
+    return ordered;
+  }
+
+  /**
+   * Records how long compiling and running all runners of a module took.
+   */
+  public synchronized void recordDuration(String moduleName, long durationMs) {
+    loadDurations();
+    durationMsByModule.put(moduleName, durationMs);
+    storeDurations();
+  }
+
+  private int getPriority(String moduleName) {
+    int priority = 0;
+    for (Entry<String, Integer> entry : priorityBySuffix.entrySet()) {
+      if (moduleName.endsWith(entry.getKey())) {
+        priority = Math.max(priority, entry.getValue());
+      }
+    }
+    return priority;
+  }
+
+  private void loadDurations() {
+    if (durationMsByModule != null) {
+      return;
+    }
+    durationMsByModule = new HashMap<>();
+    if (!durationsFile.exists()) {
+      return;
+    }
+
+    Properties properties = new Properties();
+    InputStream stream = null;
+    try {
+      stream = new FileInputStream(durationsFile);
+      properties.load(stream);
+      for (String moduleName : properties.stringPropertyNames()) {
+        durationMsByModule.put(moduleName, Long.parseLong(properties.getProperty(moduleName)));
+      }
+    } catch (IOException | NumberFormatException e) {
+      logger.log(Level.WARNING, "Can not read module durations, ignoring them", e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+
+  private void storeDurations() {
+    Properties properties = new Properties();
+    for (Entry<String, Long> entry : durationMsByModule.entrySet()) {
+      properties.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+    }
+
+    OutputStream stream = null;
+    try {
+      stream = new FileOutputStream(durationsFile);
+      properties.store(stream, "Duration in ms of the last run of each module");
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not store module durations", e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PrintedBenchmarkResult reads the result of a benchmark that ran outside of a browser from the
+ * output of its process.
+ * <p>
+ * The process prints what the benchmark framework would publish in a browser, one
+ * {@code __gwt__benchmarking__key=value} pair per line. All other lines are ignored.
+ */
+class PrintedBenchmarkResult {
+
+  static final String PREFIX = "__gwt__benchmarking__";
+
+  /**
+   * Parses the output of a process.
+   *
+   * @throws NumberFormatException if the printed values are no numbers
+   */
+  static PrintedBenchmarkResult parse(String output) {
+    Map<String, String> values = new HashMap<>();
+    for (String line : output.split("\n")) {
+      line = line.trim();
+      int separator = line.indexOf('=');
+      if (line.startsWith(PREFIX) && separator != -1) {
+        values.put(line.substring(PREFIX.length(), separator), line.substring(separator + 1));
+      }
+    }
+
+    boolean ran = "true".equals(values.get("ran"));
+    boolean failed = "true".equals(values.get("failed"));
+    if (!ran || failed) {
+      return new PrintedBenchmarkResult(ran, failed, 0, null);
+    }
+    return new PrintedBenchmarkResult(ran, failed, Double.parseDouble(values.get("result")),
+        createTimingStatistics(values.get("samples"), values.get("statistics"),
+            values.get("warmupRuns"), values.get("relativeMarginOfError")));
+  }
+
+  private static TimingStatistics createTimingStatistics(String samples, String statistics,
+      String warmupRuns, String relativeMarginOfError) {
+    if (samples == null || statistics == null) {
+      return null;
+    }
+
+    List<Double> samplesMs = parseDoubles(samples);
+    List<Double> values = parseDoubles(statistics);
+    if (values.size() != 7) {
+      return null;
+    }
+    return new TimingStatistics(samplesMs, values.get(0), values.get(1), values.get(2),
+        values.get(3), values.get(4), values.get(5), values.get(6),
+        warmupRuns == null ? 0 : Integer.parseInt(warmupRuns),
+        relativeMarginOfError == null ? 0 : Double.parseDouble(relativeMarginOfError));
+  }
+
+  private static List<Double> parseDoubles(String list) {
+    List<Double> doubles = new ArrayList<>();
+    for (String value : list.split(",")) {
+      if (!value.isEmpty()) {
+        doubles.add(Double.parseDouble(value));
+      }
+    }
+    return doubles;
+  }
+
+  private final boolean ran;
+  private final boolean failed;
+  private final double result;
+  private final TimingStatistics timingStatistics;
+
+  private PrintedBenchmarkResult(boolean ran, boolean failed, double result,
+      TimingStatistics timingStatistics) {
+    this.ran = ran;
+    this.failed = failed;
+    this.result = result;
+    this.timingStatistics = timingStatistics;
+  }
+
+  /**
+   * Returns true if the benchmark framework printed that it is done.
+   */
+  boolean hasRun() {
+    return ran;
+  }
+
+  /**
+   * Returns true if the benchmark framework printed a failure.
+   */
+  boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Returns the runs per second.
+   */
+  double getResult() {
+    return result;
+  }
+
+  /**
+   * Returns the timing statistics or null if none were printed.
+   */
+  TimingStatistics getTimingStatistics() {
+    return timingStatistics;
+  }
+}
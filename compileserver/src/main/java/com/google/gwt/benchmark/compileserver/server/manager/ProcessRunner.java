@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ProcessRunner executes external commands without blocking on their output.
+ * <p>
+ * stdout and stderr are drained by their own threads while the process runs, so a process writing
+ * a lot of output can not fill the pipe buffer and hang. Only the last maxOutputChars characters of
+ * each stream are kept. A process running longer than its timeout is destroyed together with all
+ * processes it started: commands run in their own session through a shell that kills the session
+ * when it is terminated, so that the compiler started by a build script does not outlive it.
+ */
+public class ProcessRunner {
+
+  /**
+   * The outcome of a finished process.
+   */
+  public static class ProcessResult {
+    private final int exitValue;
+    private final boolean timedOut;
+    private final String output;
+    private final String error;
+
+    public ProcessResult(int exitValue, boolean timedOut, String output, String error) {
+      this.exitValue = exitValue;
+      this.timedOut = timedOut;
+      this.output = output;
+      this.error = error;
+    }
+
+    public int getExitValue() {
+      return exitValue;
+    }
+
+    /**
+     * Returns true if the process has been destroyed because it exceeded its timeout.
+     */
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+
+    /**
+     * Returns the end of stdout.
+     */
+    public String getOutput() {
+      return output;
+    }
+
+    /**
+     * Returns the end of stderr.
+     */
+    public String getError() {
+      return error;
+    }
+  }
+
+  /**
+   * Keeps the last characters written to it.
+   */
+  // Visible for testing
+  static class TailBuffer {
+    private final int maxChars;
+    private final StringBuilder builder = new StringBuilder();
+
+    TailBuffer(int maxChars) {
+      this.maxChars = maxChars;
+    }
+
+    synchronized void append(char[] chars, int length) {
+      if (length >= maxChars) {
+        builder.setLength(0);
+        builder.append(chars, length - maxChars, maxChars);
+        return;
+      }
+      builder.append(chars, 0, length);
+      if (builder.length() > maxChars) {
+        builder.delete(0, builder.length() - maxChars);
+      }
+    }
+
+    @Override
+    public synchronized String toString() {
+      return builder.toString();
+    }
+  }
+
+  private static final Logger logger = Logger.getLogger(ProcessRunner.class.getName());
+
+  private static final int DEFAULT_MAX_OUTPUT_CHARS = 1024 * 1024;
+
+  /**
+   * How long to wait for the rest of the output once a process has been destroyed.
+   */
+  private static final long DRAIN_AFTER_TIMEOUT_MS = 5000;
+
+  private static final String SETSID = findSetsid();
+
+  /**
+   * Runs its arguments as a command and kills the whole process group, which setsid made the
+   * group of this shell, once the shell is terminated.
+   */
+  private static final String KILL_GROUP_ON_TERM = "trap 'kill -KILL 0' TERM; \"$@\" & wait $!";
+
+  private static final ThreadFactory DAEMON_THREAD_FACTORY = new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "ProcessRunner");
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+
+  private final int maxOutputChars;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool(DAEMON_THREAD_FACTORY);
+
+  private final ScheduledExecutorService timeoutExecutor =
+      Executors.newSingleThreadScheduledExecutor(DAEMON_THREAD_FACTORY);
+
+  public ProcessRunner() {
+    this(DEFAULT_MAX_OUTPUT_CHARS);
+  }
+
+  public ProcessRunner(int maxOutputChars) {
+    this.maxOutputChars = maxOutputChars;
+  }
+
+  /**
+   * Starts a command, splitting it into arguments at whitespace like
+   * {@link Runtime#exec(String)}.
+   *
+   * @see #start(String[], long)
+   */
+  public Future<ProcessResult> start(String command, long timeoutMs) throws IOException {
+    StringTokenizer tokenizer = new StringTokenizer(command);
+    String[] commandArray = new String[tokenizer.countTokens()];
+    for (int i = 0; tokenizer.hasMoreTokens(); i++) {
+      commandArray[i] = tokenizer.nextToken();
+    }
+    return start(commandArray, timeoutMs);
+  }
+
+  /**
+   * Starts a command and returns immediately. The returned future completes once the process has
+   * ended and all of its output has been read. Cancelling it destroys the process.
+   */
+  public Future<ProcessResult> start(String[] command, long timeoutMs) throws IOException {
+    final Process process = Runtime.getRuntime().exec(inOwnSession(command));
+    final TailBuffer output = new TailBuffer(maxOutputChars);
+    final TailBuffer error = new TailBuffer(maxOutputChars);
+    final Future<?> outputGobbler = executor.submit(gobble(process.getInputStream(), output));
+    final Future<?> errorGobbler = executor.submit(gobble(process.getErrorStream(), error));
+
+    final AtomicBoolean timedOut = new AtomicBoolean();
+    final ScheduledFuture<?> timeout = timeoutExecutor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        timedOut.set(true);
+        process.destroy();
+      }
+    }, timeoutMs, TimeUnit.MILLISECONDS);
+
+    return executor.submit(new Callable<ProcessResult>() {
+      @Override
+      public ProcessResult call() throws Exception {
+        try {
+          int exitValue = process.waitFor();
+          timeout.cancel(false);
+          // the streams are at their end once the process and its children are gone
+          awaitGobbler(outputGobbler, timedOut.get());
+          awaitGobbler(errorGobbler, timedOut.get());
+          return new ProcessResult(exitValue, timedOut.get(), output.toString(),
+              error.toString());
+        } catch (InterruptedException e) {
+          timeout.cancel(false);
+          process.destroy();
+          throw e;
+        }
+      }
+    });
+  }
+
+  private static void awaitGobbler(Future<?> gobbler, boolean timedOut)
+      throws InterruptedException, ExecutionException {
+    if (!timedOut) {
+      gobbler.get();
+      return;
+    }
+    try {
+      gobbler.get(DRAIN_AFTER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // Something outside of the process group still holds the stream open, keep what we have
+      logger.warning("Output of a destroyed process is still open, not waiting for it");
+    }
+  }
+
+  /**
+   * Wraps a command so that it runs in a new session whose processes are all killed when the
+   * process is destroyed. Without setsid the command is run as is.
+   */
+  // Visible for testing
+  static String[] inOwnSession(String[] command) {
+    if (SETSID == null) {
+      return command;
+    }
+    String[] wrapped = new String[command.length + 5];
+    wrapped[0] = SETSID;
+    wrapped[1] = "/bin/sh";
+    wrapped[2] = "-c";
+    wrapped[3] = KILL_GROUP_ON_TERM;
+    wrapped[4] = "sh";
+    System.arraycopy(command, 0, wrapped, 5, command.length);
+    return wrapped;
+  }
+
+  private static String findSetsid() {
+    for (String path : new String[] {"/usr/bin/setsid", "/bin/setsid"}) {
+      if (new File(path).canExecute()) {
+        return path;
+      }
+    }
+    logger.warning("setsid not found, children of timed out processes will not be killed");
+    return null;
+  }
+
+  private static Runnable gobble(final InputStream stream, final TailBuffer buffer) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+        char[] chars = new char[8 * 1024];
+        try {
+          int read;
+          while ((read = reader.read(chars)) != -1) {
+            buffer.append(chars, read);
+          }
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Can not read process output", e);
+        } finally {
+          IOUtils.closeQuietly(reader);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RunJournal is an append-only log of the results of the commit that is being benchmarked.
+ * <p>
+ * Every finished (module, runner) pair is appended to a file in persistenceDir as soon as it is
+ * known. If the compile server dies while benchmarking a commit, the journal is loaded on the next
+ * start and only the pairs without a result are benchmarked again. The code size of compiled
+ * modules is journaled as well, timing statistics are not. Results carried forward from an earlier
+ * commit are marked as reused, so that they are not mistaken for measured ones after a restart. A
+ * line that has only partially been written before a crash is ignored.
+ */
+@Singleton
+public class RunJournal {
+
+  /**
+   * A result read back from the journal.
+   */
+  public static class RecordedResult {
+    private final double runsPerSecond;
+    private final List<Double> forkRunsPerSecond;
+    private final boolean reused;
+
+    public RecordedResult(double runsPerSecond, List<Double> forkRunsPerSecond, boolean reused) {
+      this.runsPerSecond = runsPerSecond;
+      this.forkRunsPerSecond = Collections.unmodifiableList(forkRunsPerSecond);
+      this.reused = reused;
+    }
+
+    public double getRunsPerSecond() {
+      return runsPerSecond;
+    }
+
+    public List<Double> getForkRunsPerSecond() {
+      return forkRunsPerSecond;
+    }
+
+    /**
+     * Returns true if the result has been carried forward from an earlier commit.
+     */
+    public boolean isReused() {
+      return reused;
+    }
+  }
+
+  private static final Logger logger = Logger.getLogger(RunJournal.class.getName());
+
+  private static final String COMMIT = "commit";
+
+  private static final String COMPILED = "compiled";
+
+  private static final String RESULT = "result";
+
+  private static final String CODE_SIZE = "codeSize";
+
+  private final File journalFile;
+
+  private String commitId;
+
+  private final Map<String, String> outputHashByModule = new HashMap<>();
+
+  private final Map<String, CodeSize> codeSizeByModule = new HashMap<>();
+
+  private final Map<String, Map<String, RecordedResult>> resultsByModule = new HashMap<>();
+
+  @Inject
+  public RunJournal(@Named("persistenceDir") File persistenceDir) {
+    this.journalFile = new File(persistenceDir, "runJournal");
+  }
+
+  /**
+   * Reads the journal written by an earlier run of the compile server.
+   */
+  public synchronized void load() {
+    commitId = null;
+    outputHashByModule.clear();
+    codeSizeByModule.clear();
+    resultsByModule.clear();
+    if (!journalFile.exists()) {
+      return;
+    }
+
+    String[] lines;
+    try {
+      lines = FileUtils.readFileToString(journalFile, "UTF-8").split("\n", -1);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not read run journal, ignoring it", e);
+      return;
+    }
+
+    // The last element is empty unless the last line has been cut off
+    for (int i = 0; i < lines.length - 1; i++) {
+      String line = lines[i];
+      try {
+        replay(line.split("\t", -1));
+      } catch (RuntimeException e) {
+        logger.warning("Ignoring broken run journal entry: " + line);
+      }
+    }
+  }
+
+  /**
+   * Starts journaling the given commit. The recorded results are kept if the journal already
+   * belongs to this commit, otherwise the journal is started over.
+   *
+   * @return true if there are recorded results of the commit
+   */
+  public synchronized boolean startCommit(String commitId) {
+    if (commitId.equals(this.commitId)) {
+      return true;
+    }
+
+    this.commitId = commitId;
+    outputHashByModule.clear();
+    codeSizeByModule.clear();
+    resultsByModule.clear();
+    try {
+      FileUtils.writeStringToFile(journalFile, COMMIT + "\t" + commitId + "\n",
+          "UTF-8");
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not start run journal", e);
+    }
+    return false;
+  }
+
+  /**
+   * Returns the recorded results of a module by the name of their runner.
+   */
+  public synchronized Map<String, RecordedResult> getRecordedResults(String moduleName) {
+    Map<String, RecordedResult> results = resultsByModule.get(moduleName);
+    return results == null ? Collections.<String, RecordedResult> emptyMap()
+        : new HashMap<>(results);
+  }
+
+  public synchronized String getOutputHash(String moduleName) {
+    return outputHashByModule.get(moduleName);
+  }
+
+  public synchronized void recordOutputHash(String moduleName, String outputHash) {
+    if (outputHash == null) {
+      return;
+    }
+    outputHashByModule.put(moduleName, outputHash);
+    append(COMPILED, moduleName, outputHash);
+  }
+
+  public synchronized CodeSize getCodeSize(String moduleName) {
+    return codeSizeByModule.get(moduleName);
+  }
+
+  public synchronized void recordCodeSize(String moduleName, CodeSize codeSize) {
+    codeSizeByModule.put(moduleName, codeSize);
+
+    StringBuilder permutations = new StringBuilder();
+    for (CodeSize.PermutationSize permutation : codeSize.getPermutations()) {
+      if (permutations.length() > 0) {
+        permutations.append(",");
+      }
+      permutations.append(permutation.getFileName()).append(":").append(permutation.getBytes())
+          .append(":").append(permutation.getGzipBytes());
+    }
+    append(CODE_SIZE, moduleName, permutations.toString());
+  }
+
+  public synchronized void recordResult(String moduleName, RunnerConfig config,
+      double runsPerSecond, List<Double> forkRunsPerSecond, boolean reused) {
+    addResult(moduleName, config.toString(),
+        new RecordedResult(runsPerSecond, new ArrayList<>(forkRunsPerSecond), reused));
+
+    StringBuilder forks = new StringBuilder();
+    for (Double fork : forkRunsPerSecond) {
+      if (forks.length() > 0) {
+        forks.append(",");
+      }
+      forks.append(fork);
+    }
+    append(RESULT, moduleName, config.toString(), Double.toString(runsPerSecond),
+        forks.toString(), Boolean.toString(reused));
+  }
+
+  private void replay(String[] fields) {
+    switch (fields[0]) {
+      case COMMIT:
+        commitId = fields[1];
+        break;
+      case COMPILED:
+        outputHashByModule.put(fields[1], fields[2]);
+        break;
+      case RESULT:
+        List<Double> forks = new ArrayList<>();
+        if (!fields[4].isEmpty()) {
+          for (String fork : fields[4].split(",")) {
+            forks.add(Double.parseDouble(fork));
+          }
+        }
+        // journals of older versions have no reused field
+        boolean reused = fields.length > 5 && Boolean.parseBoolean(fields[5]);
+        addResult(fields[1], fields[2],
+            new RecordedResult(Double.parseDouble(fields[3]), forks, reused));
+        break;
+      case CODE_SIZE:
+        List<CodeSize.PermutationSize> permutations = new ArrayList<>();
+        for (String permutation : fields[2].split(",")) {
+          String[] sizes = permutation.split(":");
+          permutations.add(new CodeSize.PermutationSize(sizes[0], Long.parseLong(sizes[1]),
+              Long.parseLong(sizes[2])));
+        }
+        codeSizeByModule.put(fields[1], new CodeSize(permutations));
+        break;
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+
+  private void addResult(String moduleName, String runnerName, RecordedResult result) {
+    Map<String, RecordedResult> results = resultsByModule.get(moduleName);
+    if (results == null) {
+      results = new HashMap<>();
+      resultsByModule.put(moduleName, results);
+    }
+    results.put(runnerName, result);
+  }
+
+  private void append(String... fields) {
+    StringBuilder line = new StringBuilder();
+    for (String field : fields) {
+      if (line.length() > 0) {
+        line.append("\t");
+      }
+      line.append(field);
+    }
+    line.append("\n");
+
+    OutputStream stream = null;
+    try {
+      stream = new FileOutputStream(journalFile, true);
+      stream.write(line.toString().getBytes(StandardCharsets.UTF_8));
+      stream.flush();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not append to run journal", e);
+    } finally {
+      IOUtils.closeQuietly(stream);
+    }
+  }
+}
@@ -51,6 +51,15 @@ public interface Runner extends Runnable {
    */
   double getResult();
 
+  /**
+   * The times of all individual runs of the benchmark and statistics derived from them.
+   * <p>
+   * Note: this is only available if {@link #isDone()} returns true.
+   *
+   * @return the timing statistics of the run or null if the runner can not provide them
+   */
+  TimingStatistics getTimingStatistics();
+
   /**
    * Is the runner done with execution of the benchmark.
    *
@@ -25,13 +25,31 @@ public interface RunnerConfig {
    * Enum for all supported browsers.
    */
   public enum Browser {
-    CHROME("chrome"), FIREFOX("firefox"), INTERNET_EXPLORER("ie"), SAFARI("safari");
+    CHROME("chrome"), FIREFOX("firefox"), INTERNET_EXPLORER("ie"), SAFARI("safari"),
+    /** A command line JavaScript shell, runs on the compile server without WebDriver */
+    D8("d8"),
+    /** The Java source of a benchmark on a JVM of the compile server, runs without WebDriver */
+    JVM("jvm");
     private String value;
 
     Browser(String value) {
       this.value = value;
     }
 
+    /**
+     * Returns the browser with the given value.
+     *
+     * @throws IllegalArgumentException if there is no such browser
+     */
+    public static Browser fromValue(String value) {
+      for (Browser browser : values()) {
+        if (browser.value.equals(value)) {
+          return browser;
+        }
+      }
+      throw new IllegalArgumentException("Unknown browser " + value);
+    }
+
     public String getValue() {
       return value;
     }
@@ -53,6 +71,20 @@ public interface RunnerConfig {
       this.value = value;
     }
 
+    /**
+     * Returns the operating system with the given value.
+     *
+     * @throws IllegalArgumentException if there is no such operating system
+     */
+    public static OS fromValue(String value) {
+      for (OS os : values()) {
+        if (os.value.equals(value)) {
+          return os;
+        }
+      }
+      throw new IllegalArgumentException("Unknown operating system " + value);
+    }
+
     public String getValue() {
       return value;
     }
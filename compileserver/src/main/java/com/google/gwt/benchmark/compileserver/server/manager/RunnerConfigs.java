@@ -56,6 +56,20 @@ public final class RunnerConfigs {
       }
       return id;
     }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof RunnerConfigImpl)) {
+        return false;
+      }
+      RunnerConfigImpl other = (RunnerConfigImpl) obj;
+      return browser == other.browser && os == other.os && version.equals(other.version);
+    }
+
+    @Override
+    public int hashCode() {
+      return toString().hashCode();
+    }
   }
 
   /** Chrome on linux */
@@ -70,6 +84,20 @@ public final class RunnerConfigs {
   /** IE10 on windows */
   public static final RunnerConfig IE10_WIN =
       new RunnerConfigImpl(Browser.INTERNET_EXPLORER, OS.WINDOWS, RunnerConfig.IE_10_VERSION);
+  /** The d8 shell on the linux box of the compile server */
+  public static final RunnerConfig D8_LINUX =
+      new RunnerConfigImpl(Browser.D8, OS.LINUX, "");
+  /** A JVM on the linux box of the compile server */
+  public static final RunnerConfig JVM_LINUX =
+      new RunnerConfigImpl(Browser.JVM, OS.LINUX, "");
+
+  /**
+   * Creates a config for runners that have no constant. Configs with the same browser, OS and
+   * version are equal.
+   */
+  public static RunnerConfig create(Browser browser, OS os, String version) {
+    return new RunnerConfigImpl(browser, os, version);
+  }
 
   private RunnerConfigs() {}
 }
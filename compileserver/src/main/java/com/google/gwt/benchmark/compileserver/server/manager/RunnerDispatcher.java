@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+
+/**
+ * RunnerDispatcher connects the compile stage with the runner stage.
+ * <p>
+ * Compiled modules are handed over together with their runners. The runners are executed on the
+ * runner pool while the compiling thread is free to compile the next module. Only a limited number
+ * of compiled modules can be waiting for or executing on runners at the same time. If that limit is
+ * reached {@link #dispatch(List, Callback)} blocks, so that compiler output does not pile up on
+ * disk while the browsers are busy.
+ * <p>
+ * Every runner in the {@link RunnerRegistry} has its own queue. A queued runner is handed to the
+ * runner pool as soon as its runner has a free session, so a busy browser neither blocks threads of
+ * the pool nor the runners of other browsers.
+ * <p>
+ * Runners of one module that share a {@link RunnerConfig} are forks of the same measurement. They
+ * run one after another, so that they do not compete with each other for the same machine.
+ */
+@Singleton
+public class RunnerDispatcher {
+
+  /**
+   * Callback that is invoked once all runners of a module have finished.
+   */
+  public interface Callback {
+    /**
+     * Called on the thread of the last runner that finished.
+     *
+     * @param unexpectedErrors for each runner (in dispatch order) the message of an unexpected
+     *        exception the runner threw, or null if the runner returned normally
+     */
+    void onRunnersDone(List<String> unexpectedErrors);
+  }
+
+  private static final Logger logger = Logger.getLogger(RunnerDispatcher.class.getName());
+
+  private final ExecutorService runnerPool;
+  private final Semaphore compiledModules;
+  private final RunnerRegistry runnerRegistry;
+
+  private final Map<RunnerConfig, Deque<Runnable>> waitingJobsByConfig = new HashMap<>();
+
+  private final Map<RunnerConfig, Integer> busySessionsByConfig = new HashMap<>();
+
+  @Inject
+  public RunnerDispatcher(@Named("runnerPool") ExecutorService runnerPool,
+      @Named("compiledModuleQueueSize") int compiledModuleQueueSize,
+      RunnerRegistry runnerRegistry) {
+    this.runnerPool = runnerPool;
+    this.compiledModules = new Semaphore(compiledModuleQueueSize, true);
+    this.runnerRegistry = runnerRegistry;
+  }
+
+  /**
+   * Executes all runners of one compiled module on the runner pool.
+   * <p>
+   * This method returns as soon as the runners are queued and blocks only if too many compiled
+   * modules are already waiting for runners. Runners of the same {@link RunnerConfig} run one after
+   * another in the order they have been dispatched, each one is only queued once the one before it
+   * has finished.
+   */
+  public void dispatch(List<Runner> runners, final Callback callback)
+      throws InterruptedException {
+    compiledModules.acquire();
+
+    if (runners.isEmpty()) {
+      compiledModules.release();
+      callback.onRunnersDone(Collections.<String>emptyList());
+      return;
+    }
+
+    new ModuleRun(runners, callback).start();
+  }
+
+  /**
+   * The runners of one dispatched module.
+   */
+  private class ModuleRun {
+    private final List<Runner> runners;
+    private final Callback callback;
+    private final List<String> unexpectedErrors;
+    private final AtomicInteger pendingRunners;
+
+    /**
+     * Indexes of the runners that wait for an earlier runner of their config to finish. Every
+     * queue is only used by the runner of its config that is currently running.
+     */
+    private final Map<RunnerConfig, Deque<Integer>> laterRunnersByConfig = new HashMap<>();
+
+    ModuleRun(List<Runner> runners, Callback callback) {
+      this.runners = runners;
+      this.callback = callback;
+      this.unexpectedErrors = Collections.synchronizedList(
+          new ArrayList<String>(Collections.nCopies(runners.size(), (String) null)));
+      this.pendingRunners = new AtomicInteger(runners.size());
+    }
+
+    void start() {
+      List<Integer> firstRunners = new ArrayList<>();
+      for (int i = 0; i < runners.size(); i++) {
+        RunnerConfig config = runners.get(i).getConfig();
+        Deque<Integer> laterRunners = laterRunnersByConfig.get(config);
+        if (laterRunners == null) {
+          laterRunnersByConfig.put(config, new ArrayDeque<Integer>());
+          firstRunners.add(i);
+        } else {
+          laterRunners.add(i);
+        }
+      }
+
+      for (int index : firstRunners) {
+        submitRunner(index, false);
+      }
+    }
+
+    private void submitRunner(final int index, boolean first) {
+      final Runner runner = runners.get(index);
+      submit(runner.getConfig(), first, new Runnable() {
+        @Override
+        public void run() {
+          try {
+            runner.run();
+          } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Runner failed unexpectedly", e);
+            unexpectedErrors.set(index, "Runner failed unexpectedly: " + e.getMessage());
+          } finally {
+            // even an Error must not keep the module from finishing or its slot from being freed
+            try {
+              Integer next = laterRunnersByConfig.get(runner.getConfig()).poll();
+              if (next != null) {
+                // the next fork takes over the session right away
+                submitRunner(next, true);
+              }
+              onSessionFreed(runner.getConfig());
+            } finally {
+              if (pendingRunners.decrementAndGet() == 0) {
+                compiledModules.release();
+                callback.onRunnersDone(unexpectedErrors);
+              }
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns how many runners of the given config are waiting for a free session.
+   */
+  public synchronized int getWaitingRunners(RunnerConfig config) {
+    Deque<Runnable> waitingJobs = waitingJobsByConfig.get(config);
+    return waitingJobs == null ? 0 : waitingJobs.size();
+  }
+
+  /**
+   * Queues a job for a free session of its runner, ahead of all other waiting jobs if first is set.
+   */
+  private void submit(RunnerConfig config, boolean first, Runnable job) {
+    if (!isLimited(config)) {
+      runnerPool.execute(job);
+      return;
+    }
+
+    synchronized (this) {
+      Deque<Runnable> waitingJobs = waitingJobsByConfig.get(config);
+      if (waitingJobs == null) {
+        waitingJobs = new ArrayDeque<>();
+        waitingJobsByConfig.put(config, waitingJobs);
+      }
+      if (first) {
+        waitingJobs.addFirst(job);
+      } else {
+        waitingJobs.add(job);
+      }
+    }
+    startWaitingJobs(config);
+  }
+
+  private void onSessionFreed(RunnerConfig config) {
+    if (!isLimited(config)) {
+      return;
+    }
+
+    synchronized (this) {
+      busySessionsByConfig.put(config, busySessionsByConfig.get(config) - 1);
+    }
+    startWaitingJobs(config);
+  }
+
+  /**
+   * Hands waiting runners to the pool while their runner has free sessions.
+   */
+  private void startWaitingJobs(RunnerConfig config) {
+    List<Runnable> jobs = new ArrayList<>();
+    synchronized (this) {
+      Deque<Runnable> waitingJobs = waitingJobsByConfig.get(config);
+      Integer busySessions = busySessionsByConfig.get(config);
+      int busy = busySessions == null ? 0 : busySessions;
+      int maxSessions = runnerRegistry.getEntry(config).getMaxSessions();
+      while (busy < maxSessions && waitingJobs != null && !waitingJobs.isEmpty()) {
+        jobs.add(waitingJobs.poll());
+        busy++;
+      }
+      busySessionsByConfig.put(config, busy);
+    }
+
+    for (Runnable job : jobs) {
+      runnerPool.execute(job);
+    }
+  }
+
+  /**
+   * Runners that are not in the registry are not limited.
+   */
+  private boolean isLimited(RunnerConfig config) {
+    return config != null && runnerRegistry.contains(config);
+  }
+}
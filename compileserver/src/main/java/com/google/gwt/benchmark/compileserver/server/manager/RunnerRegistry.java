@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RunnerRegistry holds all runners the compile server benchmarks on, as declared in the settings
+ * file, together with how they are reached and how many benchmarks each of them can run at the same
+ * time.
+ * <p>
+ * {@link RunnerDispatcher} limits every runner to its number of sessions. Giving a runner more
+ * capacity, e.g. after adding another Chrome node to the selenium grid, only takes raising its
+ * maxSessions.
+ */
+public class RunnerRegistry {
+
+  /**
+   * A runner and its settings.
+   */
+  public static class Entry {
+    private final RunnerConfig config;
+    private final URL hubUrl;
+    private final int maxSessions;
+    private final int timeoutSeconds;
+
+    /**
+     * @param hubUrl the selenium hub of the runner or null if it runs on the compile server
+     */
+    public Entry(RunnerConfig config, URL hubUrl, int maxSessions, int timeoutSeconds) {
+      if (maxSessions < 1) {
+        throw new IllegalArgumentException("Runner " + config + " needs at least one session");
+      }
+      this.config = config;
+      this.hubUrl = hubUrl;
+      this.maxSessions = maxSessions;
+      this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public RunnerConfig getConfig() {
+      return config;
+    }
+
+    public URL getHubUrl() {
+      return hubUrl;
+    }
+
+    public int getMaxSessions() {
+      return maxSessions;
+    }
+
+    public long getTimeoutMs() {
+      return timeoutSeconds * 1000L;
+    }
+  }
+
+  private final Map<RunnerConfig, Entry> entriesByConfig = new LinkedHashMap<>();
+
+  public RunnerRegistry(List<Entry> entries) {
+    for (Entry entry : entries) {
+      if (entriesByConfig.put(entry.getConfig(), entry) != null) {
+        throw new IllegalArgumentException("Runner " + entry.getConfig()
+            + " is declared twice, give it more sessions instead");
+      }
+    }
+  }
+
+  /**
+   * Returns all runners in the order they have been declared.
+   */
+  public List<RunnerConfig> getRunners() {
+    return new ArrayList<>(entriesByConfig.keySet());
+  }
+
+  public boolean contains(RunnerConfig config) {
+    return entriesByConfig.containsKey(config);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the runner is not registered
+   */
+  public Entry getEntry(RunnerConfig config) {
+    Entry entry = entriesByConfig.get(config);
+    if (entry == null) {
+      throw new IllegalArgumentException("Unknown runner " + config);
+    }
+    return entry;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * StatusEventLog records which benchmark runs changed, so that status pages only need to fetch
+ * the runs that changed since they last looked.
+ * <p>
+ * Every change increments a version. Clients remember the version they have seen and wait for
+ * changes after it with {@link #awaitChanges(long, long)}. Changes that affect everything, like
+ * starting or stopping the system, are recorded as a reset, which tells clients to reload all of
+ * their state.
+ * <p>
+ * The upper bits of every version hold an epoch that is picked when the log is created. A client
+ * that still holds a version of an earlier server instance therefore always gets a reset, no
+ * matter how many changes either instance has seen.
+ */
+public class StatusEventLog {
+
+  /**
+   * The changes after a given version.
+   */
+  public static class Changes {
+    private final long version;
+    private final boolean reset;
+    private final Set<String> changedModules;
+
+    public Changes(long version, boolean reset, Set<String> changedModules) {
+      this.version = version;
+      this.reset = reset;
+      this.changedModules = Collections.unmodifiableSet(changedModules);
+    }
+
+    /**
+     * Returns the version these changes bring the client to.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns true if the client needs to reload all of its state.
+     */
+    public boolean isReset() {
+      return reset;
+    }
+
+    public Set<String> getChangedModules() {
+      return changedModules;
+    }
+  }
+
+  private static final int EPOCH_SHIFT = 32;
+
+  /**
+   * Keeps versions below 2^53 so that they survive a round trip through a JavaScript number.
+   */
+  private static final int EPOCH_BOUND = 1 << 20;
+
+  private final long epoch;
+
+  private long version;
+
+  private long resetVersion;
+
+  private final Map<String, Long> versionByModule = new HashMap<>();
+
+  public StatusEventLog() {
+    this(new Random().nextInt(EPOCH_BOUND));
+  }
+
+  // Visible for testing
+  StatusEventLog(long epoch) {
+    this.epoch = epoch;
+    version = epoch << EPOCH_SHIFT;
+    resetVersion = version;
+  }
+
+  public synchronized long getVersion() {
+    return version;
+  }
+
+  public synchronized void onModuleChanged(String moduleName) {
+    version++;
+    versionByModule.put(moduleName, version);
+    notifyAll();
+  }
+
+  public synchronized void onReset() {
+    version++;
+    resetVersion = version;
+    versionByModule.clear();
+    notifyAll();
+  }
+
+  /**
+   * Waits until there are changes after the given version or until the timeout expires. If it
+   * expires the returned changes are empty.
+   */
+  public synchronized Changes awaitChanges(long sinceVersion, long timeoutMs)
+      throws InterruptedException {
+    long endMs = System.currentTimeMillis() + timeoutMs;
+    long remainingMs = timeoutMs;
+    while (version == sinceVersion && remainingMs > 0) {
+      wait(remainingMs);
+      remainingMs = endMs - System.currentTimeMillis();
+    }
+
+    // A version from another instance of the server or from before a reset
+    if (sinceVersion >>> EPOCH_SHIFT != epoch || sinceVersion < resetVersion
+        || sinceVersion > version) {
+      return new Changes(version, true, Collections.<String> emptySet());
+    }
+
+    Set<String> changedModules = new HashSet<>();
+    for (Entry<String, Long> entry : versionByModule.entrySet()) {
+      if (entry.getValue() > sinceVersion) {
+        changedModules.add(entry.getKey());
+      }
+    }
+    return new Changes(version, false, changedModules);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TimingStatistics contains the times of all individual runs of a benchmark as measured in the
+ * browser together with the statistics the benchmark framework derived from them.
+ * <p>
+ * Instances are immutable.
+ */
+public class TimingStatistics {
+
+  private final List<Double> samplesMs;
+  private final double meanMs;
+  private final double medianMs;
+  private final double p90Ms;
+  private final double p99Ms;
+  private final double stdDevMs;
+  private final double minMs;
+  private final double maxMs;
+  private final int warmupRuns;
+  private final double relativeMarginOfError;
+
+  public TimingStatistics(List<Double> samplesMs, double meanMs, double medianMs, double p90Ms,
+      double p99Ms, double stdDevMs, double minMs, double maxMs) {
+    this(samplesMs, meanMs, medianMs, p90Ms, p99Ms, stdDevMs, minMs, maxMs, 0, 0);
+  }
+
+  public TimingStatistics(List<Double> samplesMs, double meanMs, double medianMs, double p90Ms,
+      double p99Ms, double stdDevMs, double minMs, double maxMs, int warmupRuns,
+      double relativeMarginOfError) {
+    this.samplesMs = Collections.unmodifiableList(new ArrayList<>(samplesMs));
+    this.meanMs = meanMs;
+    this.medianMs = medianMs;
+    this.p90Ms = p90Ms;
+    this.p99Ms = p99Ms;
+    this.stdDevMs = stdDevMs;
+    this.minMs = minMs;
+    this.maxMs = maxMs;
+    this.warmupRuns = warmupRuns;
+    this.relativeMarginOfError = relativeMarginOfError;
+  }
+
+  public List<Double> getSamplesMs() {
+    return samplesMs;
+  }
+
+  public double getMeanMs() {
+    return meanMs;
+  }
+
+  public double getMedianMs() {
+    return medianMs;
+  }
+
+  public double getP90Ms() {
+    return p90Ms;
+  }
+
+  public double getP99Ms() {
+    return p99Ms;
+  }
+
+  public double getStdDevMs() {
+    return stdDevMs;
+  }
+
+  public double getMinMs() {
+    return minMs;
+  }
+
+  public double getMaxMs() {
+    return maxMs;
+  }
+
+  /**
+   * Returns how many runs were discarded as warmup, 0 for benchmarks that ran for a fixed time.
+   */
+  public int getWarmupRuns() {
+    return warmupRuns;
+  }
+
+  /**
+   * Returns the half width of the 95% confidence interval of the mean relative to the mean or 0 if
+   * the benchmark did not determine it.
+   */
+  public double getRelativeMarginOfError() {
+    return relativeMarginOfError;
+  }
+}
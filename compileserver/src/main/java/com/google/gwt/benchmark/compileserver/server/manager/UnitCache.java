@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UnitCache manages the directory for GWT's persistent unit cache.
+ * <p>
+ * All modules of one SDK build share the same cache directory, so that the JRE emulation and the
+ * shared benchmark code is only compiled once per commit. The directory is keyed by the hash of
+ * gwt-dev.jar, since compiled units can not be reused with a different compiler. Directories of
+ * older SDK builds are deleted once a new SDK build is seen.
+ * <p>
+ * Only compiles that start a JVM per module through {@link CliInteractor} use this cache.
+ * {@link InProcessCompiler} keeps its units in memory instead.
+ */
+@Singleton
+public class UnitCache {
+
+  private static final Logger logger = Logger.getLogger(UnitCache.class.getName());
+
+  private final File unitCacheRoot;
+
+  private String lastJarStamp;
+
+  private File lastCacheDir;
+
+  @Inject
+  public UnitCache(@Named("persistenceDir") File persistenceDir) {
+    this.unitCacheRoot = new File(persistenceDir, "unitCache");
+  }
+
+  /**
+   * Returns the unit cache directory for the SDK build the given gwt-dev.jar belongs to.
+   */
+  public synchronized File getDirectory(File gwtDevJar) throws BenchmarkCompilerException {
+    // Hashing the jar is expensive, only do it if the jar has changed
+    String jarStamp =
+        gwtDevJar.getAbsolutePath() + ":" + gwtDevJar.lastModified() + ":" + gwtDevJar.length();
+    if (jarStamp.equals(lastJarStamp)) {
+      return lastCacheDir;
+    }
+
+    File cacheDir = new File(unitCacheRoot, hash(gwtDevJar));
+    deleteOtherDirectories(cacheDir);
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+      logger.warning("Can not create unit cache directory " + cacheDir.getAbsolutePath());
+      throw new BenchmarkCompilerException(
+          "Can not create unit cache directory " + cacheDir.getAbsolutePath());
+    }
+
+    lastJarStamp = jarStamp;
+    lastCacheDir = cacheDir;
+    return cacheDir;
+  }
+
+  private void deleteOtherDirectories(File cacheDir) {
+    File[] dirs = unitCacheRoot.listFiles();
+    if (dirs == null) {
+      return;
+    }
+
+    for (File dir : dirs) {
+      if (!dir.equals(cacheDir)) {
+        logger.info("Deleting stale unit cache " + dir.getAbsolutePath());
+        FileUtils.deleteQuietly(dir);
+      }
+    }
+  }
+
+  private static String hash(File file) throws BenchmarkCompilerException {
+    try {
+      return FileHashes.sha1(file);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Can not hash " + file.getAbsolutePath(), e);
+      throw new BenchmarkCompilerException("Can not hash " + file.getAbsolutePath(), e);
+    }
+  }
+}
@@ -14,12 +14,15 @@
 package com.google.gwt.benchmark.compileserver.server.manager;
 
 import com.google.inject.assistedinject.Assisted;
-import com.google.inject.name.Named;
 
-import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.remote.RemoteWebDriver;
 
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,92 +30,73 @@ import javax.inject.Inject;
 
 /**
  * WebDriverRunner uses Webdriver to remotely control a browser to run a benchmark.
+ * <p>
+ * Browser sessions are borrowed from the {@link WebDriverSessionPool}. Sessions that timed out or
+ * threw are handed back as broken so they get recycled.
  */
 public class WebDriverRunner implements Runner {
-  private static final String IS_READY_JS = "return !!window.__gwt__benchmarking__ran";
-  private static final String IS_FAILED_JS = "return !!window.__gwt__benchmarking__failed";
-  private static final String GET_RESULT_JS = "return window.__gwt__benchmarking__result";
-  private static final int TIMEOUT_MS = 60000;
+  /**
+   * Returns [failed, result, samples, statistics] as soon as the benchmark has finished. The
+   * benchmark framework invokes __gwt__benchmarking__onDone once results are published.
+   */
+  private static final String WAIT_FOR_BENCHMARK_JS =
+      "var callback = arguments[arguments.length - 1];"
+      + "var done = function() {"
+      + "  callback([!!window.__gwt__benchmarking__failed,"
+      + "      window.__gwt__benchmarking__result || 0,"
+      + "      window.__gwt__benchmarking__samples || null,"
+      + "      window.__gwt__benchmarking__statistics || null]);"
+      + "};"
+      + "if (window.__gwt__benchmarking__ran) {"
+      + "  done();"
+      + "  return;"
+      + "}"
+      + "window.__gwt__benchmarking__onDone = done;";
+  private static final int MAX_SCRIPT_ATTEMPTS = 5;
+  private static final int SCRIPT_RETRY_WAIT_MS = 200;
   private static final Logger logger = Logger.getLogger(WebDriverRunner.class.getName());
 
-  private static DesiredCapabilities createCapabilities(RunnerConfig config) {
-    switch(config.getBrowser()) {
-      case CHROME:
-        return DesiredCapabilities.chrome();
-      case FIREFOX:
-        return DesiredCapabilities.firefox();
-      case INTERNET_EXPLORER:
-        DesiredCapabilities internetExplorer = DesiredCapabilities.internetExplorer();
-        if(RunnerConfig.IE_11_VERSION.equals(config.getBrowserVersion())) {
-          internetExplorer.setVersion("11");
-          return internetExplorer;
-        }
-        if(RunnerConfig.IE_10_VERSION.equals(config.getBrowserVersion())) {
-          internetExplorer.setVersion("10");
-          return internetExplorer;
-        }
-        throw new RuntimeException("No IE version for " + config.getBrowserVersion());
-      default:
-        throw new RuntimeException("No binding for " + config.getBrowser());
-    }
-  }
-
   private boolean done;
   private double result;
+  private TimingStatistics timingStatistics;
   private String errorMessage;
   private String url;
   private RunnerConfig config;
-  private URL hubURL;
+  private WebDriverSessionPool sessionPool;
+  private RunnerRegistry runnerRegistry;
   private boolean failed = false;
 
   @Inject
   public WebDriverRunner(@Assisted RunnerConfig config, @Assisted String url,
-      @Named("hubUrl") URL hubUrl) {
+      WebDriverSessionPool sessionPool, RunnerRegistry runnerRegistry) {
     this.config = config;
     this.url = url;
-    this.hubURL = hubUrl;
+    this.sessionPool = sessionPool;
+    this.runnerRegistry = runnerRegistry;
   }
 
   @Override
   public void run() {
     logger.info("Starting webdriver for " + url);
 
-    DesiredCapabilities capabilities = createCapabilities(config);
-    RemoteWebDriver driver = null;
+    WebDriverSessionPool.Session session = null;
+    boolean sessionHealthy = false;
     try {
-      driver = new RemoteWebDriver(hubURL, capabilities);
+      session = sessionPool.acquire(config);
+      RemoteWebDriver driver = session.getDriver();
       driver.navigate().to(url);
 
-      long startMs = System.currentTimeMillis();
-
-      // Initial wait since IE11 has issues running JS before the page has loaded
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException ignored) {
-      }
-
       // Wait till the benchmark has finished running.
-      while (true) {
-        boolean isReady = (Boolean) driver.executeScript(IS_READY_JS, new Object[] {});
-        if (isReady) {
-          break;
-        }
-        if (System.currentTimeMillis() - startMs > TIMEOUT_MS) {
-          this.failed = true;
-          logger.info("Timeout webdriver for " + url);
-
-          failed = true;
-          errorMessage = "Timeout";
-          return;
-        }
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException ignored) {
-        }
+      List<?> status = waitForBenchmark(driver);
+      if (status == null) {
+        logger.info("Timeout webdriver for " + url);
+        failed = true;
+        errorMessage = "Timeout";
+        return;
       }
 
       // Read and report status.
-      boolean failed = (Boolean) driver.executeScript(IS_FAILED_JS, new Object[] {});
+      boolean failed = (Boolean) status.get(0);
       if (failed) {
         this.failed = true;
         this.errorMessage =
@@ -120,16 +104,81 @@ public class WebDriverRunner implements Runner {
         logger.info("Benchmark failed to run for " + url);
       } else {
 
-        result = ((Number) driver.executeScript(GET_RESULT_JS, new Object[] {})).doubleValue();
+        result = ((Number) status.get(1)).doubleValue();
+        timingStatistics = createTimingStatistics(status.get(2), status.get(3));
         done = true;
       }
+      // The browser behaved, the failure (if any) is within the benchmark
+      sessionHealthy = true;
     } catch (Exception e) {
       logger.log(Level.INFO, "Error while running webdriver for " + url, e);
       failed = true;
       errorMessage = "Unexpected excpetion during webdriver run: " + e.getMessage();
     } finally {
-      if (driver != null) {
-        driver.quit();
+      if (session != null) {
+        sessionPool.release(session, sessionHealthy);
+      }
+    }
+  }
+
+  /**
+   * Converts the samples and statistics the benchmark framework published on the page.
+   *
+   * @return the statistics or null if the page did not publish them (older framework)
+   */
+  private static TimingStatistics createTimingStatistics(Object samples, Object statistics) {
+    if (!(samples instanceof List) || !(statistics instanceof Map)) {
+      return null;
+    }
+
+    List<Double> samplesMs = new ArrayList<>();
+    for (Object sample : (List<?>) samples) {
+      samplesMs.add(((Number) sample).doubleValue());
+    }
+    Map<?, ?> values = (Map<?, ?>) statistics;
+    return new TimingStatistics(samplesMs, getDouble(values, "mean"), getDouble(values, "median"),
+        getDouble(values, "p90"), getDouble(values, "p99"), getDouble(values, "stdDev"),
+        getDouble(values, "min"), getDouble(values, "max"),
+        (int) getDouble(values, "warmupRuns", 0),
+        getDouble(values, "relativeMarginOfError", 0));
+  }
+
+  private static double getDouble(Map<?, ?> values, String key) {
+    return getDouble(values, key, Double.NaN);
+  }
+
+  private static double getDouble(Map<?, ?> values, String key, double defaultValue) {
+    Object value = values.get(key);
+    return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+  }
+
+  /**
+   * Blocks until the page reports that the benchmark has finished.
+   *
+   * @return [failed, result] or null if the benchmark did not finish within the timeout of the
+   *         runner
+   */
+  private List<?> waitForBenchmark(RemoteWebDriver driver) throws InterruptedException {
+    long timeoutMs = runnerRegistry.getEntry(config).getTimeoutMs();
+    long startMs = System.currentTimeMillis();
+    int attempt = 0;
+    while (true) {
+      long remainingMs = timeoutMs - (System.currentTimeMillis() - startMs);
+      if (remainingMs <= 0) {
+        return null;
+      }
+      driver.manage().timeouts().setScriptTimeout(remainingMs, TimeUnit.MILLISECONDS);
+      try {
+        return (List<?>) driver.executeAsyncScript(WAIT_FOR_BENCHMARK_JS);
+      } catch (TimeoutException e) {
+        return null;
+      } catch (WebDriverException e) {
+        // IE11 sometimes refuses to run scripts while the page is still loading
+        if (++attempt >= MAX_SCRIPT_ATTEMPTS) {
+          throw e;
+        }
+        logger.log(Level.INFO, "Can not wait for benchmark yet, retrying " + url, e);
+        Thread.sleep(SCRIPT_RETRY_WAIT_MS);
       }
     }
   }
@@ -139,6 +188,11 @@ public class WebDriverRunner implements Runner {
     return result;
   }
 
+  @Override
+  public TimingStatistics getTimingStatistics() {
+    return timingStatistics;
+  }
+
   @Override
   public boolean isDone() {
     return done;
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.Browser;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WebDriverSessionPool keeps browser sessions alive between benchmark runs.
+ * <p>
+ * Starting a browser through the selenium grid takes several seconds (even more for IE), so
+ * sessions are reused across modules for the same {@link RunnerConfig}. A session is checked before
+ * it is handed out again and is quit if it does not respond, has been idle for too long or has been
+ * used too many times. Runners return a session as broken if anything went wrong during a run, so
+ * that the next run starts with a fresh browser. Sessions that sit in the pool for too long are
+ * also quit periodically, so that they do not hold on to grid slots, and all pooled sessions are
+ * quit when benchmarking stops.
+ */
+@Singleton
+public class WebDriverSessionPool {
+
+  /**
+   * Creates new browser sessions.
+   */
+  public interface WebDriverFactory {
+    RemoteWebDriver create(RunnerConfig config);
+  }
+
+  /**
+   * Creates browser sessions on the selenium hub of their runner.
+   */
+  public static class RemoteWebDriverFactory implements WebDriverFactory {
+
+    // Visible for testing
+    static DesiredCapabilities createCapabilities(RunnerConfig config) {
+      DesiredCapabilities capabilities;
+      switch(config.getBrowser()) {
+        case CHROME:
+          capabilities = DesiredCapabilities.chrome();
+          break;
+        case FIREFOX:
+          capabilities = DesiredCapabilities.firefox();
+          break;
+        case INTERNET_EXPLORER:
+          capabilities = DesiredCapabilities.internetExplorer();
+          break;
+        case SAFARI:
+          capabilities = DesiredCapabilities.safari();
+          break;
+        default:
+          throw new RuntimeException("No binding for " + config.getBrowser());
+      }
+
+      String version = config.getBrowserVersion();
+      // IE versions are called IE10 and IE11 in the ids of their results
+      if (config.getBrowser() == Browser.INTERNET_EXPLORER && version.startsWith("IE")) {
+        version = version.substring("IE".length());
+      }
+      if (!version.isEmpty()) {
+        capabilities.setVersion(version);
+      }
+      return capabilities;
+    }
+
+    private RunnerRegistry runnerRegistry;
+
+    @Inject
+    public RemoteWebDriverFactory(RunnerRegistry runnerRegistry) {
+      this.runnerRegistry = runnerRegistry;
+    }
+
+    @Override
+    public RemoteWebDriver create(RunnerConfig config) {
+      return new RemoteWebDriver(runnerRegistry.getEntry(config).getHubUrl(),
+          createCapabilities(config));
+    }
+  }
+
+  /**
+   * A browser session handed out by the pool.
+   */
+  public static class Session {
+    private final RunnerConfig config;
+    private final RemoteWebDriver driver;
+    private int uses;
+    private long lastUsedMs;
+
+    private Session(RunnerConfig config, RemoteWebDriver driver) {
+      this.config = config;
+      this.driver = driver;
+    }
+
+    public RemoteWebDriver getDriver() {
+      return driver;
+    }
+  }
+
+  private static final Logger logger = Logger.getLogger(WebDriverSessionPool.class.getName());
+
+  private static final long MIN_EVICTION_INTERVAL_MS = 1000;
+
+  private final WebDriverFactory webDriverFactory;
+
+  private final int maxUses;
+
+  private final long maxIdleMs;
+
+  private final Map<RunnerConfig, Deque<Session>> idleSessionsByConfig = new HashMap<>();
+
+  @Inject
+  public WebDriverSessionPool(WebDriverFactory webDriverFactory,
+      @Named("webDriverSessionMaxUses") int maxUses,
+      @Named("webDriverSessionMaxIdleSeconds") int maxIdleSeconds) {
+    this.webDriverFactory = webDriverFactory;
+    this.maxUses = maxUses;
+    this.maxIdleMs = maxIdleSeconds * 1000L;
+
+    long evictionIntervalMs = Math.max(MIN_EVICTION_INTERVAL_MS, maxIdleMs / 2);
+    new Timer("WebDriverSessionPool", true).schedule(new TimerTask() {
+      @Override
+      public void run() {
+        evictIdleSessions();
+      }
+    }, evictionIntervalMs, evictionIntervalMs);
+  }
+
+  /**
+   * Returns a healthy session for the given config, either from the pool or a newly created one.
+   */
+  public Session acquire(RunnerConfig config) {
+    Session session;
+    while ((session = pollIdleSession(config)) != null) {
+      if (isExpired(session, currentTimeMs())) {
+        logger.info("Quitting idle webdriver session for " + config);
+        quitQuietly(session);
+        continue;
+      }
+      if (!isHealthy(session)) {
+        logger.info("Quitting unresponsive webdriver session for " + config);
+        quitQuietly(session);
+        continue;
+      }
+      return session;
+    }
+
+    logger.info("Creating new webdriver session for " + config);
+    return new Session(config, webDriverFactory.create(config));
+  }
+
+  /**
+   * Hands a session back to the pool.
+   *
+   * @param session the session to return
+   * @param healthy false if the session ran into an error and should not be used again
+   */
+  public void release(Session session, boolean healthy) {
+    session.uses++;
+    session.lastUsedMs = currentTimeMs();
+
+    if (!healthy || session.uses >= maxUses || !leavePage(session)) {
+      quitQuietly(session);
+      return;
+    }
+
+    synchronized (idleSessionsByConfig) {
+      Deque<Session> idleSessions = idleSessionsByConfig.get(session.config);
+      if (idleSessions == null) {
+        idleSessions = new ArrayDeque<>();
+        idleSessionsByConfig.put(session.config, idleSessions);
+      }
+      idleSessions.push(session);
+    }
+  }
+
+  /**
+   * Quits all pooled sessions. Sessions that are in use are quit once they have been idle for too
+   * long after their release.
+   */
+  public void quitIdleSessions() {
+    List<Session> sessions = new ArrayList<>();
+    synchronized (idleSessionsByConfig) {
+      for (Deque<Session> idleSessions : idleSessionsByConfig.values()) {
+        sessions.addAll(idleSessions);
+      }
+      idleSessionsByConfig.clear();
+    }
+    for (Session session : sessions) {
+      quitQuietly(session);
+    }
+  }
+
+  /**
+   * Quits the pooled sessions that have been idle for too long.
+   */
+  // Visible for testing
+  void evictIdleSessions() {
+    List<Session> expiredSessions = new ArrayList<>();
+    synchronized (idleSessionsByConfig) {
+      long nowMs = currentTimeMs();
+      for (Deque<Session> idleSessions : idleSessionsByConfig.values()) {
+        for (Iterator<Session> it = idleSessions.iterator(); it.hasNext();) {
+          Session session = it.next();
+          if (isExpired(session, nowMs)) {
+            it.remove();
+            expiredSessions.add(session);
+          }
+        }
+      }
+    }
+    // quitting talks to the grid, so it happens outside of the lock
+    for (Session session : expiredSessions) {
+      logger.info("Quitting idle webdriver session for " + session.config);
+      quitQuietly(session);
+    }
+  }
+
+  // Visible for testing
+  long currentTimeMs() {
+    return System.currentTimeMillis();
+  }
+
+  private Session pollIdleSession(RunnerConfig config) {
+    synchronized (idleSessionsByConfig) {
+      Deque<Session> idleSessions = idleSessionsByConfig.get(config);
+      return idleSessions == null ? null : idleSessions.poll();
+    }
+  }
+
+  private boolean isExpired(Session session, long nowMs) {
+    return nowMs - session.lastUsedMs > maxIdleMs;
+  }
+
+  private boolean isHealthy(Session session) {
+    try {
+      session.driver.getCurrentUrl();
+      return true;
+    } catch (RuntimeException e) {
+      logger.log(Level.INFO, "Webdriver session failed health check", e);
+      return false;
+    }
+  }
+
+  private boolean leavePage(Session session) {
+    // Stops anything the benchmark might still be doing while the session sits in the pool
+    try {
+      session.driver.navigate().to("about:blank");
+      return true;
+    } catch (RuntimeException e) {
+      logger.log(Level.INFO, "Can not navigate webdriver session to blank page", e);
+      return false;
+    }
+  }
+
+  private void quitQuietly(Session session) {
+    try {
+      session.driver.quit();
+    } catch (RuntimeException e) {
+      logger.log(Level.INFO, "Can not quit webdriver session", e);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.runners.settings;
+
+import java.net.URL;
+
+/**
+ * Settings of one runner (a browser on the selenium grid) from the settings file.
+ */
+public class RunnerSettings {
+  private String browser;
+  private String os;
+  private String version;
+  private URL hubUrl;
+  private int maxSessions;
+  private int timeoutSeconds;
+
+  public RunnerSettings(String browser, String os, String version, URL hubUrl, int maxSessions,
+      int timeoutSeconds) {
+    this.browser = browser;
+    this.os = os;
+    this.version = version;
+    this.hubUrl = hubUrl;
+    this.maxSessions = maxSessions;
+    this.timeoutSeconds = timeoutSeconds;
+  }
+
+  public String getBrowser() {
+    return browser;
+  }
+
+  public String getOs() {
+    return os;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public URL getHubUrl() {
+    return hubUrl;
+  }
+
+  /**
+   * Returns how many benchmarks may run on this runner at the same time.
+   */
+  public int getMaxSessions() {
+    return maxSessions;
+  }
+
+  public int getTimeoutSeconds() {
+    return timeoutSeconds;
+  }
+}
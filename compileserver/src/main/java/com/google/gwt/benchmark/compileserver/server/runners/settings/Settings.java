@@ -19,6 +19,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -26,6 +29,21 @@ import java.util.Properties;
  */
 public class Settings {
 
+  private static final int DEFAULT_RUNNERS_PER_WORKER = 4;
+  private static final int DEFAULT_WEBDRIVER_SESSION_MAX_USES = 50;
+  private static final int DEFAULT_WEBDRIVER_SESSION_MAX_IDLE_SECONDS = 120;
+  private static final int DEFAULT_FORKS_PER_RUNNER = 1;
+  private static final int DEFAULT_CATCH_UP_COMMIT_STRIDE = 0;
+  private static final int DEFAULT_CATCH_UP_CHANGE_PERCENT = 5;
+  private static final int DEFAULT_SDK_WORKTREES = 0;
+  private static final int DEFAULT_COMPILE_CACHE_MAX_MB = 0;
+  private static final int DEFAULT_MAX_RETRIES = 2;
+  private static final int DEFAULT_RETRY_BACKOFF_SECONDS = 60;
+  private static final int DEFAULT_QUARANTINE_AFTER_COMMITS = 3;
+  private static final int DEFAULT_RUNNER_TIMEOUT_SECONDS = 60;
+  private static final int DEFAULT_LOCAL_RUNNER_MAX_SESSIONS = 1;
+  private static final double DEFAULT_MAX_RELATIVE_ERROR_PERCENT = 2;
+
   public static Settings parseSettings(File settingsFile) throws Exception {
     Settings settings = new Settings();
     Properties prop = new Properties();
@@ -43,6 +61,51 @@ public class Settings {
       settings.hubUrl = new URL(prop.getProperty("seleniumHubUrl"));
       settings.benchmarkCompileOutputDir = new File(prop.getProperty("compileOutputDir"));
       settings.threadPoolSize = Integer.parseInt(prop.getProperty("threadPoolSize"));
+      settings.runnerThreadPoolSize = parseInt(prop, "runnerThreadPoolSize",
+          settings.threadPoolSize * DEFAULT_RUNNERS_PER_WORKER);
+      settings.compiledModuleQueueSize =
+          parseInt(prop, "compiledModuleQueueSize", settings.threadPoolSize);
+      settings.inProcessCompiler = "true".equals(prop.getProperty("inProcessCompiler"));
+      settings.webDriverSessionMaxUses = parseInt(prop, "webDriverSessionMaxUses",
+          DEFAULT_WEBDRIVER_SESSION_MAX_USES);
+      settings.webDriverSessionMaxIdleSeconds = parseInt(prop, "webDriverSessionMaxIdleSeconds",
+          DEFAULT_WEBDRIVER_SESSION_MAX_IDLE_SECONDS);
+      settings.forksPerRunner = parseInt(prop, "forksPerRunner", DEFAULT_FORKS_PER_RUNNER);
+      String benchmarkMode = prop.getProperty("benchmarkMode", "fixed").trim();
+      if (!benchmarkMode.equals("fixed") && !benchmarkMode.equals("stable")) {
+        throw new IOException("benchmarkMode needs to be fixed or stable, but was "
+            + benchmarkMode);
+      }
+      settings.untilStable = benchmarkMode.equals("stable");
+      settings.maxRelativeErrorPercent = parseDouble(prop, "maxRelativeErrorPercent",
+          DEFAULT_MAX_RELATIVE_ERROR_PERCENT);
+      settings.catchUpCommitStride =
+          parseInt(prop, "catchUpCommitStride", DEFAULT_CATCH_UP_COMMIT_STRIDE);
+      settings.catchUpChangePercent =
+          parseInt(prop, "catchUpChangePercent", DEFAULT_CATCH_UP_CHANGE_PERCENT);
+      settings.sdkWorktrees = parseInt(prop, "sdkWorktrees", DEFAULT_SDK_WORKTREES);
+      // the SDK in use occupies one worktree, so a single one could never be built into again
+      if (settings.sdkWorktrees < 0 || settings.sdkWorktrees == 1) {
+        throw new IOException("sdkWorktrees needs to be 0 or at least 2, but was "
+            + settings.sdkWorktrees);
+      }
+      settings.compileCacheMaxMb =
+          parseInt(prop, "compileCacheMaxMb", DEFAULT_COMPILE_CACHE_MAX_MB);
+      settings.incrementalSdkBuild = "true".equals(prop.getProperty("incrementalSdkBuild"));
+      settings.modulePriorities = prop.getProperty("modulePriorities", "");
+      settings.d8Command = prop.getProperty("d8Command", "").trim();
+      settings.d8MaxSessions =
+          parseInt(prop, "runner.d8.maxSessions", DEFAULT_LOCAL_RUNNER_MAX_SESSIONS);
+      settings.jvmRunnerClassPath = prop.getProperty("jvmRunnerClassPath", "").trim();
+      settings.jvmRunnerFlags = prop.getProperty("jvmRunnerFlags", "").trim();
+      settings.jvmMaxSessions =
+          parseInt(prop, "runner.jvm.maxSessions", DEFAULT_LOCAL_RUNNER_MAX_SESSIONS);
+      settings.maxRetries = parseInt(prop, "maxRetries", DEFAULT_MAX_RETRIES);
+      settings.retryBackoffSeconds =
+          parseInt(prop, "retryBackoffSeconds", DEFAULT_RETRY_BACKOFF_SECONDS);
+      settings.quarantineAfterCommits =
+          parseInt(prop, "quarantineAfterCommits", DEFAULT_QUARANTINE_AFTER_COMMITS);
+      settings.runners = parseRunners(prop, settings.hubUrl, settings.runnerThreadPoolSize);
       settings.servletContainerPort = Integer.parseInt(prop.getProperty("servletContainerPort"));
       settings.ipAddress = Util.getFirstNonLoopbackAddress().getHostAddress();
       settings.reportResults = prop.getProperty("reportResuts").equals("true");
@@ -67,6 +130,56 @@ public class Settings {
     return settings;
   }
 
+  private static int parseInt(Properties prop, String key, int defaultValue) {
+    String value = prop.getProperty(key);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    return Integer.parseInt(value.trim());
+  }
+
+  private static double parseDouble(Properties prop, String key, double defaultValue) {
+    String value = prop.getProperty(key);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    return Double.parseDouble(value.trim());
+  }
+
+  /**
+   * Reads the runners listed in "runners". Each runner is configured with properties prefixed by
+   * "runner.&lt;name&gt;.". Without a list the browsers that used to be built in are returned.
+   */
+  private static List<RunnerSettings> parseRunners(Properties prop, URL defaultHubUrl,
+      int defaultMaxSessions) throws IOException {
+    List<RunnerSettings> runners = new ArrayList<>();
+    String names = prop.getProperty("runners", "").trim();
+    if (names.isEmpty()) {
+      for (String[] runner : Arrays.asList(new String[] {"firefox", "linux", ""},
+          new String[] {"chrome", "linux", ""}, new String[] {"ie", "windows", "IE10"},
+          new String[] {"ie", "windows", "IE11"})) {
+        runners.add(new RunnerSettings(runner[0], runner[1], runner[2], defaultHubUrl,
+            defaultMaxSessions, DEFAULT_RUNNER_TIMEOUT_SECONDS));
+      }
+      return runners;
+    }
+
+    for (String name : names.split(",")) {
+      String prefix = "runner." + name.trim() + ".";
+      String browser = prop.getProperty(prefix + "browser", "").trim();
+      String os = prop.getProperty(prefix + "os", "").trim();
+      if (browser.isEmpty() || os.isEmpty()) {
+        throw new IOException("Runner " + name.trim() + " needs a browser and an os");
+      }
+      String hubUrl = prop.getProperty(prefix + "hubUrl", "").trim();
+      runners.add(new RunnerSettings(browser, os, prop.getProperty(prefix + "version", "").trim(),
+          hubUrl.isEmpty() ? defaultHubUrl : new URL(hubUrl),
+          parseInt(prop, prefix + "maxSessions", defaultMaxSessions),
+          parseInt(prop, prefix + "timeoutSeconds", DEFAULT_RUNNER_TIMEOUT_SECONDS)));
+    }
+    return runners;
+  }
+
   private static String loadModuleTemplate(String fileName) throws IOException {
     FileInputStream inputStream = null;
 
@@ -84,6 +197,28 @@ public class Settings {
   private URL hubUrl;
   private File benchmarkCompileOutputDir;
   private int threadPoolSize;
+  private int runnerThreadPoolSize;
+  private int compiledModuleQueueSize;
+  private boolean inProcessCompiler;
+  private int webDriverSessionMaxUses;
+  private int webDriverSessionMaxIdleSeconds;
+  private int forksPerRunner;
+  private boolean untilStable;
+  private double maxRelativeErrorPercent;
+  private int catchUpCommitStride;
+  private int catchUpChangePercent;
+  private int sdkWorktrees;
+  private boolean incrementalSdkBuild;
+  private int compileCacheMaxMb;
+  private String modulePriorities;
+  private String d8Command;
+  private int d8MaxSessions;
+  private String jvmRunnerClassPath;
+  private String jvmRunnerFlags;
+  private int jvmMaxSessions;
+  private int maxRetries;
+  private int retryBackoffSeconds;
+  private int quarantineAfterCommits;
   private boolean reportResults;
   private String reporterUrl;
   private String reporterSecret;
@@ -91,6 +226,7 @@ public class Settings {
   private ManagerMode mode;
   private File gwtSourceLocation;
   private MailSettings mailSettings;
+  private List<RunnerSettings> runners;
   private int servletContainerPort;
 
   public File getBenchmarkRootDirectory() {
@@ -121,6 +257,114 @@ public class Settings {
     return threadPoolSize;
   }
 
+  public int getRunnerThreadPoolSize() {
+    return runnerThreadPoolSize;
+  }
+
+  public int getCompiledModuleQueueSize() {
+    return compiledModuleQueueSize;
+  }
+
+  public boolean useInProcessCompiler() {
+    return inProcessCompiler;
+  }
+
+  public int getWebDriverSessionMaxUses() {
+    return webDriverSessionMaxUses;
+  }
+
+  public int getWebDriverSessionMaxIdleSeconds() {
+    return webDriverSessionMaxIdleSeconds;
+  }
+
+  public int getForksPerRunner() {
+    return forksPerRunner;
+  }
+
+  /**
+   * Returns true if benchmarks run until their timing is stable instead of for a fixed time.
+   */
+  public boolean runUntilStable() {
+    return untilStable;
+  }
+
+  /**
+   * Returns the relative margin of error in percent that benchmarks running until their timing is
+   * stable need to reach.
+   */
+  public double getMaxRelativeErrorPercent() {
+    return maxRelativeErrorPercent;
+  }
+
+  public int getCatchUpCommitStride() {
+    return catchUpCommitStride;
+  }
+
+  public int getCatchUpChangePercent() {
+    return catchUpChangePercent;
+  }
+
+  public int getSdkWorktrees() {
+    return sdkWorktrees;
+  }
+
+  public boolean useIncrementalSdkBuild() {
+    return incrementalSdkBuild;
+  }
+
+  public int getCompileCacheMaxMb() {
+    return compileCacheMaxMb;
+  }
+
+  public String getModulePriorities() {
+    return modulePriorities;
+  }
+
+  /**
+   * Returns the command for running D8 modules or an empty string if they should be skipped.
+   */
+  public String getD8Command() {
+    return d8Command;
+  }
+
+  /**
+   * Returns how many modules may run in D8 at the same time.
+   */
+  public int getD8MaxSessions() {
+    return d8MaxSessions;
+  }
+
+  /**
+   * Returns the class path for running benchmarks on the JVM or an empty string if they should not
+   * be run on the JVM.
+   */
+  public String getJvmRunnerClassPath() {
+    return jvmRunnerClassPath;
+  }
+
+  public String getJvmRunnerFlags() {
+    return jvmRunnerFlags;
+  }
+
+  /**
+   * Returns how many modules may run on the JVM at the same time.
+   */
+  public int getJvmMaxSessions() {
+    return jvmMaxSessions;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public int getRetryBackoffSeconds() {
+    return retryBackoffSeconds;
+  }
+
+  public int getQuarantineAfterCommits() {
+    return quarantineAfterCommits;
+  }
+
   public boolean reportResults() {
     return reportResults;
   }
@@ -149,6 +393,13 @@ public class Settings {
     return mailSettings;
   }
 
+  /**
+   * Returns the browser runners in the order they are listed in the settings file.
+   */
+  public List<RunnerSettings> getRunners() {
+    return runners;
+  }
+
   public int getServletContainerPort() {
     return servletContainerPort;
   }
@@ -18,11 +18,13 @@ import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkManager;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun.Result;
 import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig;
+import com.google.gwt.benchmark.compileserver.server.manager.StatusEventLog.Changes;
 import com.google.gwt.benchmark.compileserver.shared.Service;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewEntryDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewEntryDTO.BenchmarState;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewResponseDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkRunDTO;
+import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkStatusUpdateDTO;
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 
 import java.util.ArrayList;
@@ -64,8 +66,12 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
     }
   }
 
+  /**
+   * Creates one entry per run with one result per runner in allRunners, so that the results line
+   * up with the runner names. Runners a module is not run on are marked as not applicable.
+   */
   private static ArrayList<BenchmarkOverviewEntryDTO> createBenchmarkOverviewEntryDTOs(
-      Map<String, BenchmarkRun> latestRun) {
+      Map<String, BenchmarkRun> latestRun, List<RunnerConfig> allRunners) {
     ArrayList<BenchmarkOverviewEntryDTO> list = new ArrayList<BenchmarkOverviewEntryDTO>();
     for (Entry<String, BenchmarkRun> mapEntry : latestRun.entrySet()) {
       BenchmarkRun serverBenchmarkRun = mapEntry.getValue();
@@ -78,9 +84,14 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
       }
 
       ArrayList<BenchmarkRunDTO> benchmarkRuns = new ArrayList<BenchmarkRunDTO>();
-      for (Entry<RunnerConfig, Result> runEntries : serverBenchmarkRun.getResults().entrySet()) {
-        Result result = runEntries.getValue();
+      for (RunnerConfig runnerConfig : allRunners) {
+        Result result = serverBenchmarkRun.getResults().get(runnerConfig);
         BenchmarkRunDTO benchmarkRun = new BenchmarkRunDTO();
+        if (result == null) {
+          benchmarkRun.setState(BenchmarkRunDTO.State.NOT_APPLICABLE);
+          benchmarkRuns.add(benchmarkRun);
+          continue;
+        }
         benchmarkRun.setState(convertStatus(result.getState()));
         benchmarkRun.setErrorMessage(result.getErrorMessage());
         if (result.getState() == Result.State.DONE) {
@@ -104,6 +115,12 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
 
   private static final Logger logger = Logger.getLogger(BenchmarkServiceImpl.class.getName());
 
+  /**
+   * How long an update request waits for changes. Needs to stay below the timeouts of proxies
+   * between the status page and the server.
+   */
+  private static final long UPDATE_TIMEOUT_MS = 25 * 1000L;
+
   private BenchmarkManager benchmarkManager;
 
   @Inject
@@ -116,6 +133,8 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
     try {
       BenchmarkOverviewResponseDTO response = new BenchmarkOverviewResponseDTO();
       response.setRunnerNames(createRunnerDTOs(benchmarkManager.getAllRunners()));
+      // Read before copying the runs, so that changes made during the copy are sent as updates
+      response.setVersion(benchmarkManager.getStatusEvents().getVersion());
 
       Map<String, BenchmarkRun> latestRun = benchmarkManager.getLatestRun();
       response.setExecutingBenchmarks(benchmarkManager.isRunning());
@@ -127,7 +146,8 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
       }
 
       response.setHasLatestRun(true);
-      response.setBenchmarks(createBenchmarkOverviewEntryDTOs(latestRun));
+      response.setBenchmarks(
+          createBenchmarkOverviewEntryDTOs(latestRun, benchmarkManager.getAllRunners()));
       return response;
 
     } catch (Exception e) {
@@ -139,6 +159,26 @@ public class BenchmarkServiceImpl extends RemoteServiceServlet implements Servic
     }
   }
 
+  @Override
+  public BenchmarkStatusUpdateDTO loadBenchmarkUpdates(long version) throws ServiceException {
+    try {
+      Changes changes = benchmarkManager.getStatusEvents().awaitChanges(version, UPDATE_TIMEOUT_MS);
+
+      BenchmarkStatusUpdateDTO update = new BenchmarkStatusUpdateDTO();
+      update.setVersion(changes.getVersion());
+      update.setReload(changes.isReset());
+      update.setExecutingBenchmarks(benchmarkManager.isRunning());
+      update.setChangedBenchmarks(createBenchmarkOverviewEntryDTOs(
+          benchmarkManager.getLatestRuns(changes.getChangedModules()),
+          benchmarkManager.getAllRunners()));
+      return update;
+
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error while executing service call", e);
+      throw new ServiceException("Error while executing your request");
+    }
+  }
+
   @Override
   public void startServer() {
     benchmarkManager.start();
@@ -15,6 +15,7 @@ package com.google.gwt.benchmark.compileserver.shared;
 
 import com.google.gwt.benchmark.common.shared.service.ServiceException;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewResponseDTO;
+import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkStatusUpdateDTO;
 import com.google.gwt.user.client.rpc.RemoteService;
 import com.google.gwt.user.client.rpc.RemoteServiceRelativePath;
 
@@ -26,6 +27,12 @@ public interface Service extends RemoteService {
 
   BenchmarkOverviewResponseDTO loadBenchmarkOverview() throws ServiceException;
 
+  /**
+   * Waits for the benchmarks to change after the given version and returns the changed ones.
+   * Returns an empty update if nothing changed for a while.
+   */
+  BenchmarkStatusUpdateDTO loadBenchmarkUpdates(long version) throws ServiceException;
+
   void startServer();
 
   void stopServer();
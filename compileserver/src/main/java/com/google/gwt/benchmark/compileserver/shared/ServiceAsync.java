@@ -14,6 +14,7 @@
 package com.google.gwt.benchmark.compileserver.shared;
 
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewResponseDTO;
+import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkStatusUpdateDTO;
 import com.google.gwt.user.client.rpc.AsyncCallback;
 
 /**
@@ -22,6 +23,8 @@ import com.google.gwt.user.client.rpc.AsyncCallback;
 public interface ServiceAsync {
   void loadBenchmarkOverview(AsyncCallback<BenchmarkOverviewResponseDTO> callback);
 
+  void loadBenchmarkUpdates(long version, AsyncCallback<BenchmarkStatusUpdateDTO> callback);
+
   void startServer(AsyncCallback<Void> callback);
 
   void stopServer(AsyncCallback<Void> callback);
@@ -25,6 +25,7 @@ public class BenchmarkOverviewResponseDTO implements Serializable {
   private ArrayList<String> runnerNames;
   private boolean executingBenchmarks;
   private boolean hasLatestRun;
+  private long version;
 
   public BenchmarkOverviewResponseDTO() {
   }
@@ -60,4 +61,16 @@ public class BenchmarkOverviewResponseDTO implements Serializable {
   public boolean isHasLatestRun() {
     return hasLatestRun;
   }
+
+  /**
+   * Returns the version of the status this overview reflects, see
+   * {@link com.google.gwt.benchmark.compileserver.shared.Service#loadBenchmarkUpdates(long)}.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
@@ -22,7 +22,9 @@ import java.io.Serializable;
 public class BenchmarkRunDTO implements Serializable {
 
   public enum State {
-    NOT_RUN, FAILED_RUN, DONE
+    NOT_RUN, FAILED_RUN, DONE,
+    /** The benchmark is not run on this runner */
+    NOT_APPLICABLE
   }
 
   private double runsPerMinute;
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.shared.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Contains the benchmarks that changed since a client last loaded the status of the compile server.
+ * If reload is set the client needs to load the whole overview again instead.
+ */
+public class BenchmarkStatusUpdateDTO implements Serializable {
+
+  private long version;
+  private boolean reload;
+  private boolean executingBenchmarks;
+  private ArrayList<BenchmarkOverviewEntryDTO> changedBenchmarks;
+
+  public BenchmarkStatusUpdateDTO() {
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
+  public boolean isReload() {
+    return reload;
+  }
+
+  public void setReload(boolean reload) {
+    this.reload = reload;
+  }
+
+  public boolean isExecutingBenchmarks() {
+    return executingBenchmarks;
+  }
+
+  public void setExecutingBenchmarks(boolean executingBenchmarks) {
+    this.executingBenchmarks = executingBenchmarks;
+  }
+
+  public ArrayList<BenchmarkOverviewEntryDTO> getChangedBenchmarks() {
+    return changedBenchmarks;
+  }
+
+  public void setChangedBenchmarks(ArrayList<BenchmarkOverviewEntryDTO> changedBenchmarks) {
+    this.changedBenchmarks = changedBenchmarks;
+  }
+}
@@ -13,7 +13,9 @@
  */
 package com.google.gwt.benchmark.compileserver.client.status;
 
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -24,6 +26,7 @@ import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewEntryD
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkOverviewResponseDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkRunDTO;
 import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkRunDTO.State;
+import com.google.gwt.benchmark.compileserver.shared.dto.BenchmarkStatusUpdateDTO;
 import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.i18n.client.NumberFormat;
 import com.google.gwt.user.client.rpc.AsyncCallback;
@@ -57,6 +60,7 @@ public class BenchmarkStatusCompositeTest {
   @Mock private Provider<Label> labelProvider;
 
   @Captor private ArgumentCaptor<AsyncCallback<BenchmarkOverviewResponseDTO>> asyncCaptor;
+  @Captor private ArgumentCaptor<AsyncCallback<BenchmarkStatusUpdateDTO>> updateCaptor;
   @Captor private ArgumentCaptor<ClickHandler> clickHandler1;
   @Captor private ArgumentCaptor<ClickHandler> clickHandler2;
 
@@ -283,4 +287,61 @@ public class BenchmarkStatusCompositeTest {
     Assert.assertEquals("benchmark2 error message", messages.get(0));
     Assert.assertEquals("error message b4 r2", messages.get(1));
   }
+
+  @Test
+  public void testUpdatesReplaceChangedBenchmarks() {
+    composite.start();
+    verify(service).loadBenchmarkOverview(asyncCaptor.capture());
+
+    BenchmarkOverviewEntryDTO entry = new BenchmarkOverviewEntryDTO();
+    entry.setBenchmarkName("benchmark1");
+    entry.setStatus(BenchmarState.RUNNING);
+    entry.setBenchmarkRuns(new ArrayList<BenchmarkRunDTO>());
+    BenchmarkOverviewResponseDTO response = new BenchmarkOverviewResponseDTO();
+    response.setHasLatestRun(true);
+    response.setExecutingBenchmarks(true);
+    response.setVersion(3);
+    response.setBenchmarks(new ArrayList<>(Arrays.asList(entry)));
+    response.setRunnerNames(new ArrayList<>(Arrays.asList("chrome_linux")));
+
+    Label header0 = mock(Label.class);
+    Label header1 = mock(Label.class);
+    Label runningName = mock(Label.class);
+    Label doneName = mock(Label.class);
+    Label doneResult = mock(Label.class);
+    when(labelProvider.get()).thenReturn(header0, header1, runningName, header0, header1,
+        doneName, doneResult);
+
+    asyncCaptor.getValue().onSuccess(response);
+    verify(runningName).addStyleName(BenchmarkStatusComposite.bundle.css().statusRunning());
+    verify(service).loadBenchmarkUpdates(eq(3L), updateCaptor.capture());
+
+    BenchmarkRunDTO run = new BenchmarkRunDTO();
+    run.setRunsPerMinute(22);
+    run.setState(State.DONE);
+    BenchmarkOverviewEntryDTO changedEntry = new BenchmarkOverviewEntryDTO();
+    changedEntry.setBenchmarkName("benchmark1");
+    changedEntry.setStatus(BenchmarState.DONE);
+    changedEntry.setBenchmarkRuns(new ArrayList<>(Arrays.asList(run)));
+    BenchmarkStatusUpdateDTO update = new BenchmarkStatusUpdateDTO();
+    update.setVersion(5);
+    update.setExecutingBenchmarks(true);
+    update.setChangedBenchmarks(new ArrayList<>(Arrays.asList(changedEntry)));
+
+    updateCaptor.getValue().onSuccess(update);
+
+    // only the changed benchmark is replaced and the view keeps waiting for updates
+    verify(doneName).setText("benchmark1");
+    verify(doneName).addStyleName(BenchmarkStatusComposite.bundle.css().statusDone());
+    verify(doneResult).setText("22");
+    verify(composite.grid).setWidget(1, 1, doneResult);
+    verify(service).loadBenchmarkUpdates(eq(5L), updateCaptor.capture());
+    verify(service).loadBenchmarkOverview(asyncCaptor.capture());
+
+    // a reset of the server reloads everything
+    update = new BenchmarkStatusUpdateDTO();
+    update.setReload(true);
+    updateCaptor.getValue().onSuccess(update);
+    verify(service, times(2)).loadBenchmarkOverview(asyncCaptor.capture());
+  }
 }
@@ -35,4 +35,18 @@ public class BenchmarkFinderTest {
     Assert.assertTrue(list.contains("com.google.gwt.benchmark.benchmarks.TestBenchmark"));
     Assert.assertTrue(list.contains("com.google.gwt.benchmark.benchmarks.package.TestBenchmark2"));
   }
+
+  @Test
+  public void testHasJvmBenchmark() {
+    BenchmarkFinder finder = new BenchmarkFinder(new File("./src/test/resources/collector-test/"));
+
+    Assert.assertTrue(finder.hasJvmBenchmark("com.google.gwt.benchmark.benchmarks.TestBenchmark"));
+    Assert.assertFalse(
+        finder.hasJvmBenchmark("com.google.gwt.benchmark.benchmarks.package.TestBenchmark2"));
+    // octane keeps its benchmarks in client packages and the JS variants wrap native JavaScript
+    Assert.assertFalse(finder.hasJvmBenchmark(
+        "com.google.gwt.benchmark.benchmarks.octane.RichardsBenchmarkGWT"));
+    Assert.assertFalse(finder.hasJvmBenchmark(
+        "com.google.gwt.benchmark.benchmarks.octane.RichardsBenchmarkJS"));
+  }
 }
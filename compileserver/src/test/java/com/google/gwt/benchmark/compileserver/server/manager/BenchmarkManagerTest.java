@@ -14,10 +14,11 @@
 package com.google.gwt.benchmark.compileserver.server.manager;
 
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkReporter.ReportProgressHandler;
-import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkWorker.Factory;
+import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun.Result;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkWorker.ProgressHandler;
 import com.google.inject.Provider;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -25,8 +26,10 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.verification.VerificationWithTimeout;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
@@ -43,31 +46,6 @@ public class BenchmarkManagerTest {
     boolean condition();
   }
 
-  private static class BenchmarkManagerWithPublicAdd extends BenchmarkManager {
-    public BenchmarkManagerWithPublicAdd(BenchmarkFinder collector,
-        Factory benchmarkWorkerFactory,
-        Provider<ExecutorService> poolProvider,
-        com.google.gwt.benchmark.compileserver.server.manager.BenchmarkReporter.Factory reporterFactory,
-        boolean useReporter,
-        CliInteractor commitReader,
-        Provider<Timer> timerProvider,
-        MailReporter errorReporter) {
-      super(collector,
-          benchmarkWorkerFactory,
-          poolProvider,
-          reporterFactory,
-          useReporter,
-          commitReader,
-          timerProvider,
-          errorReporter);
-    }
-
-    @Override
-    public void addBenchmarkRun(BenchmarkRun br) {
-      super.addBenchmarkRun(br);
-    }
-  }
-
   @SuppressWarnings("unchecked")
   public static <T> T cast(Object a) {
     return (T) a;
@@ -85,6 +63,11 @@ public class BenchmarkManagerTest {
   private BenchmarkReporter benchmarkReporter;
   private MailReporter errorReporter;
   private Timer timer;
+  private RunJournal runJournal;
+  private ModuleScheduler moduleScheduler;
+  private FailurePolicy failurePolicy;
+  private RunnerRegistry runnerRegistry;
+  private WebDriverSessionPool sessionPool;
 
   @Before
   public void setup() {
@@ -99,6 +82,19 @@ public class BenchmarkManagerTest {
     benchmarkReporter = Mockito.mock(BenchmarkReporter.class);
     errorReporter = Mockito.mock(MailReporter.class);
     timer = Mockito.mock(Timer.class);
+    runJournal = Mockito.mock(RunJournal.class);
+    sessionPool = Mockito.mock(WebDriverSessionPool.class);
+    File persistenceDir = new File("./target/benchmarkmanagertest/");
+    FileUtils.deleteQuietly(persistenceDir);
+    persistenceDir.mkdirs();
+    moduleScheduler = new ModuleScheduler(persistenceDir, "");
+    failurePolicy = new FailurePolicy(persistenceDir, 0, 0, 0);
+    List<RunnerRegistry.Entry> runners = new ArrayList<>();
+    for (RunnerConfig config : Arrays.asList(RunnerConfigs.FIREFOX_LINUX,
+        RunnerConfigs.CHROME_LINUX, RunnerConfigs.IE10_WIN, RunnerConfigs.IE11_WIN)) {
+      runners.add(new RunnerRegistry.Entry(config, null, 1, 60));
+    }
+    runnerRegistry = new RunnerRegistry(runners);
   }
 
   @Test
@@ -113,7 +109,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
     Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
@@ -167,16 +170,24 @@ public class BenchmarkManagerTest {
 
     // TODO right now there is only one runner, needs updating
     // simulate benchmarks done
-    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(0), 1);
-    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(1), 2);
-    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(2), 3);
-    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(3), 4);
+    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(0), 1,
+        Arrays.asList(1.0), null);
+    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(1), 2,
+        Arrays.asList(2.0), null);
+    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(2), 3,
+        Arrays.asList(3.0), null);
+    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(3), 4,
+        Arrays.asList(4.0), null);
     progressHandlers.get(0).onRunEnded();
 
-    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(0), 5);
-    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(1), 6);
-    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(2), 7);
-    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(3), 8);
+    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(0), 5,
+        Arrays.asList(5.0), null);
+    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(1), 6,
+        Arrays.asList(6.0), null);
+    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(2), 7,
+        Arrays.asList(7.0), null);
+    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(3), 8,
+        Arrays.asList(8.0), null);
     progressHandlers.get(1).onRunEnded();
 
     Mockito.verify(benchmarkReporter, timeout).run();
@@ -240,6 +251,7 @@ public class BenchmarkManagerTest {
     manager.stop();
 
     Assert.assertFalse(manager.isRunning());
+    Mockito.verify(sessionPool).quitIdleSessions();
 
     waitFor(new Condition() {
       @Override
@@ -260,7 +272,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.when(commitReader.getLastCommitId()).thenThrow(new BenchmarkManagerException(""));
 
@@ -290,7 +309,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.when(commitReader.getDateForCommitInMsEpoch(Mockito.anyString())).thenThrow(
         new BenchmarkManagerException(""));
@@ -321,7 +347,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.doThrow(new BenchmarkManagerException("")).when(commitReader)
         .checkout(Mockito.anyString());
@@ -354,7 +387,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
     Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
@@ -408,10 +448,12 @@ public class BenchmarkManagerTest {
 
     // TODO right now there is only one runner, needs updating
     // simulate benchmarks done
-    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(0), 1);
+    progressHandlers.get(0).onResult(workerConfigs.get(0).getRunners().get(0), 1,
+        Arrays.asList(1.0), null);
     progressHandlers.get(0).onCompilationFailed("bad module1");
     progressHandlers.get(0).onRunEnded();
-    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(0), 2);
+    progressHandlers.get(1).onResult(workerConfigs.get(0).getRunners().get(0), 2,
+        Arrays.asList(2.0), null);
     progressHandlers.get(1).onCompilationFailed("bad module2");
     progressHandlers.get(1).onRunEnded();
 
@@ -453,7 +495,14 @@ public class BenchmarkManagerTest {
         true,
         commitReader,
         timerProvider,
-        errorReporter);
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
 
     Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
     Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
@@ -507,16 +556,17 @@ public class BenchmarkManagerTest {
 
     // TODO right now there is only one runner, needs updating
     // simulate benchmarks done
-    progressHandlers.get(0).onResult(workerConfig.get(0).getRunners().get(0), 1);
+    progressHandlers.get(0).onResult(workerConfig.get(0).getRunners().get(0), 1,
+        Arrays.asList(1.0), null);
     progressHandlers.get(0).failedToRunBenchmark(workerConfig.get(0).getRunners().get(0),
         "testerror");
     progressHandlers.get(0).onRunEnded();
-    progressHandlers.get(1).onResult(workerConfig.get(0).getRunners().get(0), 2);
-    progressHandlers.get(1).onResult(workerConfig.get(1).getRunners().get(0), 23);
+    progressHandlers.get(1).onResult(workerConfig.get(0).getRunners().get(0), 2,
+        Arrays.asList(2.0), null);
+    progressHandlers.get(1).onResult(workerConfig.get(1).getRunners().get(0), 23,
+        Arrays.asList(23.0), null);
     progressHandlers.get(1).onRunEnded();
 
-    Mockito.verifyZeroInteractions(benchmarkReporter);
-
     Map<String, BenchmarkRun> map = manager.getLatestRun();
     Assert.assertEquals(2, map.size());
 
@@ -530,63 +580,601 @@ public class BenchmarkManagerTest {
 
     Mockito.verify(errorReporter).sendEmail(Mockito.anyString());
 
-    waitFor(new Condition() {
+    // the results that are there are reported and the system keeps running
+    Mockito.verify(benchmarkReporter, timeout).run();
+    map = resultCaptor.getValue();
+    Assert.assertEquals(Arrays.asList(workerConfig.get(0).getRunners().get(0)),
+        map.get("module1").getRunConfigs());
+    Assert.assertEquals(Arrays.asList(workerConfig.get(1).getRunners().get(0)),
+        map.get("module2").getRunConfigs());
+    Assert.assertTrue(manager.isRunning());
 
-      @Override
-      public boolean condition() {
-        return !manager.isRunning();
+    manager.stop();
+  }
+
+  @Test
+  public void testFailedRunnerIsRetried() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        new FailurePolicy(new File("./target/benchmarkmanagertest/"), 2, 10, 0),
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1"));
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCaptor =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCaptor.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
+
+    ArgumentCaptor<Map<String, BenchmarkRun>> resultCaptor =
+        cast(ArgumentCaptor.forClass(Map.class));
+    Mockito.when(reporterFactory.create(resultCaptor.capture(), Mockito.anyString(),
+        Mockito.anyLong(), Mockito.<ReportProgressHandler> any())).thenReturn(benchmarkReporter);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    VerificationWithTimeout timeout = Mockito.timeout(200);
+    Mockito.verify(threadPoolExecutor, timeout).execute(benchmarkWorker);
+
+    List<RunnerConfig> runners = workerConfigCaptor.getValue().getRunners();
+    ProgressHandler progressHandler = progressHandlerCaptor.getValue();
+    for (int attempt = 1; attempt <= 2; attempt++) {
+      if (attempt == 1) {
+        progressHandler.onResult(runners.get(0), 1, Arrays.asList(1.0), null);
+        progressHandler.onResult(runners.get(1), 2, Arrays.asList(2.0), null);
+        progressHandler.onResult(runners.get(2), 3, Arrays.asList(3.0), null);
       }
-    }, 200);
+      progressHandler.failedToRunBenchmark(runners.get(3), "flaky");
+      progressHandler.onRunEnded();
+
+      // waits twice as long before the second retry
+      ArgumentCaptor<TimerTask> retryCaptor = ArgumentCaptor.forClass(TimerTask.class);
+      Mockito.verify(timer).schedule(retryCaptor.capture(),
+          Mockito.eq(attempt * 10 * 1000L));
+      Assert.assertEquals(BenchmarkRun.State.NOT_RUN,
+          manager.getLatestRun().get("module1").getState());
+      retryCaptor.getValue().run();
+
+      Mockito.verify(threadPoolExecutor, Mockito.times(attempt + 1)).execute(benchmarkWorker);
+      Assert.assertEquals(Arrays.asList(runners.get(3)),
+          workerConfigCaptor.getValue().getRunners());
+    }
+
+    progressHandler.onResult(runners.get(3), 4, Arrays.asList(4.0), null);
+    progressHandler.onRunEnded();
+
+    Mockito.verify(benchmarkReporter, timeout).run();
+    BenchmarkRun benchmarkRun = resultCaptor.getValue().get("module1");
+    Assert.assertEquals(BenchmarkRun.State.DONE, benchmarkRun.getState());
+    Assert.assertEquals(runners, benchmarkRun.getRunConfigs());
+    Assert.assertEquals(1,
+        benchmarkRun.getResults().get(runners.get(0)).getRunsPerSecond(), 0.0001);
+    Assert.assertEquals(4,
+        benchmarkRun.getResults().get(runners.get(3)).getRunsPerSecond(), 0.0001);
+    Mockito.verifyZeroInteractions(errorReporter);
+
+    manager.stop();
+  }
+
+  @Test
+  public void testFailedCompileIsRetriedOnce() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        new FailurePolicy(new File("./target/benchmarkmanagertest/"), 2, 10, 0),
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1"));
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCaptor =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCaptor.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    Mockito.verify(threadPoolExecutor, Mockito.timeout(200)).execute(benchmarkWorker);
+    List<RunnerConfig> runners = workerConfigCaptor.getValue().getRunners();
+    ProgressHandler progressHandler = progressHandlerCaptor.getValue();
+
+    progressHandler.onCompilationFailed("broken");
+    progressHandler.onRunEnded();
+
+    ArgumentCaptor<TimerTask> retryCaptor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).schedule(retryCaptor.capture(), Mockito.eq(10 * 1000L));
+    retryCaptor.getValue().run();
+    Mockito.verify(threadPoolExecutor, Mockito.times(2)).execute(benchmarkWorker);
+    Assert.assertEquals(runners, workerConfigCaptor.getValue().getRunners());
+
+    // the second failure is final even though every runner could still be retried once more
+    progressHandler.onCompilationFailed("still broken");
+    progressHandler.onRunEnded();
+
+    Mockito.verify(timer).schedule(Mockito.<TimerTask> any(), Mockito.anyLong());
+    Assert.assertEquals(BenchmarkRun.State.FAILED_COMPILE,
+        manager.getLatestRun().get("module1").getState());
+    // nothing worked, which stops the system
     Assert.assertFalse(manager.isRunning());
-    Assert.assertFalse(manager.isEventLoopAlive());
   }
 
   @Test
-  public void testMapIsLocked() throws InterruptedException {
+  public void testPendingRetryIsCancelledOnStop() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        new FailurePolicy(new File("./target/benchmarkmanagertest/"), 2, 10, 0),
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1"));
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCaptor =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCaptor.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    Mockito.verify(threadPoolExecutor, Mockito.timeout(200)).execute(benchmarkWorker);
+    List<RunnerConfig> runners = workerConfigCaptor.getValue().getRunners();
+    ProgressHandler progressHandler = progressHandlerCaptor.getValue();
+
+    progressHandler.failedToRunBenchmark(runners.get(0), "flaky");
+    progressHandler.onRunEnded();
+    ArgumentCaptor<TimerTask> retryCaptor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).schedule(retryCaptor.capture(), Mockito.anyLong());
+
+    manager.stop();
+
+    // neither the pending retry nor a late failure may start a worker
+    retryCaptor.getValue().run();
+    progressHandler.failedToRunBenchmark(runners.get(1), "flaky");
+    progressHandler.onRunEnded();
+    Mockito.verify(threadPoolExecutor).execute(benchmarkWorker);
+    Mockito.verify(timer).schedule(Mockito.<TimerTask> any(), Mockito.anyLong());
+  }
+
+  @Test
+  public void testCatchUpModeBenchmarksSparseCommitsFirst() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        false,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        2,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCommitsSince("commit1")).thenReturn(
+        Arrays.asList("commit2", "commit3", "commit4", "commit5"));
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1"));
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCapture =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCapture.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    TimerTask timerTask = captor.getValue();
+    timerTask.run();
+
+    VerificationWithTimeout timeout = Mockito.timeout(200);
+    Mockito.verify(threadPoolExecutor, timeout).execute(benchmarkWorker);
+    Mockito.verify(commitReader).checkout("commit2");
+
+    for (RunnerConfig config : workerConfigCapture.getValue().getRunners()) {
+      progressHandlerCaptor.getValue().onResult(config, 1, Arrays.asList(1.0), null);
+    }
+    progressHandlerCaptor.getValue().onRunEnded();
+    timerTask.run();
+
+    // commit3 is skipped, the backlog is only stored once it has been processed
+    Mockito.verify(threadPoolExecutor, timeout.times(2)).execute(benchmarkWorker);
+    Mockito.verify(commitReader).checkout("commit4");
+    Mockito.verify(commitReader, Mockito.never()).checkout("commit3");
+    Mockito.verify(commitReader, Mockito.never()).maybeCheckoutNextCommit(Mockito.anyString());
+    Mockito.verify(commitReader, Mockito.never()).storeCommitId(Mockito.anyString());
+    Assert.assertEquals("commit1", manager.getLastCommitId());
+
+    manager.stop();
+  }
+
+  @Test
+  public void testSDKOfNextCommitIsPrebuilt() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        false,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    File worktree0 = new File("worktrees/sdk0");
+    File worktree1 = new File("worktrees/sdk1");
+    Mockito.when(commitReader.usesWorktrees()).thenReturn(true);
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2", "commit3");
+    Mockito.when(commitReader.getCommitsSince("commit2")).thenReturn(Arrays.asList("commit3"));
+    Mockito.when(commitReader.buildSDKInWorktree("commit2")).thenReturn(worktree0);
+    Mockito.when(commitReader.buildSDKInWorktree("commit3")).thenReturn(worktree1);
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1"));
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCapture =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCapture.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    TimerTask timerTask = captor.getValue();
+    timerTask.run();
 
-    final List<String> list = new ArrayList<>();
+    // the SDK for commit3 is built while commit2 is benchmarked
+    VerificationWithTimeout timeout = Mockito.timeout(200);
+    Mockito.verify(threadPoolExecutor, timeout).execute(benchmarkWorker);
+    Mockito.verify(commitReader).activateSDK(worktree0);
+    Mockito.verify(commitReader, timeout.times(2)).buildSDKInWorktree(Mockito.anyString());
+    Mockito.verify(commitReader).buildSDKInWorktree("commit3");
 
-    final BenchmarkManagerWithPublicAdd manager = new BenchmarkManagerWithPublicAdd(collector,
+    for (RunnerConfig config : workerConfigCapture.getValue().getRunners()) {
+      progressHandlerCaptor.getValue().onResult(config, 1, Arrays.asList(1.0), null);
+    }
+    progressHandlerCaptor.getValue().onRunEnded();
+    timerTask.run();
+
+    Mockito.verify(threadPoolExecutor, timeout.times(2)).execute(benchmarkWorker);
+    Mockito.verify(commitReader).activateSDK(worktree1);
+    Mockito.verify(commitReader, Mockito.times(1)).buildSDKInWorktree("commit3");
+    Mockito.verify(commitReader, Mockito.never()).buildSDK(Mockito.anyString());
+    Mockito.verify(commitReader, Mockito.never()).discardSDK(Mockito.any(File.class));
+
+    manager.stop();
+  }
+
+  @Test
+  public void testLatestRunIsSnapshot() {
+    manager = new BenchmarkManager(collector,
         benchmarkWorkerFactory,
         poolProvider,
         reporterFactory,
         true,
         commitReader,
         timerProvider,
-        errorReporter) {
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    BenchmarkRun benchmarkRun = new BenchmarkRun("module1", "commit1", 0);
+    benchmarkRun.addRunner(RunnerConfigs.CHROME_LINUX);
+    manager.publish(benchmarkRun);
+    Map<String, BenchmarkRun> snapshot = manager.getLatestRun();
+    long version = manager.getStatusEvents().getVersion();
+
+    benchmarkRun.addResult(RunnerConfigs.CHROME_LINUX, 5, Arrays.asList(5.0), null);
+    manager.publish(benchmarkRun);
+
+    // readers keep their snapshot while newer ones are published
+    Assert.assertEquals(Result.State.NOT_RUN,
+        snapshot.get("module1").getResults().get(RunnerConfigs.CHROME_LINUX).getState());
+    Assert.assertEquals(Result.State.DONE, manager.getLatestRun().get("module1").getResults()
+        .get(RunnerConfigs.CHROME_LINUX).getState());
+    Assert.assertEquals(version + 1, manager.getStatusEvents().getVersion());
+  }
 
-      @Override
-      void addBenchmarkRunSynchronized(Map<String, BenchmarkRun> runsByName, BenchmarkRun br) {
-        try {
-          Thread.sleep(40);
-        } catch (InterruptedException ignored) {
-        }
-        list.add("add");
-      }
+  @Test
+  public void testJournaledResultsAreNotRunAgain() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
 
-      @Override
-      Map<String, BenchmarkRun> getLatestRunSynchronized(Map<String, BenchmarkRun> runsByName) {
-        list.add("get");
-        return null;
-      }
-    };
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("module1", "module2"));
+
+    // module1 is done, module2 only has results for two runners
+    Map<String, RunJournal.RecordedResult> module1Results = new HashMap<>();
+    for (RunnerConfig config : manager.getAllRunners()) {
+      module1Results.put(config.toString(),
+          new RunJournal.RecordedResult(1, Arrays.asList(1.0), false));
+    }
+    Map<String, RunJournal.RecordedResult> module2Results = new HashMap<>();
+    module2Results.put(RunnerConfigs.FIREFOX_LINUX.toString(),
+        new RunJournal.RecordedResult(2, Arrays.asList(2.0), true));
+    module2Results.put(RunnerConfigs.CHROME_LINUX.toString(),
+        new RunJournal.RecordedResult(3, Arrays.asList(3.0), false));
+    Mockito.when(runJournal.startCommit("commit2")).thenReturn(true);
+    Mockito.when(runJournal.getRecordedResults("module1")).thenReturn(module1Results);
+    Mockito.when(runJournal.getRecordedResults("module2")).thenReturn(module2Results);
+    Mockito.when(runJournal.getOutputHash(Mockito.anyString())).thenReturn("hash");
+
+    ArgumentCaptor<ProgressHandler> progressHandlerCaptor =
+        ArgumentCaptor.forClass(ProgressHandler.class);
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCapture =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCapture.capture(),
+        progressHandlerCaptor.capture())).thenReturn(benchmarkWorker);
 
-    Thread thread = new Thread(new Runnable() {
+    ArgumentCaptor<Map<String, BenchmarkRun>> resultCaptor =
+        cast(ArgumentCaptor.forClass(Map.class));
+    Mockito.when(reporterFactory.create(resultCaptor.capture(), Mockito.anyString(),
+        Mockito.anyLong(), Mockito.<ReportProgressHandler> any())).thenReturn(benchmarkReporter);
+
+    manager.start();
+    Mockito.verify(runJournal).load();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    VerificationWithTimeout timeout = Mockito.timeout(200);
+    Mockito.verify(threadPoolExecutor, timeout).execute(benchmarkWorker);
+
+    BenchmarkWorkerConfig workerConfig = workerConfigCapture.getValue();
+    Assert.assertEquals("module2", workerConfig.getModuleName());
+    Assert.assertEquals(Arrays.asList(RunnerConfigs.IE10_WIN, RunnerConfigs.IE11_WIN),
+        workerConfig.getRunners());
+    Assert.assertEquals(BenchmarkRun.State.DONE,
+        manager.getLatestRun().get("module1").getState());
+
+    ProgressHandler progressHandler = progressHandlerCaptor.getValue();
+    progressHandler.onResult(RunnerConfigs.IE10_WIN, 4, Arrays.asList(4.0), null);
+    progressHandler.onResult(RunnerConfigs.IE11_WIN, 5, Arrays.asList(5.0), null);
+    progressHandler.onRunEnded();
+    Mockito.verify(runJournal).recordResult("module2", RunnerConfigs.IE11_WIN, 5,
+        Arrays.asList(5.0), false);
+
+    Mockito.verify(benchmarkReporter, timeout).run();
+    BenchmarkRun benchmarkRun = resultCaptor.getValue().get("module2");
+    Assert.assertEquals(BenchmarkRun.State.DONE, benchmarkRun.getState());
+    Assert.assertEquals(3,
+        benchmarkRun.getResults().get(RunnerConfigs.CHROME_LINUX).getRunsPerSecond(), 0.0001);
+    Assert.assertFalse(benchmarkRun.getResults().get(RunnerConfigs.CHROME_LINUX).isReused());
+    BenchmarkRun.Result reusedResult = benchmarkRun.getResults().get(RunnerConfigs.FIREFOX_LINUX);
+    Assert.assertTrue(reusedResult.isReused());
+    Assert.assertEquals(2, reusedResult.getRunsPerSecond(), 0.0001);
+    Assert.assertEquals(Arrays.asList(2.0), reusedResult.getForkRunsPerSecond());
+    Assert.assertEquals(5,
+        benchmarkRun.getResults().get(RunnerConfigs.IE11_WIN).getRunsPerSecond(), 0.0001);
+
+    manager.stop();
+  }
+
+  @Test
+  public void testCommitWithoutModulesToRunIsFinished() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    // without a D8 runner this module is skipped
+    Mockito.when(collector.get()).thenReturn(Arrays.asList("moduleD8"));
+
+    ArgumentCaptor<ReportProgressHandler> reportProgressHandlerCaptor =
+        ArgumentCaptor.forClass(ReportProgressHandler.class);
+    Mockito.when(reporterFactory.create(Mockito.<Map<String, BenchmarkRun>> any(),
+        Mockito.eq("commit2"), Mockito.anyLong(), reportProgressHandlerCaptor.capture()))
+        .thenReturn(benchmarkReporter);
+
+    manager.start();
 
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    Mockito.verify(benchmarkReporter, Mockito.timeout(200)).run();
+    Mockito.verify(threadPoolExecutor, Mockito.never()).execute(Mockito.<Runnable> any());
+
+    reportProgressHandlerCaptor.getValue().onCommitReported();
+    waitFor(new Condition() {
       @Override
-      public void run() {
-        manager.addBenchmarkRun(null);
+      public boolean condition() {
+        return manager.getLastCommitId().equals("commit2");
       }
-    });
+    }, 200);
 
-    thread.start();
+    manager.stop();
+  }
 
-    Thread.sleep(50);
-    manager.getLatestRun();
+  @Test
+  public void testJvmRunnerOnlyForModulesWithJvmBenchmark() throws BenchmarkManagerException,
+      InterruptedException {
+    Mockito.when(timerProvider.get()).thenReturn(timer);
+    runnerRegistry = new RunnerRegistry(Arrays.asList(
+        new RunnerRegistry.Entry(RunnerConfigs.CHROME_LINUX, null, 1, 60),
+        new RunnerRegistry.Entry(RunnerConfigs.JVM_LINUX, null, 1, 0)));
 
-    Assert.assertEquals(2, list.size());
-    Assert.assertEquals("add", list.get(0));
-    Assert.assertEquals("get", list.get(1));
+    manager = new BenchmarkManager(collector,
+        benchmarkWorkerFactory,
+        poolProvider,
+        reporterFactory,
+        true,
+        commitReader,
+        timerProvider,
+        errorReporter,
+        0,
+        5,
+        runJournal,
+        moduleScheduler,
+        failurePolicy,
+        runnerRegistry,
+        sessionPool);
+
+    String octaneModule = "com.google.gwt.benchmark.benchmarks.octane.RichardsBenchmarkGWT";
+    String langModule = "com.google.gwt.benchmark.benchmarks.java.lang.LongAddBenchmark";
+    Mockito.when(commitReader.getLastCommitId()).thenReturn("commit1");
+    Mockito.when(commitReader.getCurrentCommitId()).thenReturn("commit2");
+    Mockito.when(poolProvider.get()).thenReturn(threadPoolExecutor);
+    Mockito.when(collector.get()).thenReturn(Arrays.asList(octaneModule, langModule));
+    Mockito.when(collector.hasJvmBenchmark(langModule)).thenReturn(true);
+
+    ArgumentCaptor<BenchmarkWorkerConfig> workerConfigCapture =
+        ArgumentCaptor.forClass(BenchmarkWorkerConfig.class);
+    Mockito.when(benchmarkWorkerFactory.create(workerConfigCapture.capture(),
+        Mockito.<ProgressHandler> any())).thenReturn(benchmarkWorker);
+
+    manager.start();
+
+    ArgumentCaptor<TimerTask> captor = ArgumentCaptor.forClass(TimerTask.class);
+    Mockito.verify(timer).scheduleAtFixedRate(captor.capture(), Mockito.anyLong(),
+        Mockito.anyLong());
+    captor.getValue().run();
+
+    Mockito.verify(threadPoolExecutor, Mockito.timeout(200).times(2)).execute(benchmarkWorker);
+
+    Map<String, List<RunnerConfig>> runnersByModule = new HashMap<>();
+    for (BenchmarkWorkerConfig workerConfig : workerConfigCapture.getAllValues()) {
+      runnersByModule.put(workerConfig.getModuleName(), workerConfig.getRunners());
+    }
+    Assert.assertEquals(Arrays.asList(RunnerConfigs.CHROME_LINUX),
+        runnersByModule.get(octaneModule));
+    Assert.assertEquals(Arrays.asList(RunnerConfigs.CHROME_LINUX, RunnerConfigs.JVM_LINUX),
+        runnersByModule.get(langModule));
+
+    manager.stop();
   }
 
   private void waitFor(Condition c, long timeout) throws InterruptedException {
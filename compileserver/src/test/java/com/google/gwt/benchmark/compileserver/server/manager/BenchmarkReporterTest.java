@@ -15,7 +15,10 @@ package com.google.gwt.benchmark.compileserver.server.manager;
 
 import com.google.gwt.benchmark.common.shared.json.BenchmarkResultJson;
 import com.google.gwt.benchmark.common.shared.json.BenchmarkRunJson;
+import com.google.gwt.benchmark.common.shared.json.CodeSizeJson;
 import com.google.gwt.benchmark.common.shared.json.JsonFactory;
+import com.google.gwt.benchmark.common.shared.json.TimingSamples;
+import com.google.gwt.benchmark.common.shared.json.TimingStatisticsJson;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkReporter.HttpURLConnectionFactory;
 import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkReporter.ReportProgressHandler;
 import com.google.web.bindery.autobean.shared.AutoBean;
@@ -31,6 +34,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,14 +62,19 @@ public class BenchmarkReporterTest {
     BenchmarkRun benchmarkRun = new BenchmarkRun("module1", commitId, commitDate);
     benchmarkRun.addRunner(RunnerConfigs.CHROME_LINUX);
     benchmarkRun.addRunner(RunnerConfigs.FIREFOX_LINUX);
-    benchmarkRun.addResult(RunnerConfigs.CHROME_LINUX, 2);
-    benchmarkRun.addResult(RunnerConfigs.FIREFOX_LINUX, 3);
+    benchmarkRun.addResult(RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(1.0, 2.0, 3.0),
+        new TimingStatistics(Arrays.asList(400.0, 600.0), 500, 400, 600, 600, 141.42, 400, 600,
+            12, 0.015));
+    benchmarkRun.addResult(RunnerConfigs.FIREFOX_LINUX, 3, Arrays.asList(3.0), null);
+    benchmarkRun.setCodeSize(new CodeSize(Arrays.asList(
+        new CodeSize.PermutationSize("A.cache.js", 1000, 300),
+        new CodeSize.PermutationSize("B.cache.js", 1200, 350))));
     results.put("module1", benchmarkRun);
     BenchmarkRun benchmarkRun1 = new BenchmarkRun("module2", commitId, commitDate);
     benchmarkRun1.addRunner(RunnerConfigs.CHROME_LINUX);
     benchmarkRun1.addRunner(RunnerConfigs.FIREFOX_LINUX);
-    benchmarkRun1.addResult(RunnerConfigs.CHROME_LINUX, 4);
-    benchmarkRun1.addResult(RunnerConfigs.FIREFOX_LINUX, 5);
+    benchmarkRun1.addResult(RunnerConfigs.CHROME_LINUX, 4, Arrays.asList(4.0), null);
+    benchmarkRun1.addResult(RunnerConfigs.FIREFOX_LINUX, 5, Arrays.asList(5.0), null);
     results.put("module2", benchmarkRun1);
 
     urlFactory = Mockito.mock(BenchmarkReporter.HttpURLConnectionFactory.class);
@@ -116,6 +125,19 @@ public class BenchmarkReporterTest {
     Assert.assertEquals(2, module1List.get(0).getRunsPerSecond(), 0.0001);
     Assert.assertEquals(RunnerConfigs.CHROME_LINUX.toString(),
         module1List.get(0).getRunnerId().toString());
+    Assert.assertEquals(Arrays.asList(1.0, 2.0, 3.0), module1List.get(0).getForkRunsPerSecond());
+    TimingStatisticsJson timingStatistics = module1List.get(0).getTimingStatistics();
+    Assert.assertEquals(Arrays.asList(400.0, 600.0), timingStatistics.getSamplesMs());
+    Assert.assertEquals(500, timingStatistics.getMeanMs(), 0.0001);
+    Assert.assertEquals(400, timingStatistics.getMedianMs(), 0.0001);
+    Assert.assertEquals(600, timingStatistics.getP90Ms(), 0.0001);
+    Assert.assertEquals(600, timingStatistics.getP99Ms(), 0.0001);
+    Assert.assertEquals(141.42, timingStatistics.getStdDevMs(), 0.0001);
+    Assert.assertEquals(400, timingStatistics.getMinMs(), 0.0001);
+    Assert.assertEquals(600, timingStatistics.getMaxMs(), 0.0001);
+    Assert.assertEquals(12, timingStatistics.getWarmupRuns());
+    Assert.assertEquals(0.015, timingStatistics.getRelativeMarginOfError(), 0.0001);
+    Assert.assertNull(module1List.get(1).getTimingStatistics());
     Assert.assertEquals("module1", module1List.get(1).getBenchmarkName());
     Assert.assertEquals(3, module1List.get(1).getRunsPerSecond(), 0.0001);
     Assert.assertEquals(RunnerConfigs.FIREFOX_LINUX.toString(),
@@ -131,9 +153,53 @@ public class BenchmarkReporterTest {
     Assert.assertEquals(RunnerConfigs.FIREFOX_LINUX.toString(),
         module1List2.get(1).getRunnerId().toString());
 
+    Map<String, CodeSizeJson> codeSizes = benchmarkRunJSON.getCodeSizeByBenchmarkName();
+    Assert.assertEquals(1, codeSizes.size());
+    CodeSizeJson codeSize = codeSizes.get("module1");
+    Assert.assertEquals(2200, codeSize.getTotalBytes(), 0.0001);
+    Assert.assertEquals(650, codeSize.getTotalGzipBytes(), 0.0001);
+    Assert.assertEquals(2, codeSize.getPermutations().size());
+    Assert.assertEquals("B.cache.js", codeSize.getPermutations().get(1).getFileName());
+    Assert.assertEquals(1200, codeSize.getPermutations().get(1).getBytes(), 0.0001);
+    Assert.assertEquals(350, codeSize.getPermutations().get(1).getGzipBytes(), 0.0001);
+
     Mockito.verify(reportProgressHandler).onCommitReported();
   }
 
+  @Test
+  public void testSamplesAreLimited() throws IOException {
+    List<Double> samplesMs = new ArrayList<>();
+    for (int i = 0; i < 300000; i++) {
+      samplesMs.add((double) i);
+    }
+    BenchmarkRun benchmarkRun = new BenchmarkRun("module1", commitId, commitDate);
+    benchmarkRun.addRunner(RunnerConfigs.CHROME_LINUX);
+    benchmarkRun.addResult(RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(2.0),
+        new TimingStatistics(samplesMs, 150000, 150000, 270000, 297000, 86602, 0, 299999));
+    results.clear();
+    results.put("module1", benchmarkRun);
+    Mockito.when(urlFactory.create()).thenReturn(urlConnection);
+    Mockito.when(urlConnection.getOutputStream()).thenReturn(outputStream);
+    Mockito.when(urlConnection.getResponseCode()).thenReturn(200);
+
+    reporter = new BenchmarkReporter(urlFactory, "auth1", results, commitId, commitDate,
+        reportProgressHandler);
+
+    reporter.run();
+
+    ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+    Mockito.verify(outputStream).write(captor.capture());
+    BenchmarkRunJson benchmarkRunJSON = AutoBeanCodex.decode(JsonFactory.get(),
+        BenchmarkRunJson.class, new String(captor.getValue(), "UTF-8")).as();
+    TimingStatisticsJson timingStatistics =
+        benchmarkRunJSON.getResultByBenchmarkName().get("module1").get(0).getTimingStatistics();
+    Assert.assertEquals(TimingSamples.MAX_SAMPLES, timingStatistics.getSamplesMs().size());
+    Assert.assertEquals(0, timingStatistics.getSamplesMs().get(0), 0.0001);
+    Assert.assertEquals(299700, timingStatistics.getSamplesMs().get(999), 0.0001);
+    Assert.assertEquals(150000, timingStatistics.getMeanMs(), 0.0001);
+    Assert.assertEquals(299999, timingStatistics.getMaxMs(), 0.0001);
+  }
+
   @Test
   public void testFailingRetries() throws IOException {
 
@@ -23,13 +23,22 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test for {@link BenchmarkWorker}.
@@ -49,6 +58,9 @@ public class BenchmarkWorkerTest {
   private Provider<String> randomStringProvider;
   private String moduleTemplate;
   private BenchmarkWorkerConfig benchmarkData;
+  private ExecutorService runnerPool;
+  private RunnerDispatcher runnerDispatcher;
+  private ExecutionMode executionMode;
 
   @Before
   public void setup() {
@@ -82,12 +94,20 @@ public class BenchmarkWorkerTest {
 
     randomStringProvider = BenchmarkManagerTest.cast(Mockito.mock(Provider.class));
 
+    executionMode = new ExecutionMode(false, 2);
+
+    runnerPool = Executors.newCachedThreadPool();
+    runnerDispatcher = new RunnerDispatcher(runnerPool, 1,
+        new RunnerRegistry(Collections.<RunnerRegistry.Entry> emptyList()));
+
     worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
-        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider);
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 1, executionMode);
   }
 
   @After
   public void tearDown() throws IOException {
+    runnerPool.shutdownNow();
     FileUtils.deleteDirectory(benchmarkCompileOutputDir);
   }
 
@@ -110,7 +130,8 @@ public class BenchmarkWorkerTest {
     File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
 
     BenchmarkWorker worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate,
-        benchmarkData, progressHandler, ip, 8080, benchmarkCompileOutputDir, randomStringProvider);
+        benchmarkData, progressHandler, ip, 8080, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 1, executionMode);
 
     Mockito.doThrow(new BenchmarkCompilerException("test")).when(compiler)
         .compile(moduleName, workDir);
@@ -137,6 +158,7 @@ public class BenchmarkWorkerTest {
         runner);
 
     worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
 
     File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
 
@@ -145,7 +167,7 @@ public class BenchmarkWorkerTest {
     Mockito.verify(runnerProvider).create(runnerConfig,
         "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html");
 
-    Mockito.verify(progressHandler).onResult(runnerConfig, 1337);
+    Mockito.verify(progressHandler).onResult(runnerConfig, 1337, Arrays.asList(1337.0), null);
     Mockito.verify(progressHandler).onRunEnded();
 
     Assert.assertFalse(workDir.exists());
@@ -164,6 +186,7 @@ public class BenchmarkWorkerTest {
         runner);
 
     worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
     File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
 
     Mockito.verify(compiler).compile(moduleName, workDir);
@@ -182,8 +205,10 @@ public class BenchmarkWorkerTest {
   public void testModuleFileIsBeingWritten() throws BenchmarkCompilerException,
       FileNotFoundException, IOException {
 
-    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
-        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider) {
+    worker = new BenchmarkWorker(compiler, runnerProvider,
+        "<script>{benchmark_config}</script>{module_nocache}", benchmarkData, progressHandler, ip,
+        port, benchmarkCompileOutputDir, randomStringProvider, runnerDispatcher, 1,
+        new ExecutionMode(true, 1)) {
       @Override
       void cleanupDirectory(File outputDir) {
         // do nothing so we can see if the directory has the right content
@@ -201,6 +226,7 @@ public class BenchmarkWorkerTest {
         runner);
 
     worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
 
     File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
 
@@ -209,7 +235,7 @@ public class BenchmarkWorkerTest {
     Mockito.verify(runnerProvider).create(runnerConfig,
         "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html");
 
-    Mockito.verify(progressHandler).onResult(runnerConfig, 1337);
+    Mockito.verify(progressHandler).onResult(runnerConfig, 1337, Arrays.asList(1337.0), null);
     Mockito.verify(progressHandler).onRunEnded();
 
     Assert.assertTrue(workDir.exists());
@@ -217,6 +243,202 @@ public class BenchmarkWorkerTest {
     String hostPageContent =
         IOUtils.toString(new FileInputStream(new File(workDir, moduleName + ".html")), "UTF-8");
 
-    Assert.assertEquals(moduleName + "/" + moduleName + ".nocache.js", hostPageContent);
+    Assert.assertEquals("<script>var __gwt__benchmarking__config = {mode: 'stable', "
+        + "maxRelativeError: 0.01};</script>" + moduleName + "/" + moduleName + ".nocache.js",
+        hostPageContent);
+  }
+
+  @Test
+  public void testRunnersAreExecutedInParallel() throws BenchmarkCompilerException {
+    RunnerConfig otherRunnerConfig = RunnerConfigs.FIREFOX_LINUX;
+    benchmarkData =
+        new BenchmarkWorkerConfig(moduleName, Arrays.asList(runnerConfig, otherRunnerConfig));
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 1, executionMode);
+
+    // Both runners can only finish if they are running at the same time
+    final CountDownLatch latch = new CountDownLatch(2);
+    Answer<Void> waitForOtherRunner = new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        latch.countDown();
+        if (!latch.await(5, TimeUnit.SECONDS)) {
+          throw new RuntimeException("runners are not executed in parallel");
+        }
+        return null;
+      }
+    };
+
+    Runner otherRunner = Mockito.mock(Runner.class);
+    Mockito.doAnswer(waitForOtherRunner).when(runner).run();
+    Mockito.doAnswer(waitForOtherRunner).when(otherRunner).run();
+    Mockito.when(runner.getResult()).thenReturn(Double.valueOf(1337));
+    Mockito.when(runner.getConfig()).thenReturn(runnerConfig);
+    Mockito.when(otherRunner.getResult()).thenReturn(Double.valueOf(42));
+    Mockito.when(otherRunner.getConfig()).thenReturn(otherRunnerConfig);
+
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+
+    String url = "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html";
+    Mockito.when(runnerProvider.create(runnerConfig, url)).thenReturn(runner);
+    Mockito.when(runnerProvider.create(otherRunnerConfig, url)).thenReturn(otherRunner);
+
+    worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(10000)).onRunEnded();
+
+    Mockito.verify(progressHandler).onResult(runnerConfig, 1337, Arrays.asList(1337.0), null);
+    Mockito.verify(progressHandler).onResult(otherRunnerConfig, 42, Arrays.asList(42.0), null);
+    Mockito.verify(progressHandler, Mockito.never()).failedToRunBenchmark(
+        Mockito.<RunnerConfig>any(), Mockito.anyString());
+    Mockito.verify(progressHandler).onRunEnded();
+  }
+
+  @Test
+  public void testUnchangedOutputReusesResults() throws BenchmarkCompilerException, IOException {
+    final File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        FileUtils.writeStringToFile(new File(workDir, moduleName + "/ABC.cache.js"), "js");
+        return null;
+      }
+    }).when(compiler).compile(moduleName, workDir);
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+
+    benchmarkData = new BenchmarkWorkerConfig(moduleName, Arrays.asList(runnerConfig),
+        FileHashes.sha1(writeTempFile("js")));
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 1, executionMode);
+
+    worker.run();
+
+    Mockito.verify(progressHandler).onCompiled(benchmarkData.getPreviousOutputHash());
+    Mockito.verify(progressHandler).onResultsReused();
+    Mockito.verify(progressHandler).onRunEnded();
+    Mockito.verifyZeroInteractions(runnerProvider);
+    Assert.assertFalse(workDir.exists());
+  }
+
+  @Test
+  public void testChangedOutputIsRun() throws BenchmarkCompilerException, IOException {
+    final File workDir = new File(benchmarkCompileOutputDir, "randomDir1");
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        FileUtils.writeStringToFile(new File(workDir, moduleName + "/ABC.cache.js"), "new js");
+        return null;
+      }
+    }).when(compiler).compile(moduleName, workDir);
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+    Mockito.when(runner.getResult()).thenReturn(Double.valueOf(1337));
+    Mockito.when(runner.getConfig()).thenReturn(runnerConfig);
+    Mockito.when(runnerProvider.create(RunnerConfigs.CHROME_LINUX,
+        "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html")).thenReturn(
+        runner);
+
+    benchmarkData = new BenchmarkWorkerConfig(moduleName, Arrays.asList(runnerConfig),
+        FileHashes.sha1(writeTempFile("js")));
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 1, executionMode);
+
+    worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
+
+    Mockito.verify(progressHandler).onCompiled(FileHashes.sha1(writeTempFile("new js")));
+    ArgumentCaptor<CodeSize> codeSizeCaptor = ArgumentCaptor.forClass(CodeSize.class);
+    Mockito.verify(progressHandler).onCodeSizeMeasured(codeSizeCaptor.capture());
+    Assert.assertEquals(6, codeSizeCaptor.getValue().getTotalBytes());
+    Assert.assertEquals(1, codeSizeCaptor.getValue().getPermutations().size());
+    Assert.assertEquals("ABC.cache.js",
+        codeSizeCaptor.getValue().getPermutations().get(0).getFileName());
+    Mockito.verify(progressHandler, Mockito.never()).onResultsReused();
+    Mockito.verify(progressHandler).onResult(runnerConfig, 1337, Arrays.asList(1337.0), null);
+  }
+
+  @Test
+  public void testForksAreAggregated() {
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 5, executionMode);
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+
+    TimingStatistics timingStatistics =
+        new TimingStatistics(Arrays.asList(1.0), 1, 1, 1, 1, 0, 1, 1);
+    Runner fork1 = createFork(10);
+    Runner fork2 = createFork(11);
+    Mockito.when(fork2.getTimingStatistics()).thenReturn(timingStatistics);
+    Runner fork3 = createFork(12);
+    Runner fork4 = createFork(13);
+    Runner fork5 = createFork(100);
+    Mockito.when(runnerProvider.create(runnerConfig,
+        "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html")).thenReturn(
+        fork1, fork2, fork3, fork4, fork5);
+
+    worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
+
+    // 100 is rejected as an outlier, the median of the remaining forks is 11.5
+    Mockito.verify(progressHandler).onResult(runnerConfig, 11.5,
+        Arrays.asList(10.0, 11.0, 12.0, 13.0, 100.0), timingStatistics);
+  }
+
+  @Test
+  public void testFailingForkFailsRunner() {
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        runnerDispatcher, 2, executionMode);
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+
+    Runner fork = createFork(10);
+    Runner failingFork = createFork(0);
+    Mockito.when(failingFork.isFailed()).thenReturn(true);
+    Mockito.when(failingFork.getErrorMessage()).thenReturn("error");
+    Mockito.when(runnerProvider.create(runnerConfig,
+        "http://" + ip + ":" + port + "/__bench/randomDir1/" + moduleName + ".html")).thenReturn(
+        fork, failingFork);
+
+    worker.run();
+    Mockito.verify(progressHandler, Mockito.timeout(1000)).onRunEnded();
+
+    Mockito.verify(progressHandler).failedToRunBenchmark(runnerConfig, "error");
+    Mockito.verify(progressHandler, Mockito.never()).onResult(Mockito.<RunnerConfig>any(),
+        Mockito.anyDouble(), Mockito.<List<Double>>any(), Mockito.<TimingStatistics>any());
+  }
+
+  @Test
+  public void testInterruptedDispatchFailsEveryConfigOnce() throws InterruptedException {
+    RunnerDispatcher interruptedDispatcher = Mockito.mock(RunnerDispatcher.class);
+    Mockito.doThrow(new InterruptedException()).when(interruptedDispatcher)
+        .dispatch(Mockito.<List<Runner>>any(), Mockito.<RunnerDispatcher.Callback>any());
+    benchmarkData = new BenchmarkWorkerConfig(moduleName,
+        Arrays.asList(RunnerConfigs.CHROME_LINUX, RunnerConfigs.FIREFOX_LINUX));
+    worker = new BenchmarkWorker(compiler, runnerProvider, moduleTemplate, benchmarkData,
+        progressHandler, ip, port, benchmarkCompileOutputDir, randomStringProvider,
+        interruptedDispatcher, 3, executionMode);
+    Mockito.when(randomStringProvider.get()).thenReturn("randomDir1");
+
+    worker.run();
+
+    Mockito.verify(progressHandler).failedToRunBenchmark(RunnerConfigs.CHROME_LINUX,
+        "Interrupted while waiting for runners");
+    Mockito.verify(progressHandler).failedToRunBenchmark(RunnerConfigs.FIREFOX_LINUX,
+        "Interrupted while waiting for runners");
+    Mockito.verify(progressHandler).onRunEnded();
+  }
+
+  private Runner createFork(double result) {
+    Runner fork = Mockito.mock(Runner.class);
+    Mockito.when(fork.getResult()).thenReturn(result);
+    Mockito.when(fork.getConfig()).thenReturn(runnerConfig);
+    return fork;
+  }
+
+  private File writeTempFile(String content) throws IOException {
+    File file = new File(benchmarkCompileOutputDir, "expected");
+    FileUtils.writeStringToFile(file, content);
+    return file;
   }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test for {@link CachingBenchmarkCompiler}.
+ */
+public class CachingBenchmarkCompilerTest {
+
+  private File root;
+  private File devJar;
+  private File sourceDir;
+  private BenchmarkCompiler compiler;
+  private CachingBenchmarkCompiler cachingCompiler;
+
+  @Before
+  public void setup() throws IOException, BenchmarkCompilerException {
+    root = new File("./target/compilecachetest/");
+    FileUtils.deleteQuietly(root);
+    devJar = new File(root, "sdk/gwt-dev.jar");
+    File userJar = new File(root, "sdk/gwt-user.jar");
+    FileUtils.writeStringToFile(devJar, "dev");
+    FileUtils.writeStringToFile(userJar, "user");
+    sourceDir = new File(root, "src");
+    FileUtils.writeStringToFile(new File(sourceDir, "Benchmark.java"), "class Benchmark {}");
+
+    CliInteractor cliInteractor = Mockito.mock(CliInteractor.class);
+    Mockito.when(cliInteractor.getGwtDevJar()).thenReturn(devJar);
+    Mockito.when(cliInteractor.getGwtUserJar()).thenReturn(userJar);
+
+    // Writes 1 MB of output for every compile
+    compiler = Mockito.mock(BenchmarkCompiler.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        String moduleName = (String) invocation.getArguments()[0];
+        File outputDir = (File) invocation.getArguments()[1];
+        FileUtils.writeByteArrayToFile(new File(outputDir, moduleName + "/module.js"),
+            new byte[1024 * 1024]);
+        return null;
+      }
+    }).when(compiler).compile(Mockito.anyString(), Mockito.any(File.class));
+
+    cachingCompiler = new CachingBenchmarkCompiler(compiler, cliInteractor, sourceDir,
+        new File(root, "cache"), 2);
+  }
+
+  @Test
+  public void testSecondCompileIsCached() throws BenchmarkCompilerException {
+    cachingCompiler.compile("module1", new File(root, "out1"));
+    cachingCompiler.compile("module1", new File(root, "out2"));
+
+    Mockito.verify(compiler, Mockito.times(1)).compile(Mockito.eq("module1"),
+        Mockito.any(File.class));
+    Assert.assertEquals(1024 * 1024, new File(root, "out2/module1/module.js").length());
+  }
+
+  @Test
+  public void testChangedInputIsNotCached() throws BenchmarkCompilerException, IOException {
+    String key = cachingCompiler.getKey("module1");
+
+    FileUtils.writeStringToFile(devJar, "new dev");
+    String sdkChangedKey = cachingCompiler.getKey("module1");
+    Assert.assertNotEquals(key, sdkChangedKey);
+    Assert.assertNotEquals(sdkChangedKey, cachingCompiler.getKey("module2"));
+
+    // The sources are hashed again with the next SDK
+    FileUtils.writeStringToFile(new File(sourceDir, "Benchmark.java"), "class Benchmark { }");
+    Assert.assertEquals(sdkChangedKey, cachingCompiler.getKey("module1"));
+    FileUtils.writeStringToFile(devJar, "dev");
+    Assert.assertNotEquals(key, cachingCompiler.getKey("module1"));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() throws BenchmarkCompilerException {
+    cachingCompiler.compile("module1", new File(root, "out1"));
+    cachingCompiler.compile("module2", new File(root, "out2"));
+    // module1 is now more recently used than module2
+    cachingCompiler.compile("module1", new File(root, "out3"));
+    // only two entries fit into 2 MB
+    cachingCompiler.compile("module3", new File(root, "out4"));
+
+    cachingCompiler.compile("module1", new File(root, "out5"));
+    cachingCompiler.compile("module2", new File(root, "out6"));
+
+    Mockito.verify(compiler, Mockito.times(1)).compile(Mockito.eq("module1"),
+        Mockito.any(File.class));
+    Mockito.verify(compiler, Mockito.times(2)).compile(Mockito.eq("module2"),
+        Mockito.any(File.class));
+  }
+}
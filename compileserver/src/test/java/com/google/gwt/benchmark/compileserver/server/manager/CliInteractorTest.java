@@ -17,10 +17,13 @@ import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Test for {@link CliInteractor}.
@@ -47,9 +50,11 @@ public class CliInteractorTest {
   private File compilerOutputDir;
   private CliInteractor scriptInteractor;
   private File scriptDirectoryFail;
+  private File unitCacheDir;
+  private UnitCache unitCache;
 
   @Before
-  public void setup() {
+  public void setup() throws BenchmarkCompilerException {
 
     scriptDirectory = new File("./src/test/resources/scripts-working/");
     scriptDirectoryFail = new File("./src/test/resources/scripts-fail/");
@@ -57,9 +62,12 @@ public class CliInteractorTest {
     gwtSourceLocation = new File("./target/fakesource/");
     benchmarkSourceLocation = new File("./target/fakebenchmark/");
     compilerOutputDir = new File("./target/compilerout/");
+    unitCacheDir = new File("./target/unitcache/");
+    unitCache = Mockito.mock(UnitCache.class);
+    Mockito.when(unitCache.getDirectory(Mockito.<File>any())).thenReturn(unitCacheDir);
 
     scriptInteractor = new CliInteractor(scriptDirectory, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
 
   }
 
@@ -75,7 +83,7 @@ public class CliInteractorTest {
       out = out.substring(0, out.length() - 1);
 
       String[] split = out.split(";");
-      Assert.assertEquals(5, split.length);
+      Assert.assertEquals(6, split.length);
 
       Assert.assertEquals("myModule1", split[0]);
       Assert.assertEquals(
@@ -90,6 +98,7 @@ public class CliInteractorTest {
           new File(split[3]).getAbsolutePath());
       Assert.assertEquals(compilerOutputDir.getAbsolutePath(),
           new File(split[4]).getAbsolutePath());
+      Assert.assertEquals(unitCacheDir.getAbsolutePath(), new File(split[5]).getAbsolutePath());
     } finally {
       IOUtils.closeQuietly(inputStream);
     }
@@ -98,7 +107,7 @@ public class CliInteractorTest {
   @Test
   public void testFailingDueToGWTCompilerFail() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
       scriptInteractor.compile("myModule1", compilerOutputDir);
       Assert.fail("Expected exception did not occur");
@@ -120,7 +129,7 @@ public class CliInteractorTest {
   @Test
   public void testGetCurrentCommitIdFailing() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
       scriptInteractor.getCurrentCommitId();
       Assert.fail("Expected exception did not occur");
@@ -130,6 +139,29 @@ public class CliInteractorTest {
     }
   }
 
+  @Test
+  public void testGetCommitsSince() throws BenchmarkManagerException, IOException {
+    List<String> commits = scriptInteractor.getCommitsSince("baseCommit1");
+
+    Assert.assertEquals(Arrays.asList("commit2", "commit3"), commits);
+    String[] split = getTestOutput().split(";");
+    Assert.assertEquals("baseCommit1", split[0]);
+    Assert.assertEquals(gwtSourceLocation.getAbsolutePath(), new File(split[1]).getAbsolutePath());
+  }
+
+  @Test
+  public void testGetCommitsSinceFailing() {
+    scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
+    try {
+      scriptInteractor.getCommitsSince("doesntmatter");
+      Assert.fail("Expected exception did not occur");
+    } catch (BenchmarkManagerException e) {
+      Assert.assertEquals("Command returned with 1 commitsSince: This is my errormessage!\n",
+          e.getMessage());
+    }
+  }
+
   @Test
   public void testGetDateForCommit() throws BenchmarkManagerException {
     long date = scriptInteractor.getDateForCommitInMsEpoch("asdf1");
@@ -139,7 +171,7 @@ public class CliInteractorTest {
   @Test
   public void testGetDateForCommitFailing() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
       scriptInteractor.getDateForCommitInMsEpoch("commitId1");
       Assert.fail("Expected exception did not occur");
@@ -151,7 +183,7 @@ public class CliInteractorTest {
 
   @Test
   public void testBuildSDK() throws BenchmarkManagerException, IOException {
-    scriptInteractor.buildSDK();
+    scriptInteractor.buildSDK("commit1");
     Assert.assertEquals(gwtSourceLocation.getAbsolutePath(),
         new File(getTestOutput()).getAbsolutePath());
   }
@@ -159,9 +191,9 @@ public class CliInteractorTest {
   @Test
   public void testBuildSDKFailing() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
-      scriptInteractor.buildSDK();
+      scriptInteractor.buildSDK("commit1");
       Assert.fail("Expected exception did not occur");
     } catch (BenchmarkManagerException e) {
       Assert.assertEquals("Command returned with 1 buildSDK: This is my errormessage!\n",
@@ -169,6 +201,95 @@ public class CliInteractorTest {
     }
   }
 
+  @Test
+  public void testIncrementalBuildSDK() throws BenchmarkManagerException, IOException {
+    scriptInteractor = new CliInteractor(scriptDirectory, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, true);
+
+    // nothing has been built yet
+    scriptInteractor.buildSDK("commit1");
+    Assert.assertEquals(gwtSourceLocation.getAbsolutePath(),
+        new File(getTestOutput()).getAbsolutePath());
+
+    // the script is told which commit the build output belongs to
+    scriptInteractor.buildSDK("commit2");
+    String[] lines = getTestOutput().split("\n");
+    Assert.assertEquals(gwtSourceLocation.getAbsolutePath(), new File(lines[0]).getAbsolutePath());
+    Assert.assertEquals("commit1", lines[1]);
+  }
+
+  @Test
+  public void testIncrementalBuildSDKFallsBackToCleanBuild() throws BenchmarkManagerException,
+      IOException {
+    scriptInteractor = new CliInteractor(scriptDirectory, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, true);
+
+    scriptInteractor.buildSDK("brokenCommit");
+    scriptInteractor.buildSDK("commit2");
+    Assert.assertEquals(gwtSourceLocation.getAbsolutePath(),
+        new File(getTestOutput()).getAbsolutePath());
+  }
+
+  @Test
+  public void testBuildSDKInWorktree() throws BenchmarkManagerException, IOException {
+    scriptInteractor = new CliInteractor(scriptDirectory, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 2, false);
+    Assert.assertTrue(scriptInteractor.usesWorktrees());
+
+    File worktree = scriptInteractor.buildSDKInWorktree("commit1");
+    Assert.assertEquals(worktree.getAbsolutePath(), new File(getTestOutput()).getAbsolutePath());
+    Assert.assertEquals(new File(persistenceDir, "worktrees"), worktree.getParentFile());
+
+    // compiles keep using the source location until the new SDK is activated
+    Assert.assertEquals(new File(gwtSourceLocation, "build/staging/gwt-0.0.0/gwt-dev.jar"),
+        scriptInteractor.getGwtDevJar());
+    scriptInteractor.activateSDK(worktree);
+    Assert.assertEquals(new File(worktree, "build/staging/gwt-0.0.0/gwt-dev.jar"),
+        scriptInteractor.getGwtDevJar());
+    Assert.assertEquals(new File(worktree, "build/staging/gwt-0.0.0/gwt-user.jar"),
+        scriptInteractor.getGwtUserJar());
+  }
+
+  @Test
+  public void testBuildSDKInWorktreeReusesWorktrees() throws BenchmarkManagerException {
+    scriptInteractor = new CliInteractor(scriptDirectory, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 2, false);
+
+    File first = scriptInteractor.buildSDKInWorktree("commit1");
+    scriptInteractor.activateSDK(first);
+    File second = scriptInteractor.buildSDKInWorktree("commit2");
+    Assert.assertNotEquals(first, second);
+
+    // both worktrees are in use
+    try {
+      scriptInteractor.buildSDKInWorktree("commit3");
+      Assert.fail("Expected exception did not occur");
+    } catch (BenchmarkManagerException e) {
+      Assert.assertEquals("No free worktree to build the SDK in", e.getMessage());
+    }
+
+    // activating the second SDK frees the worktree of the first
+    scriptInteractor.activateSDK(second);
+    Assert.assertEquals(first, scriptInteractor.buildSDKInWorktree("commit3"));
+  }
+
+  @Test
+  public void testBuildSDKInWorktreeFailing() {
+    scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 1, false);
+    // the second attempt needs the worktree of the failed first one back in the pool
+    for (int i = 0; i < 2; i++) {
+      try {
+        scriptInteractor.buildSDKInWorktree("commit1");
+        Assert.fail("Expected exception did not occur");
+      } catch (BenchmarkManagerException e) {
+        Assert.assertEquals(
+            "Command returned with 1 checkoutWorktree: This is my errormessage!\n",
+            e.getMessage());
+      }
+    }
+  }
+
   @Test
   public void testCheckout() throws BenchmarkManagerException, IOException {
     scriptInteractor.checkout("commit12");
@@ -181,9 +302,9 @@ public class CliInteractorTest {
   @Test
   public void testCheckoutFailing() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
-      scriptInteractor.buildSDK();
+      scriptInteractor.buildSDK("commit1");
       Assert.fail("Expected exception did not occur");
     } catch (BenchmarkManagerException e) {
       Assert.assertEquals("Command returned with 1 buildSDK: This is my errormessage!\n",
@@ -205,7 +326,7 @@ public class CliInteractorTest {
   @Test
   public void testCheckoutNextCommitFailing() {
     scriptInteractor = new CliInteractor(scriptDirectoryFail, persistenceDir, gwtSourceLocation,
-        benchmarkSourceLocation);
+        benchmarkSourceLocation, unitCache, new ProcessRunner(), 0, false);
     try {
       scriptInteractor.maybeCheckoutNextCommit("doesntmatter");
       Assert.fail("Expected exception did not occur");
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Test for {@link CodeSize}.
+ */
+public class CodeSizeTest {
+
+  private File dir;
+
+  @Before
+  public void setup() {
+    dir = new File("./target/codesizetest/");
+    FileUtils.deleteQuietly(dir);
+    dir.mkdirs();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Test
+  public void testMeasure() throws IOException {
+    String js1 = "function a(){return 1;}function a(){return 1;}function a(){return 1;}";
+    String js2 = "function b(){}";
+    File file1 = new File(dir, "A.cache.js");
+    File file2 = new File(dir, "B.cache.js");
+    FileUtils.writeStringToFile(file1, js1, "UTF-8");
+    FileUtils.writeStringToFile(file2, js2, "UTF-8");
+
+    CodeSize codeSize = CodeSize.measure(Arrays.asList(file1, file2));
+
+    Assert.assertEquals(2, codeSize.getPermutations().size());
+    CodeSize.PermutationSize permutation = codeSize.getPermutations().get(0);
+    Assert.assertEquals("A.cache.js", permutation.getFileName());
+    Assert.assertEquals(js1.length(), permutation.getBytes());
+    Assert.assertEquals(gzip(js1), permutation.getGzipBytes());
+    Assert.assertTrue(permutation.getGzipBytes() < permutation.getBytes());
+
+    Assert.assertEquals(js1.length() + js2.length(), codeSize.getTotalBytes());
+    Assert.assertEquals(gzip(js1) + gzip(js2), codeSize.getTotalGzipBytes());
+  }
+
+  private static long gzip(String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+    gzip.write(content.getBytes("UTF-8"));
+    gzip.close();
+    return bytes.size();
+  }
+}
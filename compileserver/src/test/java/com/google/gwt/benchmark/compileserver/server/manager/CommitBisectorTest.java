@@ -0,0 +1,152 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.BenchmarkRun.Result;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test for {@link CommitBisector}.
+ */
+public class CommitBisectorTest {
+
+  private static final List<String> COMMITS =
+      Arrays.asList("c0", "c1", "c2", "c3", "c4", "c5", "c6", "c7", "c8", "c9");
+
+  private static Map<String, Result> result(double runsPerSecond) {
+    Result result = new Result();
+    result.setRunsPerSecond(runsPerSecond);
+    return Collections.singletonMap("module1 chrome", result);
+  }
+
+  private static Map<String, Result> forks(Double... forkRunsPerSecond) {
+    Result result = new Result();
+    result.setRunsPerSecond(ForkAggregator.aggregate(Arrays.asList(forkRunsPerSecond)));
+    result.setForkRunsPerSecond(Arrays.asList(forkRunsPerSecond));
+    return Collections.singletonMap("module1 chrome", result);
+  }
+
+  private static Map<String, Result> stableResult(double runsPerSecond,
+      double relativeMarginOfError) {
+    Result result = new Result();
+    result.setRunsPerSecond(runsPerSecond);
+    result.setForkRunsPerSecond(Arrays.asList(runsPerSecond));
+    result.setTimingStatistics(new TimingStatistics(Arrays.asList(1.0), 1, 1, 1, 1, 0, 1, 1, 10,
+        relativeMarginOfError));
+    return Collections.singletonMap("module1 chrome", result);
+  }
+
+  @Test
+  public void testSparseCommitsAreBenchmarkedFirst() {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+
+    Assert.assertEquals("c0", bisector.nextCommit());
+    Assert.assertEquals("c4", bisector.nextCommit());
+    Assert.assertEquals("c8", bisector.nextCommit());
+    Assert.assertEquals("c9", bisector.nextCommit());
+    Assert.assertNull(bisector.nextCommit());
+    Assert.assertTrue(bisector.isDone());
+    Assert.assertEquals("c9", bisector.getLastCommit());
+  }
+
+  @Test
+  public void testUnchangedRangesAreNotBisected() {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+    for (String commit = bisector.nextCommit(); commit != null; commit = bisector.nextCommit()) {
+      bisector.onResults(commit, result(100));
+    }
+
+    Assert.assertTrue(bisector.isDone());
+  }
+
+  @Test
+  public void testChangeIsBisected() {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+    // c6 made things slower
+    int runs = 0;
+    for (String commit = bisector.nextCommit(); commit != null; commit = bisector.nextCommit()) {
+      bisector.onResults(commit, result(COMMITS.indexOf(commit) >= 6 ? 80 : 100));
+      runs++;
+    }
+
+    // c0, c4, c8, c9 then c6 and c5 to find the change between c5 and c6
+    Assert.assertEquals(6, runs);
+  }
+
+  @Test
+  public void testSmallChangeIsIgnored() {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+    bisector.nextCommit();
+    bisector.onResults("c0", result(100));
+    bisector.nextCommit();
+    bisector.onResults("c4", result(97));
+
+    Assert.assertEquals("c8", bisector.nextCommit());
+  }
+
+  @Test
+  public void testEqualMeansWithLargeSpreadAreNotBisected() {
+    // the medians differ by 10%, but the forks are too noisy to tell the commits apart
+    List<String> benchmarked = benchmarkAll(forks(60.0, 90.0, 100.0, 120.0, 130.0),
+        forks(70.0, 80.0, 110.0, 115.0, 125.0));
+
+    Assert.assertEquals(Arrays.asList("c0", "c4", "c8", "c9"), benchmarked);
+  }
+
+  @Test
+  public void testSignificantChangeBelowThresholdIsBisected() {
+    List<String> benchmarked = benchmarkAll(forks(100.0, 100.5, 99.5, 100.2, 99.8),
+        forks(97.0, 97.5, 96.5, 97.2, 96.8));
+
+    Assert.assertEquals(Arrays.asList("c0", "c4", "c8", "c9", "c2", "c1"), benchmarked);
+  }
+
+  @Test
+  public void testStableResultsAreComparedByConfidenceInterval() {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+    bisector.nextCommit();
+    bisector.onResults("c0", stableResult(100, 0.01));
+    bisector.nextCommit();
+    bisector.onResults("c4", stableResult(97, 0.01));
+    bisector.nextCommit();
+    // overlaps with c4
+    bisector.onResults("c8", stableResult(96, 0.01));
+
+    Assert.assertEquals("c9", bisector.nextCommit());
+    Assert.assertEquals("c2", bisector.nextCommit());
+    Assert.assertNull(bisector.nextCommit());
+  }
+
+  /**
+   * Benchmarks the backlog with c0 yielding the first results and every later commit the second.
+   */
+  private static List<String> benchmarkAll(Map<String, Result> first,
+      Map<String, Result> later) {
+    CommitBisector bisector = new CommitBisector(COMMITS, 4, 0.05);
+    List<String> benchmarked = new ArrayList<>();
+    for (String commit = bisector.nextCommit(); commit != null; commit = bisector.nextCommit()) {
+      bisector.onResults(commit, commit.equals("c0") ? first : later);
+      benchmarked.add(commit);
+    }
+    return benchmarked;
+  }
+}
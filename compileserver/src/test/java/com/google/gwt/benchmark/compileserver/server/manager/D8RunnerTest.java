@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test for {@link D8Runner}.
+ */
+public class D8RunnerTest {
+
+  private static final String URL = "http://localhost:8080/__bench/abc/module1.html";
+
+  private File compilerOutputDir;
+  private File script;
+  private D8Runner runner;
+
+  @Before
+  public void setup() {
+    compilerOutputDir = new File("./target/d8runnertest/");
+    FileUtils.deleteQuietly(compilerOutputDir);
+    script = new File(compilerOutputDir, "abc/module1/module1.nocache.js");
+    // fakeD8 prints the script instead of running it
+    runner = new D8Runner(RunnerConfigs.D8_LINUX, URL, compilerOutputDir,
+        new File("./src/test/resources/d8/fakeD8").getAbsolutePath(), new ProcessRunner(),
+        new ExecutionMode(false, 2));
+  }
+
+  @Test
+  public void testCompiledScript() throws IOException {
+    Assert.assertEquals(script, runner.getCompiledScript());
+  }
+
+  @Test
+  public void testResultIsParsed() throws IOException {
+    FileUtils.writeStringToFile(script, "some output\n"
+        + "__gwt__benchmarking__ran=true\n"
+        + "__gwt__benchmarking__failed=false\n"
+        + "__gwt__benchmarking__result=12.5\n"
+        + "__gwt__benchmarking__samples=1,2,3\n"
+        + "__gwt__benchmarking__statistics=2,2,3,3,0.8,1,3\n");
+
+    runner.run();
+
+    Assert.assertTrue(runner.isDone());
+    Assert.assertFalse(runner.isFailed());
+    Assert.assertEquals(12.5, runner.getResult(), 0.0001);
+    Assert.assertEquals(Arrays.asList(1.0, 2.0, 3.0),
+        runner.getTimingStatistics().getSamplesMs());
+    Assert.assertEquals(0.8, runner.getTimingStatistics().getStdDevMs(), 0.0001);
+    Assert.assertEquals(3, runner.getTimingStatistics().getMaxMs(), 0.0001);
+  }
+
+  @Test
+  public void testStableModeIsDefinedBeforeTheCompiledScript() throws IOException {
+    runner = new D8Runner(RunnerConfigs.D8_LINUX, URL, compilerOutputDir,
+        new File("./src/test/resources/d8/fakeD8").getAbsolutePath(), new ProcessRunner(),
+        new ExecutionMode(true, 1));
+    FileUtils.writeStringToFile(script, "__gwt__benchmarking__ran=true\n"
+        + "__gwt__benchmarking__failed=false\n"
+        + "__gwt__benchmarking__result=12.5\n"
+        + "__gwt__benchmarking__samples=1,2,3\n"
+        + "__gwt__benchmarking__statistics=2,2,3,3,0.8,1,3\n"
+        + "__gwt__benchmarking__warmupRuns=40\n"
+        + "__gwt__benchmarking__relativeMarginOfError=0.008\n");
+
+    runner.run();
+
+    Assert.assertTrue(runner.isDone());
+    Assert.assertEquals(40, runner.getTimingStatistics().getWarmupRuns());
+    Assert.assertEquals(0.008, runner.getTimingStatistics().getRelativeMarginOfError(), 0.0001);
+  }
+
+  @Test
+  public void testFailureReportedByBenchmark() throws IOException {
+    FileUtils.writeStringToFile(script, "__gwt__benchmarking__ran=true\n"
+        + "__gwt__benchmarking__failed=true\n"
+        + "__gwt__benchmarking__result=0\n");
+
+    runner.run();
+
+    Assert.assertFalse(runner.isDone());
+    Assert.assertTrue(runner.isFailed());
+  }
+
+  @Test
+  public void testMissingScript() {
+    runner.run();
+
+    Assert.assertTrue(runner.isFailed());
+    Assert.assertTrue(runner.getErrorMessage().startsWith("Can not find D8 output"));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+/**
+ * Test for {@link FailurePolicy}.
+ */
+public class FailurePolicyTest {
+
+  private File persistenceDir;
+
+  @Before
+  public void setup() {
+    persistenceDir = new File("./target/failurepolicytest/");
+    FileUtils.deleteQuietly(persistenceDir);
+    persistenceDir.mkdirs();
+  }
+
+  @Test
+  public void testRetriesBackOffExponentially() {
+    FailurePolicy policy = new FailurePolicy(persistenceDir, 3, 10, 0);
+    Assert.assertTrue(policy.shouldRetry(1));
+    Assert.assertTrue(policy.shouldRetry(3));
+    Assert.assertFalse(policy.shouldRetry(4));
+
+    Assert.assertEquals(10 * 1000L, policy.getRetryDelayMs(1));
+    Assert.assertEquals(20 * 1000L, policy.getRetryDelayMs(2));
+    Assert.assertEquals(40 * 1000L, policy.getRetryDelayMs(3));
+    Assert.assertEquals(60 * 60 * 1000L, policy.getRetryDelayMs(100));
+  }
+
+  @Test
+  public void testModuleIsQuarantinedAfterFailingCommitsInARow() {
+    FailurePolicy policy = new FailurePolicy(persistenceDir, 0, 0, 2);
+    Assert.assertFalse(policy.onModuleFailed("module1"));
+    policy.onModuleSucceeded("module1");
+    Assert.assertFalse(policy.onModuleFailed("module1"));
+    Assert.assertFalse(policy.isQuarantined("module1"));
+    Assert.assertTrue(policy.onModuleFailed("module1"));
+    Assert.assertTrue(policy.isQuarantined("module1"));
+    Assert.assertFalse(policy.isQuarantined("module2"));
+
+    // The quarantine survives a restart
+    Assert.assertTrue(new FailurePolicy(persistenceDir, 0, 0, 2).isQuarantined("module1"));
+  }
+
+  @Test
+  public void testQuarantineCanBeDisabled() {
+    FailurePolicy policy = new FailurePolicy(persistenceDir, 0, 0, 0);
+    Assert.assertFalse(policy.onModuleFailed("module1"));
+    Assert.assertFalse(policy.onModuleFailed("module1"));
+    Assert.assertFalse(policy.isQuarantined("module1"));
+  }
+}
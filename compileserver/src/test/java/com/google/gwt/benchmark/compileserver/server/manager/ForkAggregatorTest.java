@@ -0,0 +1,59 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Test for {@link ForkAggregator}.
+ */
+public class ForkAggregatorTest {
+
+  @Test
+  public void testOutliersAreRejected() {
+    // q1 = 11, q3 = 13, fences are 8 and 16
+    Assert.assertEquals(Arrays.asList(10.0, 11.0, 12.0, 13.0),
+        ForkAggregator.rejectOutliers(Arrays.asList(10.0, 11.0, 100.0, 12.0, 13.0)));
+    Assert.assertEquals(11.5, ForkAggregator.aggregate(Arrays.asList(10.0, 11.0, 100.0, 12.0,
+        13.0)), 0.0001);
+  }
+
+  @Test
+  public void testLowOutlierIsRejected() {
+    Assert.assertEquals(12, ForkAggregator.aggregate(Arrays.asList(12.0, 11.0, 0.5, 13.0, 12.0)),
+        0.0001);
+  }
+
+  @Test
+  public void testFewForksAreNotRejected() {
+    Assert.assertEquals(Arrays.asList(10.0, 100.0, 11.0),
+        ForkAggregator.rejectOutliers(Arrays.asList(10.0, 100.0, 11.0)));
+    Assert.assertEquals(11, ForkAggregator.aggregate(Arrays.asList(10.0, 100.0, 11.0)), 0.0001);
+  }
+
+  @Test
+  public void testSingleFork() {
+    Assert.assertEquals(42, ForkAggregator.aggregate(Arrays.asList(42.0)), 0.0001);
+    Assert.assertEquals(0, ForkAggregator.indexOfRepresentative(Arrays.asList(42.0)));
+  }
+
+  @Test
+  public void testIndexOfRepresentative() {
+    Assert.assertEquals(3,
+        ForkAggregator.indexOfRepresentative(Arrays.asList(10.0, 100.0, 14.0, 12.0, 11.0)));
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+
+/**
+ * Test for {@link InProcessCompiler}.
+ */
+public class InProcessCompilerTest {
+
+  private File devJar;
+  private File userJar;
+  private InProcessCompiler compiler;
+
+  @Before
+  public void setup() throws IOException {
+    File sdkDir = new File("./target/fakesdk/");
+    devJar = new File(sdkDir, "gwt-dev.jar");
+    userJar = new File(sdkDir, "gwt-user.jar");
+    FileUtils.writeStringToFile(devJar, "dev");
+    FileUtils.writeStringToFile(userJar, "user");
+
+    CliInteractor cliInteractor = Mockito.mock(CliInteractor.class);
+    Mockito.when(cliInteractor.getGwtDevJar()).thenReturn(devJar);
+    Mockito.when(cliInteractor.getGwtUserJar()).thenReturn(userJar);
+
+    compiler = new InProcessCompiler(cliInteractor, new File("./target/fakebenchmark/"));
+  }
+
+  @Test
+  public void testClassLoaderIsReused() throws BenchmarkCompilerException {
+    URLClassLoader classLoader = compiler.acquireClassLoader();
+    compiler.releaseClassLoader(classLoader, true);
+
+    Assert.assertSame(classLoader, compiler.acquireClassLoader());
+  }
+
+  @Test
+  public void testConcurrentCompilesGetDifferentClassLoaders() throws BenchmarkCompilerException {
+    URLClassLoader classLoader1 = compiler.acquireClassLoader();
+    URLClassLoader classLoader2 = compiler.acquireClassLoader();
+
+    Assert.assertNotSame(classLoader1, classLoader2);
+  }
+
+  @Test
+  public void testBrokenClassLoaderIsNotReused() throws BenchmarkCompilerException {
+    URLClassLoader classLoader = compiler.acquireClassLoader();
+    compiler.releaseClassLoader(classLoader, false);
+
+    Assert.assertNotSame(classLoader, compiler.acquireClassLoader());
+  }
+
+  @Test
+  public void testClassLoaderIsDroppedAfterSdkBuild() throws BenchmarkCompilerException,
+      IOException {
+    URLClassLoader classLoader = compiler.acquireClassLoader();
+    compiler.releaseClassLoader(classLoader, true);
+
+    // simulate a new SDK build
+    FileUtils.writeStringToFile(devJar, "new dev jar");
+
+    Assert.assertNotSame(classLoader, compiler.acquireClassLoader());
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test for {@link JvmRunner}.
+ */
+public class JvmRunnerTest {
+
+  private static final String URL =
+      "http://localhost:8080/__bench/abc/com.google.gwt.benchmark.SomeBenchmark.html";
+
+  private static final String FAKE_JAVA = new File("./src/test/resources/jvm/fakeJava")
+      .getAbsolutePath();
+
+  @Test
+  public void testBenchmarkClassName() throws IOException {
+    JvmRunner runner = new JvmRunner(RunnerConfigs.JVM_LINUX, URL, FAKE_JAVA, "benchmarks.jar",
+        "", new ProcessRunner(), new ExecutionMode(false, 2));
+
+    Assert.assertEquals("com.google.gwt.benchmark.shared.SomeBenchmark",
+        runner.getBenchmarkClassName());
+  }
+
+  @Test
+  public void testCommand() throws IOException {
+    JvmRunner runner = new JvmRunner(RunnerConfigs.JVM_LINUX, URL, FAKE_JAVA, "benchmarks.jar",
+        " -server  -Xmx512m ", new ProcessRunner(), new ExecutionMode(false, 2));
+
+    Assert.assertEquals(Arrays.asList(FAKE_JAVA, "-server", "-Xmx512m", "-cp", "benchmarks.jar",
+        "com.google.gwt.benchmark.framework.server.JavaBenchmarkLauncher",
+        "com.google.gwt.benchmark.shared.SomeBenchmark", "report"), runner.getCommand());
+  }
+
+  @Test
+  public void testCommandUntilStable() throws IOException {
+    JvmRunner runner = new JvmRunner(RunnerConfigs.JVM_LINUX, URL, FAKE_JAVA, "benchmarks.jar",
+        "", new ProcessRunner(), new ExecutionMode(true, 1));
+
+    Assert.assertEquals(Arrays.asList(FAKE_JAVA, "-cp", "benchmarks.jar",
+        "com.google.gwt.benchmark.framework.server.JavaBenchmarkLauncher",
+        "com.google.gwt.benchmark.shared.SomeBenchmark", "stable=0.01", "report"),
+        runner.getCommand());
+  }
+
+  @Test
+  public void testResultIsParsed() {
+    JvmRunner runner = new JvmRunner(RunnerConfigs.JVM_LINUX, URL, FAKE_JAVA, "benchmarks.jar",
+        "", new ProcessRunner(), new ExecutionMode(false, 2));
+
+    runner.run();
+
+    Assert.assertTrue(runner.isDone());
+    Assert.assertFalse(runner.isFailed());
+    Assert.assertEquals(12.5, runner.getResult(), 0.0001);
+    Assert.assertEquals(Arrays.asList(1.0, 2.0, 3.0),
+        runner.getTimingStatistics().getSamplesMs());
+    Assert.assertEquals(0.8, runner.getTimingStatistics().getStdDevMs(), 0.0001);
+  }
+
+  @Test
+  public void testFailingJvm() {
+    JvmRunner runner = new JvmRunner(RunnerConfigs.JVM_LINUX, URL, "/bin/false",
+        "benchmarks.jar", "", new ProcessRunner(), new ExecutionMode(false, 2));
+
+    runner.run();
+
+    Assert.assertFalse(runner.isDone());
+    Assert.assertTrue(runner.isFailed());
+    Assert.assertTrue(runner.getErrorMessage().startsWith("JVM exited with 1"));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Test for {@link ModuleScheduler}.
+ */
+public class ModuleSchedulerTest {
+
+  private File persistenceDir;
+
+  @Before
+  public void setup() {
+    persistenceDir = new File("./target/moduleschedulertest/");
+    FileUtils.deleteQuietly(persistenceDir);
+    persistenceDir.mkdirs();
+  }
+
+  @Test
+  public void testLongestModulesGoFirst() {
+    ModuleScheduler scheduler = new ModuleScheduler(persistenceDir, "");
+    scheduler.recordDuration("a.ShortBenchmark", 10);
+    scheduler.recordDuration("a.LongBenchmark", 1000);
+    scheduler.recordDuration("a.MediumBenchmark", 100);
+
+    // Modules without a duration might be the slowest ones
+    Assert.assertEquals(
+        Arrays.asList("a.NewBenchmark", "a.LongBenchmark", "a.MediumBenchmark", "a.ShortBenchmark"),
+        scheduler.order(Arrays.asList("a.LongBenchmark", "a.MediumBenchmark", "a.NewBenchmark",
+            "a.ShortBenchmark")));
+
+    // Durations survive a restart
+    ModuleScheduler restartedScheduler = new ModuleScheduler(persistenceDir, "");
+    Assert.assertEquals(Arrays.asList("a.LongBenchmark", "a.ShortBenchmark"),
+        restartedScheduler.order(Arrays.asList("a.ShortBenchmark", "a.LongBenchmark")));
+  }
+
+  @Test
+  public void testPriorityBeatsDuration() {
+    ModuleScheduler scheduler =
+        new ModuleScheduler(persistenceDir, "ShortBenchmark:10, MediumBenchmark:5");
+    scheduler.recordDuration("a.ShortBenchmark", 10);
+    scheduler.recordDuration("a.LongBenchmark", 1000);
+    scheduler.recordDuration("a.MediumBenchmark", 100);
+
+    Assert.assertEquals(Arrays.asList("a.ShortBenchmark", "a.MediumBenchmark", "a.LongBenchmark"),
+        scheduler.order(Arrays.asList("a.LongBenchmark", "a.MediumBenchmark",
+            "a.ShortBenchmark")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPriority() {
+    new ModuleScheduler(persistenceDir, "ShortBenchmark");
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner.ProcessResult;
+import com.google.gwt.benchmark.compileserver.server.manager.ProcessRunner.TailBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test for {@link ProcessRunner}.
+ */
+public class ProcessRunnerTest {
+
+  @Test
+  public void testOutputAndExitValue() throws IOException, InterruptedException,
+      ExecutionException {
+    ProcessResult result = new ProcessRunner().start(
+        new String[] {"/bin/sh", "-c", "echo out; echo err >&2; exit 3"}, 10000).get();
+
+    Assert.assertEquals(3, result.getExitValue());
+    Assert.assertFalse(result.isTimedOut());
+    Assert.assertEquals("out\n", result.getOutput());
+    Assert.assertEquals("err\n", result.getError());
+  }
+
+  @Test
+  public void testLargeOutputDoesNotBlock() throws IOException, InterruptedException,
+      ExecutionException, TimeoutException {
+    // 4 MB on both streams is far more than a pipe buffer holds
+    Future<ProcessResult> future = new ProcessRunner(1000).start(new String[] {"/bin/sh", "-c",
+        "head -c 4194304 /dev/zero | tr '\\0' a; head -c 4194304 /dev/zero | tr '\\0' b >&2"},
+        10000);
+    ProcessResult result = future.get(10, TimeUnit.SECONDS);
+
+    Assert.assertEquals(0, result.getExitValue());
+    Assert.assertEquals(1000, result.getOutput().length());
+    Assert.assertEquals(1000, result.getError().length());
+    Assert.assertTrue(result.getError().matches("b+"));
+  }
+
+  @Test
+  public void testTimeout() throws IOException, InterruptedException, ExecutionException {
+    long startMs = System.currentTimeMillis();
+    ProcessResult result = new ProcessRunner().start("sleep 10", 100).get();
+
+    Assert.assertTrue(result.isTimedOut());
+    Assert.assertTrue(System.currentTimeMillis() - startMs < 5000);
+  }
+
+  @Test
+  public void testTimeoutKillsChildren() throws IOException, InterruptedException,
+      ExecutionException {
+    File pidFile = new File("./target/processrunnertest/child.pid");
+    FileUtils.deleteQuietly(pidFile);
+    pidFile.getParentFile().mkdirs();
+
+    // like a build script that starts a compiler
+    long startMs = System.currentTimeMillis();
+    ProcessResult result = new ProcessRunner().start(new String[] {"/bin/sh", "-c",
+        "sleep 30 & echo $! > " + pidFile.getAbsolutePath() + "; wait"}, 1000).get();
+
+    Assert.assertTrue(result.isTimedOut());
+    Assert.assertTrue(System.currentTimeMillis() - startMs < 5000);
+    String pid = FileUtils.readFileToString(pidFile, "UTF-8").trim();
+    Assert.assertFalse(isAlive(pid));
+  }
+
+  @Test
+  public void testTailBuffer() {
+    TailBuffer buffer = new TailBuffer(4);
+    buffer.append("ab".toCharArray(), 2);
+    Assert.assertEquals("ab", buffer.toString());
+    buffer.append("cde".toCharArray(), 3);
+    Assert.assertEquals("bcde", buffer.toString());
+    buffer.append("fghijk".toCharArray(), 5);
+    Assert.assertEquals("ghij", buffer.toString());
+  }
+
+  private static boolean isAlive(String pid) throws IOException, InterruptedException {
+    File stat = new File("/proc/" + pid + "/stat");
+    for (int i = 0; i < 20; i++) {
+      // a killed child that has not been reaped yet is a zombie
+      if (!stat.exists() || FileUtils.readFileToString(stat, "UTF-8").contains(") Z ")) {
+        return false;
+      }
+      Thread.sleep(100);
+    }
+    return true;
+  }
+}
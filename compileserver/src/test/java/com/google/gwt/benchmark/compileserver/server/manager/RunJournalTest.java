@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Test for {@link RunJournal}.
+ */
+public class RunJournalTest {
+
+  private File persistenceDir;
+
+  @Before
+  public void setup() {
+    persistenceDir = new File("./target/runjournaltest/");
+    FileUtils.deleteQuietly(persistenceDir);
+    persistenceDir.mkdirs();
+  }
+
+  @Test
+  public void testResultsAreLoadedAfterRestart() {
+    RunJournal journal = new RunJournal(persistenceDir);
+    journal.load();
+    Assert.assertFalse(journal.startCommit("commit1"));
+    journal.recordOutputHash("module1", "hash1");
+    journal.recordCodeSize("module1", new CodeSize(Arrays.asList(
+        new CodeSize.PermutationSize("A.cache.js", 1000, 300),
+        new CodeSize.PermutationSize("B.cache.js", 1200, 350))));
+    journal.recordResult("module1", RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(1.0, 3.0),
+        false);
+
+    RunJournal restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertTrue(restartedJournal.startCommit("commit1"));
+    Assert.assertEquals("hash1", restartedJournal.getOutputHash("module1"));
+    CodeSize codeSize = restartedJournal.getCodeSize("module1");
+    Assert.assertEquals(2200, codeSize.getTotalBytes());
+    Assert.assertEquals(650, codeSize.getTotalGzipBytes());
+    Assert.assertEquals("B.cache.js", codeSize.getPermutations().get(1).getFileName());
+
+    Map<String, RunJournal.RecordedResult> results =
+        restartedJournal.getRecordedResults("module1");
+    Assert.assertEquals(1, results.size());
+    RunJournal.RecordedResult result = results.get(RunnerConfigs.CHROME_LINUX.toString());
+    Assert.assertEquals(2, result.getRunsPerSecond(), 0.0001);
+    Assert.assertEquals(Arrays.asList(1.0, 3.0), result.getForkRunsPerSecond());
+    Assert.assertFalse(result.isReused());
+  }
+
+  @Test
+  public void testReusedResultsAreLoadedAsReused() {
+    RunJournal journal = new RunJournal(persistenceDir);
+    journal.load();
+    journal.startCommit("commit1");
+    journal.recordResult("module1", RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(2.0), true);
+    journal.recordResult("module1", RunnerConfigs.FIREFOX_LINUX, 3, Arrays.asList(3.0), false);
+
+    RunJournal restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertTrue(restartedJournal.startCommit("commit1"));
+    Map<String, RunJournal.RecordedResult> results =
+        restartedJournal.getRecordedResults("module1");
+    RunJournal.RecordedResult reused = results.get(RunnerConfigs.CHROME_LINUX.toString());
+    Assert.assertTrue(reused.isReused());
+    Assert.assertEquals(2, reused.getRunsPerSecond(), 0.0001);
+    Assert.assertEquals(Arrays.asList(2.0), reused.getForkRunsPerSecond());
+    Assert.assertFalse(results.get(RunnerConfigs.FIREFOX_LINUX.toString()).isReused());
+  }
+
+  @Test
+  public void testResultsWithoutReusedFieldAreLoadedAsMeasured() throws IOException {
+    RunJournal journal = new RunJournal(persistenceDir);
+    journal.load();
+    journal.startCommit("commit1");
+    FileUtils.writeStringToFile(new File(persistenceDir, "runJournal"),
+        "result\tmodule1\t" + RunnerConfigs.CHROME_LINUX + "\t2\t2.0\n", "UTF-8", true);
+
+    RunJournal restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertTrue(restartedJournal.startCommit("commit1"));
+    RunJournal.RecordedResult result =
+        restartedJournal.getRecordedResults("module1").get(RunnerConfigs.CHROME_LINUX.toString());
+    Assert.assertEquals(2, result.getRunsPerSecond(), 0.0001);
+    Assert.assertFalse(result.isReused());
+  }
+
+  @Test
+  public void testPartiallyWrittenLineIsIgnored() throws IOException {
+    RunJournal journal = new RunJournal(persistenceDir);
+    journal.load();
+    journal.startCommit("commit1");
+    journal.recordResult("module1", RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(2.0), false);
+    FileUtils.writeStringToFile(new File(persistenceDir, "runJournal"),
+        "result\tmodule1\t" + RunnerConfigs.FIREFOX_LINUX + "\t3", "UTF-8", true);
+
+    RunJournal restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertTrue(restartedJournal.startCommit("commit1"));
+    Map<String, RunJournal.RecordedResult> results =
+        restartedJournal.getRecordedResults("module1");
+    Assert.assertEquals(1, results.size());
+    Assert.assertTrue(results.containsKey(RunnerConfigs.CHROME_LINUX.toString()));
+  }
+
+  @Test
+  public void testNewCommitStartsOver() {
+    RunJournal journal = new RunJournal(persistenceDir);
+    journal.load();
+    journal.startCommit("commit1");
+    journal.recordResult("module1", RunnerConfigs.CHROME_LINUX, 2, Arrays.asList(2.0), false);
+
+    RunJournal restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertFalse(restartedJournal.startCommit("commit2"));
+    Assert.assertTrue(restartedJournal.getRecordedResults("module1").isEmpty());
+
+    restartedJournal = new RunJournal(persistenceDir);
+    restartedJournal.load();
+    Assert.assertTrue(restartedJournal.getRecordedResults("module1").isEmpty());
+  }
+}
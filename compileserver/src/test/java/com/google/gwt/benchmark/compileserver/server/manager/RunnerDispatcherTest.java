@@ -0,0 +1,243 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for {@link RunnerDispatcher}.
+ */
+public class RunnerDispatcherTest {
+
+  private ExecutorService runnerPool;
+  private RunnerDispatcher dispatcher;
+
+  @Before
+  public void setup() {
+    runnerPool = Executors.newCachedThreadPool();
+    dispatcher = new RunnerDispatcher(runnerPool, 1, new RunnerRegistry(
+        Arrays.asList(new RunnerRegistry.Entry(RunnerConfigs.CHROME_LINUX, null, 1, 60))));
+  }
+
+  @After
+  public void tearDown() {
+    runnerPool.shutdownNow();
+  }
+
+  @Test
+  public void testCallbackAfterAllRunnersFinished() throws InterruptedException {
+    Runner runner1 = Mockito.mock(Runner.class);
+    Runner runner2 = Mockito.mock(Runner.class);
+    Mockito.doThrow(new RuntimeException("broken")).when(runner2).run();
+
+    RunnerDispatcher.Callback callback = Mockito.mock(RunnerDispatcher.Callback.class);
+    dispatcher.dispatch(Arrays.asList(runner1, runner2), callback);
+
+    Mockito.verify(callback, Mockito.timeout(1000))
+        .onRunnersDone(Arrays.asList(null, "Runner failed unexpectedly: broken"));
+    Mockito.verify(runner1).run();
+    Mockito.verify(runner2).run();
+  }
+
+  @Test
+  public void testRunnerThrowingErrorFinishesModule() throws InterruptedException {
+    Runner runner = Mockito.mock(Runner.class);
+    Mockito.doThrow(new AssertionError("broken")).when(runner).run();
+
+    RunnerDispatcher.Callback callback = Mockito.mock(RunnerDispatcher.Callback.class);
+    dispatcher.dispatch(Arrays.asList(runner), callback);
+    Mockito.verify(callback, Mockito.timeout(1000))
+        .onRunnersDone(Collections.<String>singletonList(null));
+
+    // the slot of the module has been freed
+    RunnerDispatcher.Callback secondCallback = Mockito.mock(RunnerDispatcher.Callback.class);
+    dispatcher.dispatch(Arrays.asList(Mockito.mock(Runner.class)), secondCallback);
+    Mockito.verify(secondCallback, Mockito.timeout(1000))
+        .onRunnersDone(Collections.<String>singletonList(null));
+  }
+
+  @Test
+  public void testDispatchBlocksWhileQueueIsFull() throws InterruptedException {
+    final CountDownLatch releaseRunner = new CountDownLatch(1);
+    Runner slowRunner = Mockito.mock(Runner.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        releaseRunner.await(5, TimeUnit.SECONDS);
+        return null;
+      }
+    }).when(slowRunner).run();
+
+    dispatcher.dispatch(Arrays.asList(slowRunner), Mockito.mock(RunnerDispatcher.Callback.class));
+
+    final AtomicBoolean secondDispatched = new AtomicBoolean();
+    final Runner fastRunner = Mockito.mock(Runner.class);
+    Thread compileThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          dispatcher.dispatch(Arrays.asList(fastRunner), new RunnerDispatcher.Callback() {
+            @Override
+            public void onRunnersDone(List<String> unexpectedErrors) {
+            }
+          });
+          secondDispatched.set(true);
+        } catch (InterruptedException ignored) {
+        }
+      }
+    });
+    compileThread.start();
+
+    Thread.sleep(50);
+    Assert.assertFalse(secondDispatched.get());
+
+    releaseRunner.countDown();
+    compileThread.join(1000);
+    Assert.assertTrue(secondDispatched.get());
+    Mockito.verify(fastRunner, Mockito.timeout(1000)).run();
+  }
+
+  @Test
+  public void testRunnerWaitsForFreeSession() throws InterruptedException {
+    dispatcher = new RunnerDispatcher(runnerPool, 2, new RunnerRegistry(
+        Arrays.asList(new RunnerRegistry.Entry(RunnerConfigs.CHROME_LINUX, null, 1, 60))));
+    final CountDownLatch runnerStarted = new CountDownLatch(1);
+    final CountDownLatch releaseRunner = new CountDownLatch(1);
+    Runner slowRunner = Mockito.mock(Runner.class);
+    Mockito.when(slowRunner.getConfig()).thenReturn(RunnerConfigs.CHROME_LINUX);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        runnerStarted.countDown();
+        releaseRunner.await(5, TimeUnit.SECONDS);
+        return null;
+      }
+    }).when(slowRunner).run();
+    dispatcher.dispatch(Arrays.asList(slowRunner),
+        Mockito.mock(RunnerDispatcher.Callback.class));
+    Assert.assertTrue(runnerStarted.await(1, TimeUnit.SECONDS));
+
+    Runner chromeRunner = Mockito.mock(Runner.class);
+    Mockito.when(chromeRunner.getConfig()).thenReturn(RunnerConfigs.CHROME_LINUX);
+    Runner firefoxRunner = Mockito.mock(Runner.class);
+    Mockito.when(firefoxRunner.getConfig()).thenReturn(RunnerConfigs.FIREFOX_LINUX);
+
+    RunnerDispatcher.Callback callback = Mockito.mock(RunnerDispatcher.Callback.class);
+    dispatcher.dispatch(Arrays.asList(chromeRunner, firefoxRunner), callback);
+
+    // Chrome has only one session, firefox is not limited
+    Mockito.verify(firefoxRunner, Mockito.timeout(1000)).run();
+    Thread.sleep(50);
+    Mockito.verify(chromeRunner, Mockito.never()).run();
+    // The chrome runner waits in its queue, not on a thread of the pool
+    Assert.assertEquals(1, dispatcher.getWaitingRunners(RunnerConfigs.CHROME_LINUX));
+
+    releaseRunner.countDown();
+    Mockito.verify(chromeRunner, Mockito.timeout(1000)).run();
+    Assert.assertEquals(0, dispatcher.getWaitingRunners(RunnerConfigs.CHROME_LINUX));
+    Mockito.verify(callback, Mockito.timeout(1000))
+        .onRunnersDone(Arrays.<String> asList(null, null));
+  }
+
+  @Test
+  public void testForksOfAConfigRunOneAfterAnother() throws InterruptedException {
+    // firefox is not limited, so only the forks themselves can keep each other from running
+    final AtomicInteger runningForks = new AtomicInteger();
+    final AtomicBoolean overlapped = new AtomicBoolean();
+    final List<Runner> startedRunners = Collections.synchronizedList(new ArrayList<Runner>());
+    Answer<Void> runFork = new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        startedRunners.add((Runner) invocation.getMock());
+        if (runningForks.incrementAndGet() > 1) {
+          overlapped.set(true);
+        }
+        Thread.sleep(20);
+        runningForks.decrementAndGet();
+        return null;
+      }
+    };
+    List<Runner> forks = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Runner fork = Mockito.mock(Runner.class);
+      Mockito.when(fork.getConfig()).thenReturn(RunnerConfigs.FIREFOX_LINUX);
+      Mockito.doAnswer(runFork).when(fork).run();
+      forks.add(fork);
+    }
+    Runner chromeRunner = Mockito.mock(Runner.class);
+    Mockito.when(chromeRunner.getConfig()).thenReturn(RunnerConfigs.CHROME_LINUX);
+    List<Runner> runners = new ArrayList<>(forks);
+    runners.add(chromeRunner);
+
+    RunnerDispatcher.Callback callback = Mockito.mock(RunnerDispatcher.Callback.class);
+    dispatcher.dispatch(runners, callback);
+
+    Mockito.verify(callback, Mockito.timeout(1000))
+        .onRunnersDone(Arrays.<String> asList(null, null, null, null));
+    Assert.assertFalse(overlapped.get());
+    Assert.assertEquals(forks, startedRunners);
+    Mockito.verify(chromeRunner).run();
+  }
+
+  @Test
+  public void testQueuedRunnersStartInDispatchOrder() throws InterruptedException {
+    ExecutorService singleThreadPool = Executors.newSingleThreadExecutor();
+    try {
+      dispatcher = new RunnerDispatcher(singleThreadPool, 2, new RunnerRegistry(
+          Arrays.asList(new RunnerRegistry.Entry(RunnerConfigs.CHROME_LINUX, null, 1, 60))));
+      final List<Runner> startedRunners = Collections.synchronizedList(new ArrayList<Runner>());
+      Answer<Void> recordStart = new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          startedRunners.add((Runner) invocation.getMock());
+          return null;
+        }
+      };
+      List<Runner> runners = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        Runner runner = Mockito.mock(Runner.class);
+        Mockito.when(runner.getConfig()).thenReturn(RunnerConfigs.CHROME_LINUX);
+        Mockito.doAnswer(recordStart).when(runner).run();
+        runners.add(runner);
+      }
+
+      RunnerDispatcher.Callback callback = Mockito.mock(RunnerDispatcher.Callback.class);
+      dispatcher.dispatch(runners.subList(0, 2), callback);
+      dispatcher.dispatch(runners.subList(2, 4), callback);
+
+      Mockito.verify(callback, Mockito.timeout(1000).times(2))
+          .onRunnersDone(Mockito.<List<String>> any());
+      Assert.assertEquals(runners, startedRunners);
+    } finally {
+      singleThreadPool.shutdownNow();
+    }
+  }
+}
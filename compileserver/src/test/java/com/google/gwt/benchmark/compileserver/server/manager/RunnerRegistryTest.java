@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.Browser;
+import com.google.gwt.benchmark.compileserver.server.manager.RunnerConfig.OS;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import java.util.Arrays;
+
+/**
+ * Test for {@link RunnerRegistry}.
+ */
+public class RunnerRegistryTest {
+
+  @Test
+  public void testRunnersInDeclaredOrder() {
+    RunnerConfig chrome = RunnerConfigs.create(Browser.CHROME, OS.WINDOWS, "40");
+    RunnerRegistry registry = new RunnerRegistry(Arrays.asList(
+        new RunnerRegistry.Entry(chrome, null, 2, 30),
+        new RunnerRegistry.Entry(RunnerConfigs.FIREFOX_LINUX, null, 1, 60)));
+
+    Assert.assertEquals(Arrays.asList(chrome, RunnerConfigs.FIREFOX_LINUX),
+        registry.getRunners());
+    Assert.assertTrue(registry.contains(RunnerConfigs.create(Browser.CHROME, OS.WINDOWS, "40")));
+    Assert.assertFalse(registry.contains(RunnerConfigs.CHROME_LINUX));
+    Assert.assertEquals(30000, registry.getEntry(chrome).getTimeoutMs());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRunnerDeclaredTwice() {
+    new RunnerRegistry(Arrays.asList(
+        new RunnerRegistry.Entry(RunnerConfigs.CHROME_LINUX, null, 2, 30),
+        new RunnerRegistry.Entry(RunnerConfigs.create(Browser.CHROME, OS.LINUX, ""), null, 1, 30)));
+  }
+
+  @Test
+  public void testCapabilitiesUseConfiguredVersion() {
+    RunnerConfig chrome = RunnerConfigs.create(Browser.CHROME, OS.LINUX, "40");
+
+    Assert.assertEquals("11", createCapabilities(RunnerConfigs.IE11_WIN).getVersion());
+    Assert.assertEquals("40", createCapabilities(chrome).getVersion());
+  }
+
+  private static DesiredCapabilities createCapabilities(RunnerConfig config) {
+    return WebDriverSessionPool.RemoteWebDriverFactory.createCapabilities(config);
+  }
+}
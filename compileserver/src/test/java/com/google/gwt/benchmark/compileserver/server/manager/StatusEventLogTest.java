@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.StatusEventLog.Changes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Test for {@link StatusEventLog}.
+ */
+public class StatusEventLogTest {
+
+  @Test
+  public void testChangedModulesSinceVersion() throws InterruptedException {
+    StatusEventLog log = new StatusEventLog(0);
+    log.onModuleChanged("module1");
+    long version = log.getVersion();
+    log.onModuleChanged("module2");
+    log.onModuleChanged("module3");
+    log.onModuleChanged("module2");
+
+    Changes changes = log.awaitChanges(version, 0);
+
+    Assert.assertFalse(changes.isReset());
+    Assert.assertEquals(4, changes.getVersion());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("module2", "module3")),
+        changes.getChangedModules());
+  }
+
+  @Test
+  public void testResetAndUnknownVersions() throws InterruptedException {
+    StatusEventLog log = new StatusEventLog(0);
+    log.onModuleChanged("module1");
+    log.onReset();
+    log.onModuleChanged("module2");
+
+    Assert.assertTrue(log.awaitChanges(1, 0).isReset());
+    // a version handed out before the server was restarted
+    Assert.assertTrue(log.awaitChanges(42, 0).isReset());
+    Assert.assertEquals(Arrays.asList("module2"),
+        Arrays.asList(log.awaitChanges(2, 0).getChangedModules().toArray()));
+  }
+
+  @Test
+  public void testVersionOfOtherInstanceResets() throws InterruptedException {
+    StatusEventLog earlierLog = new StatusEventLog(1);
+    for (int i = 0; i < 3; i++) {
+      earlierLog.onModuleChanged("module1");
+    }
+    StatusEventLog log = new StatusEventLog(2);
+    log.onModuleChanged("module1");
+
+    // The restarted server has seen fewer changes than the client
+    Assert.assertTrue(log.awaitChanges(earlierLog.getVersion(), 0).isReset());
+    Assert.assertTrue(earlierLog.awaitChanges(log.getVersion(), 0).isReset());
+    Assert.assertFalse(log.awaitChanges(log.getVersion() - 1, 0).isReset());
+  }
+
+  @Test
+  public void testAwaitChangesWaitsForChange() throws InterruptedException {
+    final StatusEventLog log = new StatusEventLog(0);
+
+    Assert.assertTrue(log.awaitChanges(0, 20).getChangedModules().isEmpty());
+
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException ignored) {
+        }
+        log.onModuleChanged("module1");
+      }
+    });
+    thread.start();
+
+    Changes changes = log.awaitChanges(0, 5000);
+    Assert.assertEquals(1, changes.getVersion());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("module1")), changes.getChangedModules());
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Test for {@link UnitCache}.
+ */
+public class UnitCacheTest {
+
+  private File persistenceDir;
+  private File devJar;
+  private UnitCache unitCache;
+
+  @Before
+  public void setup() throws IOException {
+    persistenceDir = new File("./target/unitcachetest/");
+    FileUtils.deleteDirectory(persistenceDir);
+    devJar = new File(persistenceDir, "gwt-dev.jar");
+    FileUtils.writeStringToFile(devJar, "dev");
+
+    unitCache = new UnitCache(persistenceDir);
+  }
+
+  @Test
+  public void testSameDirectoryForSameSdk() throws BenchmarkCompilerException {
+    File cacheDir = unitCache.getDirectory(devJar);
+
+    Assert.assertTrue(cacheDir.isDirectory());
+    // sha1 of "dev"
+    Assert.assertEquals(
+        new File(persistenceDir, "unitCache/34c6fceca75e456f25e7e99531e2425c6c1de443"), cacheDir);
+    Assert.assertEquals(cacheDir, unitCache.getDirectory(devJar));
+    // a new compile server shares the cache of the previous one
+    Assert.assertEquals(cacheDir, new UnitCache(persistenceDir).getDirectory(devJar));
+  }
+
+  @Test
+  public void testStaleDirectoryIsDeletedOnNewSdk() throws BenchmarkCompilerException,
+      IOException {
+    File oldCacheDir = unitCache.getDirectory(devJar);
+    FileUtils.writeStringToFile(new File(oldCacheDir, "gwt-unitCache-1"), "units");
+
+    FileUtils.writeStringToFile(devJar, "new dev jar");
+    File newCacheDir = unitCache.getDirectory(devJar);
+
+    Assert.assertNotEquals(oldCacheDir, newCacheDir);
+    Assert.assertTrue(newCacheDir.isDirectory());
+    Assert.assertFalse(oldCacheDir.exists());
+  }
+}
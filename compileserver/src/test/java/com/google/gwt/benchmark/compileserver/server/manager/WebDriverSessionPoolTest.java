@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.compileserver.server.manager;
+
+import com.google.gwt.benchmark.compileserver.server.manager.WebDriverSessionPool.Session;
+import com.google.gwt.benchmark.compileserver.server.manager.WebDriverSessionPool.WebDriverFactory;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.openqa.selenium.WebDriver.Navigation;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * Test for {@link WebDriverSessionPool}.
+ */
+public class WebDriverSessionPoolTest {
+
+  private WebDriverFactory webDriverFactory;
+  private RemoteWebDriver driver1;
+  private RemoteWebDriver driver2;
+  private long currentTimeMs;
+  private WebDriverSessionPool pool;
+
+  @Before
+  public void setup() {
+    driver1 = createDriver();
+    driver2 = createDriver();
+    webDriverFactory = Mockito.mock(WebDriverFactory.class);
+    Mockito.when(webDriverFactory.create(RunnerConfigs.CHROME_LINUX)).thenReturn(driver1,
+        driver2);
+
+    currentTimeMs = 1000;
+    pool = new WebDriverSessionPool(webDriverFactory, 2, 10) {
+      @Override
+      long currentTimeMs() {
+        return currentTimeMs;
+      }
+    };
+  }
+
+  @Test
+  public void testSessionIsReused() {
+    Session session = pool.acquire(RunnerConfigs.CHROME_LINUX);
+    pool.release(session, true);
+
+    Assert.assertSame(driver1, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+    Mockito.verify(webDriverFactory).create(RunnerConfigs.CHROME_LINUX);
+    Mockito.verify(driver1, Mockito.never()).quit();
+  }
+
+  @Test
+  public void testSessionsAreNotSharedBetweenConfigs() {
+    RemoteWebDriver firefoxDriver = createDriver();
+    Mockito.when(webDriverFactory.create(RunnerConfigs.FIREFOX_LINUX)).thenReturn(firefoxDriver);
+
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), true);
+
+    Assert.assertSame(firefoxDriver, pool.acquire(RunnerConfigs.FIREFOX_LINUX).getDriver());
+  }
+
+  @Test
+  public void testBrokenSessionIsQuit() {
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), false);
+
+    Mockito.verify(driver1).quit();
+    Assert.assertSame(driver2, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+  }
+
+  @Test
+  public void testSessionIsQuitAfterMaxUses() {
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), true);
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), true);
+
+    Mockito.verify(driver1).quit();
+    Assert.assertSame(driver2, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+  }
+
+  @Test
+  public void testIdleSessionIsQuit() {
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), true);
+    currentTimeMs += 11 * 1000;
+
+    Assert.assertSame(driver2, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+    Mockito.verify(driver1).quit();
+  }
+
+  @Test
+  public void testIdleSessionIsEvictedWithoutAcquire() {
+    Session session1 = pool.acquire(RunnerConfigs.CHROME_LINUX);
+    Session session2 = pool.acquire(RunnerConfigs.CHROME_LINUX);
+    pool.release(session1, true);
+    currentTimeMs += 6 * 1000;
+    pool.release(session2, true);
+    currentTimeMs += 5 * 1000;
+
+    pool.evictIdleSessions();
+
+    Mockito.verify(driver1).quit();
+    Mockito.verify(driver2, Mockito.never()).quit();
+  }
+
+  @Test
+  public void testQuitIdleSessions() {
+    Session session1 = pool.acquire(RunnerConfigs.CHROME_LINUX);
+    Session session2 = pool.acquire(RunnerConfigs.CHROME_LINUX);
+    pool.release(session1, true);
+    pool.release(session2, true);
+
+    pool.quitIdleSessions();
+
+    Mockito.verify(driver1).quit();
+    Mockito.verify(driver2).quit();
+    RemoteWebDriver driver3 = createDriver();
+    Mockito.when(webDriverFactory.create(RunnerConfigs.CHROME_LINUX)).thenReturn(driver3);
+    Assert.assertSame(driver3, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+  }
+
+  @Test
+  public void testUnresponsiveSessionIsQuit() {
+    pool.release(pool.acquire(RunnerConfigs.CHROME_LINUX), true);
+    Mockito.when(driver1.getCurrentUrl()).thenThrow(new WebDriverException("gone"));
+
+    Assert.assertSame(driver2, pool.acquire(RunnerConfigs.CHROME_LINUX).getDriver());
+    Mockito.verify(driver1).quit();
+  }
+
+  private static RemoteWebDriver createDriver() {
+    RemoteWebDriver driver = Mockito.mock(RemoteWebDriver.class);
+    Mockito.when(driver.navigate()).thenReturn(Mockito.mock(Navigation.class));
+    return driver;
+  }
+}
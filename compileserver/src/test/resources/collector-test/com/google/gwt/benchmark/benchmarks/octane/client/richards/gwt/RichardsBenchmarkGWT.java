@@ -0,0 +1,4 @@
+package com.google.gwt.benchmark.benchmarks.octane.client.richards.gwt;
+
+public class RichardsBenchmarkGWT {
+}
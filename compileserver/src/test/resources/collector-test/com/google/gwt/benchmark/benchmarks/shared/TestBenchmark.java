@@ -0,0 +1,4 @@
+package com.google.gwt.benchmark.benchmarks.shared;
+
+public class TestBenchmark {
+}
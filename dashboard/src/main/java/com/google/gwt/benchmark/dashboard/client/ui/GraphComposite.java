@@ -19,6 +19,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
 import com.google.gwt.benchmark.dashboard.shared.service.DashboardServiceAsync;
 import com.google.gwt.benchmark.dashboard.shared.service.dto.BenchmarkResultsTable;
+import com.google.gwt.benchmark.dashboard.shared.service.dto.CodeSizeTable;
 import com.google.gwt.core.shared.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.logical.shared.ValueChangeEvent;
@@ -84,6 +85,9 @@ public class GraphComposite extends Composite {
   @UiField
   GraphWidget graphWidget;
 
+  @UiField
+  GraphWidget codeSizeGraphWidget;
+
   @UiField
   Label errorLabel;
 
@@ -129,6 +133,7 @@ public class GraphComposite extends Composite {
     resetView();
     renderCheckBoxes();
     renderGraph();
+    renderCodeSizeGraph();
   }
 
   private void renderGraph() {
@@ -181,6 +186,42 @@ public class GraphComposite extends Composite {
     graphWidget.displayChart(options, data);
   }
 
+  private void renderCodeSizeGraph() {
+    CodeSizeTable codeSizes = result.getCodeSizes();
+    if (codeSizes == null || codeSizes.getRowCount() == 0) {
+      codeSizeGraphWidget.clear();
+      return;
+    }
+
+    DataTable data = codeSizeGraphWidget.createData();
+    data.addColumn(ColumnType.STRING, "Commits");
+    data.addColumn(ColumnType.NUMBER, "bytes");
+    data.addColumn(ColumnType.NUMBER, "gzipped bytes");
+
+    data.addRows(codeSizes.getRowCount());
+    for (int rowIndex = 0; rowIndex < codeSizes.getRowCount(); rowIndex++) {
+      data.setValue(rowIndex, 0, codeSizes.getCommitIds().get(rowIndex));
+      data.setValue(rowIndex, 1, codeSizes.getTotalBytes(rowIndex));
+      data.setValue(rowIndex, 2, codeSizes.getTotalGzipBytes(rowIndex));
+    }
+
+    Options options = codeSizeGraphWidget.createOptions();
+    options.setWidth(800);
+    options.setHeight(400);
+
+    options.setTitle(result.getBenchmarkName() + " code size");
+
+    AxisOptions vAxisOptions = codeSizeGraphWidget.createAxisOptions();
+    vAxisOptions.setMinValue(0);
+    options.setVAxisOptions(vAxisOptions);
+
+    AxisOptions hAxisOptions = codeSizeGraphWidget.createAxisOptions();
+    hAxisOptions.setTextPosition("none");
+    options.setHAxisOptions(hAxisOptions);
+
+    codeSizeGraphWidget.displayChart(options, data);
+  }
+
   private void renderCheckBoxes() {
     for (final String runner : result.getAllRunnerIds()) {
       CheckBox checkBox = checkboxProvider.get();
@@ -18,6 +18,7 @@ import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.DatastoreTimeoutException;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
 import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
@@ -31,11 +32,17 @@ import com.google.appengine.api.taskqueue.QueueFactory;
 import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.gwt.benchmark.common.shared.json.BenchmarkResultJson;
 import com.google.gwt.benchmark.common.shared.json.BenchmarkRunJson;
+import com.google.gwt.benchmark.common.shared.json.CodeSizeJson;
+import com.google.gwt.benchmark.common.shared.json.PermutationSizeJson;
+import com.google.gwt.benchmark.common.shared.json.TimingStatisticsJson;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkGraph;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkResult;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkRun;
+import com.google.gwt.benchmark.dashboard.server.domain.CodeSize;
+import com.google.gwt.benchmark.dashboard.server.domain.CodeSizeGraph;
 import com.google.gwt.benchmark.dashboard.server.guice.DashboardServletGuiceModule;
 import com.google.gwt.benchmark.dashboard.shared.service.dto.BenchmarkResultsTable;
+import com.google.gwt.benchmark.dashboard.shared.service.dto.CodeSizeTable;
 
 import org.apache.commons.lang.ArrayUtils;
 
@@ -65,11 +72,13 @@ public class BenchmarkController {
     private final long commitTimeMsEpoch;
     private final BenchmarkRun benchmarkRun;
     private final List<BenchmarkResult> benchmarkResults;
+    private final List<CodeSize> codeSizes;
 
     public ToPersist(BenchmarkRun benchmarkRun, List<BenchmarkResult> benchmarkResults,
-        long commitTimeMsEpoch) {
+        List<CodeSize> codeSizes, long commitTimeMsEpoch) {
       this.benchmarkRun = benchmarkRun;
       this.benchmarkResults = Collections.unmodifiableList(benchmarkResults);
+      this.codeSizes = Collections.unmodifiableList(codeSizes);
       this.commitTimeMsEpoch = commitTimeMsEpoch;
     }
   }
@@ -132,7 +141,8 @@ public class BenchmarkController {
   public BenchmarkResultsTable getGraphs(String benchmarkName, int week, int year) {
     Query query = BenchmarkGraph.createQuery(benchmarkName, week, year);
     List<BenchmarkGraph> graphs = executeQuery(query);
-    return createResponse(benchmarkName, graphs, week, year);
+    return createResponse(benchmarkName, graphs, loadCodeSizes(benchmarkName, week, year), week,
+        year);
   }
 
   public void addBenchmarkResult(BenchmarkRunJson benchmarkRunJSON) throws ControllerException {
@@ -153,8 +163,73 @@ public class BenchmarkController {
         benchmarkGraphData.commitIds, benchmarkGraphData.runsPerSecond);
   }
 
+  public void updateCodeSizeGraph(long commitTimeMsEpoch, String benchmarkName)
+      throws ControllerException {
+
+    WeekSpan weekSpan = createWeekSpan(commitTimeMsEpoch);
+
+    DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+    List<Entity> entityList =
+        queryBenchmarkRuns(dataStore, weekSpan.weekStartMsEpoch, weekSpan.weekEndMsEpoch);
+
+    ArrayList<Key> keys = new ArrayList<Key>(entityList.size());
+    List<String> runCommitIds = new ArrayList<>(entityList.size());
+    for (Entity entity : entityList) {
+      keys.add(CodeSize.createKey(entity.getKey(), benchmarkName));
+      runCommitIds.add(new BenchmarkRun(entity).getCommitId());
+    }
+
+    Map<Key, Entity> codeSizeMap = dataStore.get(keys);
+
+    // Runs that were reported before code size was measured have no code size
+    List<String> commitIds = new ArrayList<>();
+    List<Long> totalBytes = new ArrayList<>();
+    List<Long> totalGzipBytes = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      Entity entity = codeSizeMap.get(keys.get(i));
+      if (entity == null) {
+        continue;
+      }
+      CodeSize codeSize = new CodeSize(entity);
+      commitIds.add(runCommitIds.get(i));
+      totalBytes.add(codeSize.getTotalBytes());
+      totalGzipBytes.add(codeSize.getTotalGzipBytes());
+    }
+
+    CodeSizeGraph graph =
+        new CodeSizeGraph(benchmarkName, weekSpan.commitWeek, weekSpan.commitYear);
+    graph.setCommitIds(commitIds);
+    graph.setTotalBytes(totalBytes);
+    graph.setTotalGzipBytes(totalGzipBytes);
+    try {
+      dataStore.put(graph.getEntity());
+    } catch (DatastoreFailureException | ConcurrentModificationException e) {
+      throw new ControllerException("Can not persist CodeSizeGraph", e);
+    }
+  }
+
+  private CodeSizeTable loadCodeSizes(String benchmarkName, int week, int year) {
+    DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
+    CodeSizeGraph graph;
+    try {
+      graph = new CodeSizeGraph(dataStore.get(CodeSizeGraph.createKey(benchmarkName, week, year)));
+    } catch (EntityNotFoundException e) {
+      return null;
+    }
+    return CodeSizeTable.create(graph.getCommitIds(), toDoubles(graph.getTotalBytes()),
+        toDoubles(graph.getTotalGzipBytes()));
+  }
+
+  private static double[] toDoubles(List<Long> values) {
+    double[] doubles = new double[values.size()];
+    for (int i = 0; i < doubles.length; i++) {
+      doubles[i] = values.get(i);
+    }
+    return doubles;
+  }
+
   private BenchmarkResultsTable createResponse(String benchmarkName,
-      List<BenchmarkGraph> graphs, int week, int year) {
+      List<BenchmarkGraph> graphs, CodeSizeTable codeSizes, int week, int year) {
     Collections.sort(graphs, new Comparator<BenchmarkGraph>() {
 
       @Override
@@ -191,7 +266,7 @@ public class BenchmarkController {
     }
 
     return BenchmarkResultsTable.create(benchmarkName, weekName, year, week, commitIds,
-        allRunnerIds, runnerResultList);
+        allRunnerIds, runnerResultList, codeSizes);
   }
 
   private List<BenchmarkGraph> executeQuery(Query query) {
@@ -213,18 +288,7 @@ public class BenchmarkController {
       long weekStartMsEpoch, long weekEndMsEpoch) {
 
     DatastoreService dataStore = DatastoreServiceFactory.getDatastoreService();
-    Query query =
-        new Query(BenchmarkRun.NAME).addSort("commitTimeMsEpoch", SortDirection.ASCENDING);
-    Filter startFilter = new Query.FilterPredicate("commitTimeMsEpoch",
-        FilterOperator.GREATER_THAN_OR_EQUAL, weekStartMsEpoch);
-    Filter endFilter =
-        new Query.FilterPredicate("commitTimeMsEpoch", FilterOperator.LESS_THAN, weekEndMsEpoch);
-
-    Filter compositeFilter = Query.CompositeFilterOperator.and(startFilter, endFilter);
-    query.setFilter(compositeFilter);
-    PreparedQuery prepare = dataStore.prepare(query);
-
-    List<Entity> entityList = prepare.asList(FetchOptions.Builder.withDefaults());
+    List<Entity> entityList = queryBenchmarkRuns(dataStore, weekStartMsEpoch, weekEndMsEpoch);
 
     ArrayList<Key> keys = new ArrayList<Key>(entityList.size());
     List<String> commitIds = new ArrayList<>(entityList.size());
@@ -248,6 +312,22 @@ public class BenchmarkController {
     return new BenchmarkGraphData(commitIds, runsPerSecond);
   }
 
+  private List<Entity> queryBenchmarkRuns(DatastoreService dataStore, long weekStartMsEpoch,
+      long weekEndMsEpoch) {
+    Query query =
+        new Query(BenchmarkRun.NAME).addSort("commitTimeMsEpoch", SortDirection.ASCENDING);
+    Filter startFilter = new Query.FilterPredicate("commitTimeMsEpoch",
+        FilterOperator.GREATER_THAN_OR_EQUAL, weekStartMsEpoch);
+    Filter endFilter =
+        new Query.FilterPredicate("commitTimeMsEpoch", FilterOperator.LESS_THAN, weekEndMsEpoch);
+
+    Filter compositeFilter = Query.CompositeFilterOperator.and(startFilter, endFilter);
+    query.setFilter(compositeFilter);
+    PreparedQuery prepare = dataStore.prepare(query);
+
+    return prepare.asList(FetchOptions.Builder.withDefaults());
+  }
+
   private void putBenchmarkGraph(String benchmarkName, String runnerId, int week, int year,
       List<String> commitIds, List<Double> runsPerSecond) throws ControllerException {
     BenchmarkGraph graph = new BenchmarkGraph(benchmarkName, runnerId, week, year);
@@ -288,6 +368,14 @@ public class BenchmarkController {
           benchmarkResult.getBenchmarkName()).param("runnerId", benchmarkResult.getRunnerId());
       queue.add(taskOptions);
     }
+    // Code size does not depend on the runner, so its tasks have no runnerId
+    for (CodeSize codeSize : toPersist.codeSizes) {
+      TaskOptions taskOptions = TaskOptions.Builder.withUrl(
+          DashboardServletGuiceModule.GRAPH_QUEUE_URL).param("commitTimeMsEpoch",
+          String.valueOf(toPersist.commitTimeMsEpoch)).param("benchmarkName",
+          codeSize.getBenchmarkName());
+      queue.add(taskOptions);
+    }
   }
 
   private ToPersist createDomainObjects(BenchmarkRunJson benchmarkRunJSON) {
@@ -308,13 +396,54 @@ public class BenchmarkController {
         BenchmarkResult benchmarkResult = new BenchmarkResult(benchmarkRun.getKey(), moduleName,
             benchmarkResultJSON.getRunnerId());
         benchmarkResult.setRunsPerSecond(benchmarkResultJSON.getRunsPerSecond());
+        if (benchmarkResultJSON.getForkRunsPerSecond() != null) {
+          benchmarkResult.setForkRunsPerSecond(benchmarkResultJSON.getForkRunsPerSecond());
+        }
+        TimingStatisticsJson timingStatistics = benchmarkResultJSON.getTimingStatistics();
+        if (timingStatistics != null) {
+          benchmarkResult.setTimingStatistics(timingStatistics.getSamplesMs(),
+              timingStatistics.getMeanMs(), timingStatistics.getMedianMs(),
+              timingStatistics.getP90Ms(), timingStatistics.getP99Ms(),
+              timingStatistics.getStdDevMs(), timingStatistics.getMinMs(),
+              timingStatistics.getMaxMs());
+        }
         brToPersist.add(benchmarkResult);
       }
     }
 
     benchmarkRun.setRunnerIds(new ArrayList<>(runnerIds));
 
-    return new ToPersist(benchmarkRun, brToPersist, commitTimeMsEpoch);
+    List<CodeSize> codeSizesToPersist = new ArrayList<>();
+    // Older compile servers do not report code size
+    Map<String, CodeSizeJson> codeSizes = benchmarkRunJSON.getCodeSizeByBenchmarkName();
+    if (codeSizes != null) {
+      for (Entry<String, CodeSizeJson> entry : codeSizes.entrySet()) {
+        codeSizesToPersist.add(createCodeSize(benchmarkRun.getKey(), entry.getKey(),
+            entry.getValue()));
+      }
+    }
+
+    return new ToPersist(benchmarkRun, brToPersist, codeSizesToPersist, commitTimeMsEpoch);
+  }
+
+  private CodeSize createCodeSize(Key benchmarkRunKey, String moduleName,
+      CodeSizeJson codeSizeJson) {
+    CodeSize codeSize = new CodeSize(benchmarkRunKey, moduleName);
+    codeSize.setTotalBytes(Math.round(codeSizeJson.getTotalBytes()));
+    codeSize.setTotalGzipBytes(Math.round(codeSizeJson.getTotalGzipBytes()));
+
+    List<String> fileNames = new ArrayList<>();
+    List<Long> bytes = new ArrayList<>();
+    List<Long> gzipBytes = new ArrayList<>();
+    if (codeSizeJson.getPermutations() != null) {
+      for (PermutationSizeJson permutation : codeSizeJson.getPermutations()) {
+        fileNames.add(permutation.getFileName());
+        bytes.add(Math.round(permutation.getBytes()));
+        gzipBytes.add(Math.round(permutation.getGzipBytes()));
+      }
+    }
+    codeSize.setPermutations(fileNames, bytes, gzipBytes);
+    return codeSize;
   }
 
   private void persistBenchmarkRun(ToPersist toPersist, int retryCount) throws ControllerException {
@@ -348,6 +477,11 @@ public class BenchmarkController {
         entities.add(br.getEntity());
       }
       List<Key> list = datastore.put(entities);
+      List<Entity> codeSizeEntities = new ArrayList<>();
+      for (CodeSize codeSize : toPersist.codeSizes) {
+        codeSizeEntities.add(codeSize.getEntity());
+      }
+      datastore.put(codeSizeEntities);
       BenchmarkRun benchmarkRun = toPersist.benchmarkRun;
       benchmarkRun.setResults(list);
       datastore.put(benchmarkRun.getEntity());
@@ -18,6 +18,10 @@ import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.datastore.Query;
 import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.gwt.benchmark.common.shared.json.TimingSamples;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A BenchmarkResult contains the runs per minute for one module on one runner.
@@ -70,6 +74,72 @@ public class BenchmarkResult {
     return (double) entity.getProperty("runsPerSecond");
   }
 
+  /**
+   * Stores the results of the individual page loads the runs per second were aggregated from.
+   */
+  public void setForkRunsPerSecond(List<Double> forkRunsPerSecond) {
+    entity.setUnindexedProperty("forkRunsPerSecond", new ArrayList<>(forkRunsPerSecond));
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Double> getForkRunsPerSecond() {
+    return (List<Double>) entity.getProperty("forkRunsPerSecond");
+  }
+
+  /**
+   * Stores the times of the individual runs and the statistics the browser derived from them.
+   * These are only displayed and never queried, so they are not indexed. At most
+   * {@link TimingSamples#MAX_SAMPLES} times are kept to stay well below the entity size limit.
+   */
+  public void setTimingStatistics(List<Double> samplesMs, double meanMs, double medianMs,
+      double p90Ms, double p99Ms, double stdDevMs, double minMs, double maxMs) {
+    entity.setUnindexedProperty("samplesMs", new ArrayList<>(TimingSamples.limit(samplesMs)));
+    entity.setUnindexedProperty("meanMs", meanMs);
+    entity.setUnindexedProperty("medianMs", medianMs);
+    entity.setUnindexedProperty("p90Ms", p90Ms);
+    entity.setUnindexedProperty("p99Ms", p99Ms);
+    entity.setUnindexedProperty("stdDevMs", stdDevMs);
+    entity.setUnindexedProperty("minMs", minMs);
+    entity.setUnindexedProperty("maxMs", maxMs);
+  }
+
+  public boolean hasTimingStatistics() {
+    return entity.hasProperty("meanMs");
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Double> getSamplesMs() {
+    return (List<Double>) entity.getProperty("samplesMs");
+  }
+
+  public double getMeanMs() {
+    return (double) entity.getProperty("meanMs");
+  }
+
+  public double getMedianMs() {
+    return (double) entity.getProperty("medianMs");
+  }
+
+  public double getP90Ms() {
+    return (double) entity.getProperty("p90Ms");
+  }
+
+  public double getP99Ms() {
+    return (double) entity.getProperty("p99Ms");
+  }
+
+  public double getStdDevMs() {
+    return (double) entity.getProperty("stdDevMs");
+  }
+
+  public double getMinMs() {
+    return (double) entity.getProperty("minMs");
+  }
+
+  public double getMaxMs() {
+    return (double) entity.getProperty("maxMs");
+  }
+
   public Key getKey() {
     return entity.getKey();
   }
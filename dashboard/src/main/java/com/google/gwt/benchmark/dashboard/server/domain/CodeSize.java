@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.dashboard.server.domain;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CodeSize contains the size of the compiled JavaScript of one module in one benchmark run.
+ */
+public class CodeSize {
+
+  public static final String NAME = "CodeSize";
+
+  public static Key createKey(Key run, String benchmarkName) {
+    return KeyFactory.createKey(run, NAME, benchmarkName);
+  }
+
+  private Entity entity;
+
+  public CodeSize(Key run, String benchmarkName) {
+    entity = new Entity(createKey(run, benchmarkName));
+    entity.setProperty("benchmarkName", benchmarkName);
+    setTotalBytes(0);
+    setTotalGzipBytes(0);
+  }
+
+  public CodeSize(Entity entity) {
+    this.entity = entity;
+  }
+
+  public String getBenchmarkName() {
+    return (String) entity.getProperty("benchmarkName");
+  }
+
+  public void setTotalBytes(long totalBytes) {
+    entity.setProperty("totalBytes", totalBytes);
+  }
+
+  public long getTotalBytes() {
+    return (long) entity.getProperty("totalBytes");
+  }
+
+  public void setTotalGzipBytes(long totalGzipBytes) {
+    entity.setProperty("totalGzipBytes", totalGzipBytes);
+  }
+
+  public long getTotalGzipBytes() {
+    return (long) entity.getProperty("totalGzipBytes");
+  }
+
+  /**
+   * Stores the sizes of the individual permutations. These are only displayed and never queried,
+   * so they are not indexed.
+   */
+  public void setPermutations(List<String> fileNames, List<Long> bytes, List<Long> gzipBytes) {
+    entity.setUnindexedProperty("permutationFileNames", new ArrayList<>(fileNames));
+    entity.setUnindexedProperty("permutationBytes", new ArrayList<>(bytes));
+    entity.setUnindexedProperty("permutationGzipBytes", new ArrayList<>(gzipBytes));
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<String> getPermutationFileNames() {
+    return (List<String>) entity.getProperty("permutationFileNames");
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Long> getPermutationBytes() {
+    return (List<Long>) entity.getProperty("permutationBytes");
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Long> getPermutationGzipBytes() {
+    return (List<Long>) entity.getProperty("permutationGzipBytes");
+  }
+
+  public Key getKey() {
+    return entity.getKey();
+  }
+
+  public Entity getEntity() {
+    return entity;
+  }
+}
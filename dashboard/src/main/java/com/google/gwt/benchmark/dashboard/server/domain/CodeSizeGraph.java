@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.dashboard.server.domain;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A CodeSizeGraph contains the code size of a certain module for one week.
+ */
+public class CodeSizeGraph {
+
+  public static final String NAME = "CodeSizeGraph";
+
+  public static Key createKey(String benchmarkName, int week, int year) {
+    return KeyFactory.createKey(NAME, benchmarkName + "_" + week + "_" + year);
+  }
+
+  private Entity entity;
+
+  /**
+   * Creates a new, empty graph.
+   */
+  public CodeSizeGraph(String module, int week, int year) {
+    entity = new Entity(createKey(module, week, year));
+    entity.setProperty("module", module);
+    entity.setProperty("week", week);
+    entity.setProperty("year", year);
+    setCommitIds(new ArrayList<String>());
+    setTotalBytes(new ArrayList<Long>());
+    setTotalGzipBytes(new ArrayList<Long>());
+  }
+
+  /**
+   * Wraps an existing graph loaded from the datastore.
+   */
+  public CodeSizeGraph(Entity entity) {
+    this.entity = entity;
+  }
+
+  public String getModule() {
+    return (String) entity.getProperty("module");
+  }
+
+  public int getWeek() {
+    return ((Long) entity.getProperty("week")).intValue();
+  }
+
+  public int getYear() {
+    return ((Long) entity.getProperty("year")).intValue();
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<String> getCommitIds() {
+    return Collections.unmodifiableList((List<String>) entity.getProperty("commitIds"));
+  }
+
+  public void setCommitIds(List<String> commitIds) {
+    entity.setProperty("commitIds", commitIds);
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Long> getTotalBytes() {
+    return Collections.unmodifiableList((List<Long>) entity.getProperty("totalBytes"));
+  }
+
+  public void setTotalBytes(List<Long> totalBytes) {
+    entity.setProperty("totalBytes", totalBytes);
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<Long> getTotalGzipBytes() {
+    return Collections.unmodifiableList((List<Long>) entity.getProperty("totalGzipBytes"));
+  }
+
+  public void setTotalGzipBytes(List<Long> totalGzipBytes) {
+    entity.setProperty("totalGzipBytes", totalGzipBytes);
+  }
+
+  public Entity getEntity() {
+    return entity;
+  }
+}
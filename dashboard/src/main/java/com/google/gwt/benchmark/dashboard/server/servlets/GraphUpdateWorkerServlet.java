@@ -54,7 +54,11 @@ public class GraphUpdateWorkerServlet extends HttpServlet {
     logger.info(String.format("Received update request for graph (%s %s %d", benchmarkName, runnerId, commitTimeMsEpoch));
 
     try {
-      controller.updateGraph(commitTimeMsEpoch, benchmarkName, runnerId);
+      if (runnerId == null) {
+        controller.updateCodeSizeGraph(commitTimeMsEpoch, benchmarkName);
+      } else {
+        controller.updateGraph(commitTimeMsEpoch, benchmarkName, runnerId);
+      }
     } catch (ControllerException e) {
       logger.log(Level.WARNING, "Can not update graph", e);
       throw new ServletException("Can not update graph", e);
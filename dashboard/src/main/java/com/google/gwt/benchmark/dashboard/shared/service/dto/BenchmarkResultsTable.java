@@ -34,6 +34,12 @@ public class BenchmarkResultsTable implements Serializable {
   public static BenchmarkResultsTable create(String benchmarkName, String weekName, int year,
       int week, Collection<String> commitIds, Collection<String> runnerIds,
       Collection<double[]> cellData) {
+    return create(benchmarkName, weekName, year, week, commitIds, runnerIds, cellData, null);
+  }
+
+  public static BenchmarkResultsTable create(String benchmarkName, String weekName, int year,
+      int week, Collection<String> commitIds, Collection<String> runnerIds,
+      Collection<double[]> cellData, CodeSizeTable codeSizes) {
     checkArgument(runnerIds.size() == cellData.size());
     for (double[] row : cellData) {
       checkArgument(row.length == commitIds.size());
@@ -47,6 +53,7 @@ public class BenchmarkResultsTable implements Serializable {
     table.weekName = weekName;
     table.year = year;
     table.week = week;
+    table.codeSizes = codeSizes;
     return table;
   }
 
@@ -61,6 +68,8 @@ public class BenchmarkResultsTable implements Serializable {
 
   private int week;
 
+  private CodeSizeTable codeSizes;
+
   protected BenchmarkResultsTable() {
   }
 
@@ -119,6 +128,14 @@ public class BenchmarkResultsTable implements Serializable {
     return year;
   }
 
+  /**
+   * The size of the compiled JavaScript of the benchmark in this week or null if it has not been
+   * reported.
+   */
+  public CodeSizeTable getCodeSizes() {
+    return codeSizes;
+  }
+
   /**
    * A user-friendly description of the week shown in this table.
    */
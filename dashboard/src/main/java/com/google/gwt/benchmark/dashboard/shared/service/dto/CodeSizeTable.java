@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.gwt.benchmark.dashboard.shared.service.dto;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.Lists;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * The size of the compiled JavaScript of one benchmark for each commit of a week.
+ */
+public class CodeSizeTable implements Serializable {
+
+  public static CodeSizeTable create(Collection<String> commitIds, double[] totalBytes,
+      double[] totalGzipBytes) {
+    checkArgument(totalBytes.length == commitIds.size());
+    checkArgument(totalGzipBytes.length == commitIds.size());
+
+    CodeSizeTable table = new CodeSizeTable();
+    table.commitIds = Lists.newArrayList(commitIds);
+    table.totalBytes = totalBytes;
+    table.totalGzipBytes = totalGzipBytes;
+    return table;
+  }
+
+  private ArrayList<String> commitIds;
+  private double[] totalBytes;
+  private double[] totalGzipBytes;
+
+  protected CodeSizeTable() {
+  }
+
+  public ArrayList<String> getCommitIds() {
+    return commitIds;
+  }
+
+  /**
+   * The size of all permutations at a commit.
+   */
+  public double getTotalBytes(int rowIndex) {
+    return totalBytes[rowIndex];
+  }
+
+  /**
+   * The gzipped size of all permutations at a commit.
+   */
+  public double getTotalGzipBytes(int rowIndex) {
+    return totalGzipBytes[rowIndex];
+  }
+
+  public int getRowCount() {
+    return commitIds.size();
+  }
+}
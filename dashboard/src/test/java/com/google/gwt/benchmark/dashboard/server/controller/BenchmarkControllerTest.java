@@ -28,11 +28,16 @@ import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestC
 import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
 import com.google.appengine.tools.development.testing.LocalTaskQueueTestConfig;
 import com.google.gwt.benchmark.common.shared.json.BenchmarkRunJson;
+import com.google.gwt.benchmark.common.shared.json.CodeSizeJson;
+import com.google.gwt.benchmark.common.shared.json.JsonFactory;
+import com.google.gwt.benchmark.common.shared.json.PermutationSizeJson;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkGraph;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkResult;
 import com.google.gwt.benchmark.dashboard.server.domain.BenchmarkRun;
+import com.google.gwt.benchmark.dashboard.server.domain.CodeSize;
 import com.google.gwt.benchmark.dashboard.server.servlets.AddBenchmarkResultServletTest;
 import com.google.gwt.benchmark.dashboard.shared.service.dto.BenchmarkResultsTable;
+import com.google.gwt.benchmark.dashboard.shared.service.dto.CodeSizeTable;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -40,6 +45,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -137,6 +145,56 @@ public class BenchmarkControllerTest {
     Assert.assertEquals(4, info.getCountTasks());
   }
 
+  @Test
+  public void testCodeSize() throws ControllerException, EntityNotFoundException {
+    JsonFactory.Factory factory = JsonFactory.get();
+    PermutationSizeJson permutationJson = factory.permutationSize().as();
+    permutationJson.setFileName("A.cache.js");
+    permutationJson.setBytes(1000);
+    permutationJson.setGzipBytes(300);
+    CodeSizeJson codeSizeJson = factory.codeSize().as();
+    codeSizeJson.setTotalBytes(1000);
+    codeSizeJson.setTotalGzipBytes(300);
+    codeSizeJson.setPermutations(Arrays.asList(permutationJson));
+
+    BenchmarkRunJson benchmarkRunJSON = AddBenchmarkResultServletTest.buildBenchmarkRunJSON();
+    benchmarkRunJSON.setCodeSizeByBenchmarkName(
+        Collections.singletonMap("module1", codeSizeJson));
+
+    BenchmarkController controller = new BenchmarkController();
+    controller.addBenchmarkResult(benchmarkRunJSON);
+
+    DatastoreService ds = DatastoreServiceFactory.getDatastoreService();
+    Key benchmarkRunKey = BenchmarkRun.createKey(benchmarkRunJSON.getCommitId());
+    CodeSize codeSize = new CodeSize(ds.get(CodeSize.createKey(benchmarkRunKey, "module1")));
+    Assert.assertEquals(1000, codeSize.getTotalBytes());
+    Assert.assertEquals(300, codeSize.getTotalGzipBytes());
+    Assert.assertEquals(Arrays.asList("A.cache.js"), codeSize.getPermutationFileNames());
+    Assert.assertEquals(Arrays.asList(1000L), codeSize.getPermutationBytes());
+    Assert.assertEquals(Arrays.asList(300L), codeSize.getPermutationGzipBytes());
+
+    // one task for each result and one for the code size
+    LocalTaskQueue taskQueue = LocalTaskQueueTestConfig.getLocalTaskQueue();
+    Assert.assertEquals(5, taskQueue.getQueueStateInfo().get("graph-queue").getCountTasks());
+
+    long commitTimeMsEpoch = Math.round(benchmarkRunJSON.getCommitTimeMsEpoch());
+    controller.updateCodeSizeGraph(commitTimeMsEpoch, "module1");
+
+    Calendar cal = Calendar.getInstance();
+    cal.setTime(new Date(commitTimeMsEpoch));
+    BenchmarkResultsTable dto = controller.getGraphs("module1", cal.get(Calendar.WEEK_OF_YEAR),
+        cal.get(Calendar.YEAR));
+    CodeSizeTable codeSizes = dto.getCodeSizes();
+    Assert.assertEquals(1, codeSizes.getRowCount());
+    Assert.assertEquals(Arrays.asList("commit1"), codeSizes.getCommitIds());
+    Assert.assertEquals(1000, codeSizes.getTotalBytes(0), 0.0001);
+    Assert.assertEquals(300, codeSizes.getTotalGzipBytes(0), 0.0001);
+
+    // module2 did not report its code size
+    Assert.assertNull(controller.getGraphs("module2", cal.get(Calendar.WEEK_OF_YEAR),
+        cal.get(Calendar.YEAR)).getCodeSizes());
+  }
+
   @Test
   public void testGraphUpdate() throws ControllerException {
     DatastoreService ds = DatastoreServiceFactory.getDatastoreService();